@@ -0,0 +1,75 @@
+package com.codeverse.backend.config;
+
+import com.codeverse.backend.service.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Publishes the counters the caches, schedulers and upstream trackers already keep as
+ * meters, so the stats endpoints and {@code /actuator/prometheus} report the same numbers.
+ * Monotonic counts become counters; sizes, queue depths and rate-limit state become gauges,
+ * all sampled at scrape time.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder componentMetrics(RepoTreeCache repoTreeCache, BlobCache blobCache, SummaryContextCache summaryContextCache,
+                                        LlmResponseCache llmResponseCache, LlmRequestScheduler llmRequestScheduler,
+                                        RequestHistoryService requestHistoryService, GitHubRateLimit gitHubRateLimit,
+                                        LocalMirrorSource localMirrorSource, RepoMetricsService repoMetricsService,
+                                        HotRepoPrefetcher hotRepoPrefetcher, RepoResponseCache repoResponseCache) {
+        return registry -> {
+            bind(registry, "cache.tree", repoTreeCache, RepoTreeCache::stats, "memory_hits", "mongo_hits", "misses", "evictions");
+            bind(registry, "cache.blob", blobCache, BlobCache::stats, "heap_hits", "disk_hits", "misses", "evictions");
+            bind(registry, "cache.summary_context", summaryContextCache, SummaryContextCache::stats, "hits", "misses");
+            bind(registry, "cache.repo_response", repoResponseCache, RepoResponseCache::stats, "hits", "not_modified", "misses", "evictions");
+            bind(registry, "cache.llm", llmResponseCache, LlmResponseCache::stats, "memory_hits", "mongo_hits", "coalesced", "misses");
+            bind(registry, "cache.blob_metrics", repoMetricsService, RepoMetricsService::stats, "hits", "scanned", "scanned_bytes", "fetch_failures");
+            bind(registry, "llm.scheduler", llmRequestScheduler, LlmRequestScheduler::stats);
+            bind(registry, "history", requestHistoryService, RequestHistoryService::stats, "written", "dropped", "batches");
+            bind(registry, "github.ratelimit", gitHubRateLimit, GitHubRateLimit::stats, "throttled", "rejected", "retried");
+            bind(registry, "mirror", localMirrorSource, LocalMirrorSource::stats, "clones", "fetches", "fetch_failures");
+            bind(registry, "prefetch", hotRepoPrefetcher, HotRepoPrefetcher::stats, "passes", "checked", "refreshed", "skipped_for_budget", "failures");
+
+            Gauge.builder("codeverse.llm.scheduler.circuit_state", llmRequestScheduler,
+                            scheduler -> switch (String.valueOf(scheduler.stats().get("circuit"))) {
+                                case "open" -> 2;
+                                case "half_open" -> 1;
+                                default -> 0;
+                            })
+                    .description("LLM circuit breaker: 0 closed, 1 half open, 2 open")
+                    .register(registry);
+        };
+    }
+
+    // One meter per numeric entry of a stats map; the keys are read once, at bind time
+    private static <T> void bind(MeterRegistry registry, String component, T source, Function<T, Map<String, Object>> stats,
+                                 String... counters) {
+        Set<String> counterKeys = Set.of(counters);
+        for (Map.Entry<String, Object> entry : stats.apply(source).entrySet()) {
+            if (!(entry.getValue() instanceof Number)) {
+                continue;
+            }
+            String key = entry.getKey();
+            String name = "codeverse." + component + "." + key;
+            if (counterKeys.contains(key)) {
+                FunctionCounter.builder(name, source, s -> value(stats.apply(s), key)).register(registry);
+            } else {
+                Gauge.builder(name, source, s -> value(stats.apply(s), key)).register(registry);
+            }
+        }
+    }
+
+    private static double value(Map<String, Object> stats, String key) {
+        return stats.get(key) instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+}
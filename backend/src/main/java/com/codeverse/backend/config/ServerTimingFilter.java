@@ -0,0 +1,44 @@
+package com.codeverse.backend.config;
+
+import com.codeverse.backend.service.ServerTiming;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Adds a {@code Server-Timing} header with the upstream stages of each API request and its
+ * total time, so stage latency shows up in the browser's network panel. The header is
+ * written when the response commits: streamed responses list the stages finished by their
+ * first chunk.
+ */
+@Component
+public class ServerTimingFilter implements WebFilter {
+
+    private final String allowOrigin;
+
+    public ServerTimingFilter(@Value("${codeverse.server-timing.allow-origin:http://localhost:5173}") String allowOrigin) {
+        this.allowOrigin = allowOrigin;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith("/api/")) {
+            return chain.filter(exchange);
+        }
+        ServerTiming timing = new ServerTiming();
+        long start = System.nanoTime();
+        exchange.getResponse().beforeCommit(() -> {
+            timing.add("total", System.nanoTime() - start);
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.set("Server-Timing", timing.header());
+            // Without it the browser hides the timings of cross-origin responses from the page
+            headers.set("Timing-Allow-Origin", allowOrigin);
+            return Mono.empty();
+        });
+        return chain.filter(exchange).contextWrite(context -> context.put(ServerTiming.class, timing));
+    }
+}
@@ -1,9 +1,14 @@
 package com.codeverse.backend.controller;
 
+import com.codeverse.backend.service.LlmUnavailableException;
 import com.codeverse.backend.service.OpenAIService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
@@ -28,6 +33,7 @@ public class AIController {
 
         return openAIService.explainCode(code)
                 .map(explanation -> ResponseEntity.ok(Map.of("explanation", explanation)))
+                .onErrorResume(LlmUnavailableException.class, AIController::unavailable)
                 .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().body(Map.of("error", "Failed to get explanation: " + e.getMessage()))));
     }
 
@@ -42,11 +48,24 @@ public class AIController {
 
         return openAIService.analyzeFile(fileContent, languageLevel)
                 .map(analysis -> ResponseEntity.ok(Map.of("analysis", analysis)))
+                .onErrorResume(LlmUnavailableException.class, AIController::unavailable)
                 .onErrorResume(e -> Mono.just(
                         ResponseEntity.internalServerError().body(Map.of("error", "Failed to analyze file: " + e.getMessage()))
                 ));
     }
 
+    @PostMapping(value = "/analyze-file/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamAnalyzeFile(@RequestBody Map<String, String> request) {
+        String fileContent = request.get("fileContent");
+        String languageLevel = request.getOrDefault("languageLevel", "standard");
+
+        if (fileContent == null || fileContent.isEmpty()) {
+            return ResponseEntity.badRequest().body(errorEvent("File content is required"));
+        }
+
+        return ResponseEntity.ok(events(openAIService.streamAnalyzeFile(fileContent, languageLevel)));
+    }
+
     @PostMapping("/find-bugs")
     public Mono<ResponseEntity<Map<String, String>>> findBugs(@RequestBody Map<String, String> request) {
         String fileContent = request.get("fileContent");
@@ -58,8 +77,56 @@ public class AIController {
 
         return openAIService.findBugsInFile(fileContent, languageLevel)
                 .map(bugs -> ResponseEntity.ok(Map.of("bugs", bugs)))
+                .onErrorResume(LlmUnavailableException.class, AIController::unavailable)
                 .onErrorResume(e -> Mono.just(
                         ResponseEntity.internalServerError().body(Map.of("error", "Failed to find bugs: " + e.getMessage()))
                 ));
     }
+
+    @PostMapping(value = "/find-bugs/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamFindBugs(@RequestBody Map<String, String> request) {
+        String fileContent = request.get("fileContent");
+        String languageLevel = request.getOrDefault("languageLevel", "standard");
+
+        if (fileContent == null || fileContent.isEmpty()) {
+            return ResponseEntity.badRequest().body(errorEvent("File content is required"));
+        }
+
+        return ResponseEntity.ok(events(openAIService.streamFindBugsInFile(fileContent, languageLevel)));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> cacheStats() {
+        return ResponseEntity.ok(openAIService.getCacheStats());
+    }
+
+    @GetMapping("/scheduler/stats")
+    public ResponseEntity<?> schedulerStats() {
+        return ResponseEntity.ok(openAIService.getSchedulerStats());
+    }
+
+    static Mono<ResponseEntity<Map<String, String>>> unavailable(LlmUnavailableException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatus());
+        if (e.getRetryAfter() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+        }
+        return Mono.just(response.body(Map.of("error", e.getMessage())));
+    }
+
+    /**
+     * Wraps completion deltas as server-sent events: one {@code token} event per delta, then
+     * {@code done}, or a single {@code error} event if the completion fails part way. Payloads
+     * are JSON objects so whitespace at the start of a delta survives SSE parsing. A client
+     * disconnect cancels the flux and with it the upstream request.
+     */
+    static Flux<ServerSentEvent<Map<String, String>>> events(Flux<String> tokens) {
+        return tokens
+                .map(token -> ServerSentEvent.builder(Map.of("text", token)).event("token").build())
+                .concatWithValues(ServerSentEvent.<Map<String, String>>builder(Map.of()).event("done").build())
+                .onErrorResume(e -> errorEvent(e.getMessage()));
+    }
+
+    static Flux<ServerSentEvent<Map<String, String>>> errorEvent(String message) {
+        return Flux.just(ServerSentEvent.builder(Map.of("error", message != null ? message : "Unknown error")).event("error").build());
+    }
 }
@@ -0,0 +1,70 @@
+package com.codeverse.backend.controller;
+
+import com.codeverse.backend.service.RequestHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/history")
+public class HistoryController {
+
+    private static final int MAX_LIMIT = 100;
+    private static final Duration MIN_WINDOW = Duration.ofHours(1);
+    private static final Duration MAX_WINDOW = Duration.ofDays(365);
+
+    private final RequestHistoryService requestHistoryService;
+
+    @Autowired
+    public HistoryController(RequestHistoryService requestHistoryService) {
+        this.requestHistoryService = requestHistoryService;
+    }
+
+    @GetMapping("/popular")
+    public Mono<ResponseEntity<Map<String, Object>>> popular(@RequestParam(defaultValue = "24h") String window,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Invalid window, expected e.g. 24h or 7d")));
+        }
+        if (duration.compareTo(MIN_WINDOW) < 0 || duration.compareTo(MAX_WINDOW) > 0) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Window must be between 1h and 365d")));
+        }
+
+        return requestHistoryService.popular(duration, Math.max(1, Math.min(limit, MAX_LIMIT)))
+                .map(popular -> ResponseEntity.ok(describe(popular)))
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to load popular repositories: " + e.getMessage()))
+                ));
+    }
+
+    private static Map<String, Object> describe(RequestHistoryService.Popular popular) {
+        List<Map<String, Object>> repos = popular.repos().stream().map(repo -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("owner", repo.owner());
+            entry.put("repo_name", repo.repoName());
+            entry.put("repo_url", repo.repoUrl());
+            entry.put("count", repo.count());
+            return entry;
+        }).toList();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("granularity", popular.granularity());
+        response.put("since", popular.since().toString());
+        response.put("repos", repos);
+        return response;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(requestHistoryService.stats());
+    }
+}
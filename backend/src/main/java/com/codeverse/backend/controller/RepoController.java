@@ -1,38 +1,199 @@
 package com.codeverse.backend.controller;
 
+import com.codeverse.backend.service.GitHubBudgetException;
 import com.codeverse.backend.service.GitHubService;
+import com.codeverse.backend.service.HealthService;
+import com.codeverse.backend.service.HotRepoPrefetcher;
+import com.codeverse.backend.service.LlmUnavailableException;
+import com.codeverse.backend.service.RepoMetricsService;
+import com.codeverse.backend.service.RepoResponseCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class RepoController {
 
+    private static final int MAX_EXPAND_DEPTH = 8;
+    private static final int MAX_SEARCH_RESULTS = 200;
+    private static final List<String> RELAYED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
     private final GitHubService gitHubService;
+    private final HotRepoPrefetcher hotRepoPrefetcher;
+    private final RepoMetricsService repoMetricsService;
+    private final HealthService healthService;
 
     @Autowired
-    public RepoController(GitHubService gitHubService) {
+    public RepoController(GitHubService gitHubService, HotRepoPrefetcher hotRepoPrefetcher, RepoMetricsService repoMetricsService,
+                          HealthService healthService) {
         this.gitHubService = gitHubService;
+        this.hotRepoPrefetcher = hotRepoPrefetcher;
+        this.repoMetricsService = repoMetricsService;
+        this.healthService = healthService;
     }
 
     @GetMapping("/repo")
-    public ResponseEntity<?> getRepo(@RequestParam("url") String repoUrl) {
+    public Mono<ResponseEntity<?>> getRepo(@RequestParam("url") String repoUrl,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         if (repoUrl == null || repoUrl.isEmpty()) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Repository URL is required"));
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Repository URL is required")));
+        }
+
+        return gitHubService.fetchRepoStructure(repoUrl, ifNoneMatch)
+                .flatMap(payload -> repoResponse(payload, acceptEncoding))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to fetch repository structure: " + e.getMessage()))
+                ));
+    }
+
+    @GetMapping(value = "/repo/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Mono<ResponseEntity<Flux<?>>> streamRepo(@RequestParam("url") String repoUrl) {
+        String[] ownerRepo = gitHubService.extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Flux.just(Map.of("error", "Invalid GitHub repository URL"))));
+        }
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+
+        // Repository metadata travels in headers so the body is tree entries and a final completeness record
+        return gitHubService.resolveRef(owner, repo)
+                .<ResponseEntity<Flux<?>>>map(ref -> ResponseEntity.ok()
+                        .header("X-Repo-Owner", owner)
+                        .header("X-Repo-Name", repo)
+                        .header("X-Repo-Default-Branch", ref.getDefaultBranch())
+                        .header("X-Repo-Commit-Sha", ref.getHeadSha())
+                        .body(gitHubService.streamTree(owner, repo, ref.getHeadSha())))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Flux.just(Map.of("error", e.getMessage())))
+                ))
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Flux.just(Map.of("error", "Failed to stream repository structure: " + e.getMessage())))
+                ));
+    }
+
+    @GetMapping("/repo/compact")
+    public Mono<ResponseEntity<?>> getCompactRepo(@RequestParam("url") String repoUrl,
+                                                  @RequestParam(defaultValue = "json") String format) {
+        String[] ownerRepo = gitHubService.extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Invalid GitHub repository URL")));
+        }
+        boolean binary = "binary".equalsIgnoreCase(format);
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+
+        return gitHubService.resolveRef(owner, repo)
+                .flatMap(ref -> gitHubService.fetchCompactTree(owner, repo, ref.getHeadSha())
+                        .<ResponseEntity<?>>map(tree -> ResponseEntity.ok()
+                                .contentType(binary ? MediaType.APPLICATION_OCTET_STREAM : MediaType.APPLICATION_JSON)
+                                .header("X-Repo-Owner", owner)
+                                .header("X-Repo-Name", repo)
+                                .header("X-Repo-Default-Branch", ref.getDefaultBranch())
+                                .header("X-Repo-Commit-Sha", ref.getHeadSha())
+                                .body(binary ? tree.toBinary() : tree.toJson())))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to fetch repository structure: " + e.getMessage()))
+                ));
+    }
+
+    @GetMapping("/repo/tree")
+    public Mono<ResponseEntity<?>> expandTree(@RequestParam("url") String repoUrl,
+                                              @RequestParam(required = false) String sha,
+                                              @RequestParam(defaultValue = "") String path,
+                                              @RequestParam(defaultValue = "1") int depth) {
+        int boundedDepth = Math.max(0, Math.min(depth, MAX_EXPAND_DEPTH));
+
+        return gitHubService.expandDirectory(repoUrl, sha, path, boundedDepth)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to expand repository tree: " + e.getMessage()))
+                ));
+    }
+
+    @GetMapping("/repo/search")
+    public Mono<ResponseEntity<?>> searchPaths(@RequestParam("url") String repoUrl,
+                                               @RequestParam(required = false) String sha,
+                                               @RequestParam("q") String query,
+                                               @RequestParam(defaultValue = "20") int limit) {
+        if (query.isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Search query is required")));
         }
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
 
-        try {
-            Map<String, Object> repoData = gitHubService.fetchRepoStructure(repoUrl);
-            return ResponseEntity.ok(repoData);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to fetch repository structure: " + e.getMessage()));
+        return gitHubService.searchPaths(repoUrl, sha, query, boundedLimit)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to search repository: " + e.getMessage()))
+                ));
+    }
+
+    @GetMapping("/repo/diff")
+    public Mono<ResponseEntity<?>> diffTrees(@RequestParam("url") String repoUrl,
+                                             @RequestParam String base,
+                                             @RequestParam String head) {
+        if (base.isBlank() || head.isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Both base and head are required")));
         }
+
+        return gitHubService.diffTrees(repoUrl, base.trim(), head.trim())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to diff repository: " + e.getMessage()))
+                ));
+    }
+
+    @GetMapping("/repo/metrics")
+    public Mono<ResponseEntity<?>> getMetrics(@RequestParam("url") String repoUrl,
+                                              @RequestParam(required = false) String sha) {
+        return repoMetricsService.metrics(repoUrl, sha)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))
+                ))
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.internalServerError().body(Map.of("error", "Failed to compute repository metrics: " + e.getMessage()))
+                ));
     }
 
     @GetMapping("/repo/content")
@@ -49,6 +210,74 @@ public class RepoController {
                 ));
     }
 
+    @PostMapping(value = "/repo/content/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> getFileContents(@RequestBody Map<String, Object> request) {
+        Object owner = request.get("owner");
+        Object repo = request.get("repo");
+        Object branch = request.get("branch");
+        Object paths = request.get("paths");
+
+        if (!(owner instanceof String) || !(repo instanceof String) || !(branch instanceof String) || !(paths instanceof List<?> pathList)) {
+            return Mono.just(ResponseEntity.badRequest().body(Flux.just(Map.of("error", "owner, repo, branch and paths are required"))));
+        }
+        if (pathList.size() > gitHubService.getBatchMaxPaths()) {
+            return Mono.just(ResponseEntity.badRequest().body(Flux.just(Map.of("error", "At most " + gitHubService.getBatchMaxPaths() + " paths per batch"))));
+        }
+
+        List<String> filePaths = pathList.stream().map(String::valueOf).toList();
+        return Mono.just(ResponseEntity.ok(gitHubService.fetchFileContents((String) owner, (String) repo, (String) branch, filePaths)));
+    }
+
+    /**
+     * Relays a raw file to the client buffer by buffer. Supports {@code Range} requests, an
+     * optional byte cap ({@code maxBytes}, or the configured preview cap with {@code preview=true})
+     * and refuses binary files after the first chunk unless {@code allowBinary=true}.
+     */
+    @GetMapping("/repo/raw")
+    public Mono<Void> streamFileContent(
+            @RequestParam String owner,
+            @RequestParam String repo,
+            @RequestParam String branch,
+            @RequestParam String path,
+            @RequestParam(required = false) Long maxBytes,
+            @RequestParam(defaultValue = "false") boolean preview,
+            @RequestParam(defaultValue = "false") boolean allowBinary,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            ServerHttpResponse response) {
+
+        long cap = maxBytes != null ? maxBytes : preview ? gitHubService.getPreviewMaxBytes() : -1;
+        // Ask upstream for only the capped prefix so the rest never leaves GitHub
+        String upstreamRange = range != null ? range : cap > 0 ? "bytes=0-" + (cap - 1) : null;
+        boolean synthesized = range == null && upstreamRange != null;
+
+        return gitHubService.openRawContent(owner, repo, branch, path, upstreamRange)
+                .flatMap(upstream -> {
+                    MediaType contentType = upstream.getHeaders().getContentType();
+                    if (!allowBinary && contentType != null && isBinaryType(contentType)) {
+                        return upstream.getBody().take(0).then(writeError(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Binary file"));
+                    }
+
+                    Flux<DataBuffer> body = cap > 0 ? DataBufferUtils.takeUntilByteCount(upstream.getBody(), cap) : upstream.getBody();
+                    if (allowBinary) {
+                        return relay(response, upstream, body, cap > 0, synthesized);
+                    }
+                    return body.switchOnFirst((signal, all) -> {
+                        if (signal.hasValue() && gitHubService.looksBinary(signal.get())) {
+                            return all.take(1).doOnNext(DataBufferUtils::release)
+                                    .then(writeError(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Binary file"));
+                        }
+                        return relay(response, upstream, all, cap > 0, synthesized);
+                    }).then();
+                })
+                .onErrorResume(e -> {
+                    if (response.isCommitted()) {
+                        return Mono.error(e);
+                    }
+                    HttpStatusCode status = e instanceof WebClientResponseException wce ? wce.getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return writeError(response, status, "Failed to fetch file content");
+                });
+    }
+
     @PostMapping("/repo/summarize")
     public Mono<ResponseEntity<Map<String, String>>> summarizeRepo(@RequestBody Map<String, String> request) {
         String repoUrl = request.get("repoUrl");
@@ -62,13 +291,121 @@ public class RepoController {
 
         return gitHubService.summarizeRepo(repoUrl, mode, length, languageLevel)
                 .map(summary -> ResponseEntity.ok(Map.of("summary", summary)))
+                .onErrorResume(LlmUnavailableException.class, AIController::unavailable)
+                .onErrorResume(GitHubBudgetException.class, RepoController::budgetExhausted)
                 .onErrorResume(e -> Mono.just(
                         ResponseEntity.internalServerError().body(Map.of("error", "Failed to summarize repository: " + e.getMessage()))
                 ));
     }
 
+    @PostMapping(value = "/repo/summarize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamSummarizeRepo(@RequestBody Map<String, String> request) {
+        String repoUrl = request.get("repoUrl");
+        String mode = request.getOrDefault("mode", "paragraph");
+        String length = request.getOrDefault("length", "medium");
+        String languageLevel = request.getOrDefault("languageLevel", "standard");
+
+        if (repoUrl == null || repoUrl.isEmpty()) {
+            return ResponseEntity.badRequest().body(AIController.errorEvent("Repository URL is required"));
+        }
+
+        return ResponseEntity.ok(AIController.events(gitHubService.streamSummarizeRepo(repoUrl, mode, length, languageLevel)));
+    }
+
+    @GetMapping("/repo/cache/stats")
+    public ResponseEntity<?> cacheStats() {
+        return ResponseEntity.ok(gitHubService.getCacheStats());
+    }
+
+    @GetMapping("/repo/metrics/stats")
+    public ResponseEntity<?> metricsStats() {
+        return ResponseEntity.ok(repoMetricsService.stats());
+    }
+
+    @GetMapping("/repo/prefetch/stats")
+    public ResponseEntity<?> prefetchStats() {
+        return ResponseEntity.ok(hotRepoPrefetcher.stats());
+    }
+
+    // Precompressed bytes as they are; the head can move, so clients revalidate every time
+    private static Mono<ResponseEntity<?>> repoResponse(RepoResponseCache.Payload payload, String acceptEncoding) {
+        RepoResponseCache.Encoding encoding = payload.negotiate(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(payload.isNotModified() ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        // A partial tree may be completed by the next request, so it is neither stored nor revalidated
+        if (payload.complete()) {
+            response.eTag(payload.etag(encoding)).cacheControl(CacheControl.noCache());
+        } else {
+            response.cacheControl(CacheControl.noStore());
+        }
+        if (payload.isNotModified()) {
+            return Mono.just(response.build());
+        }
+        if (encoding.token() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding.token());
+        }
+        return payload.body(encoding).map(body -> response.contentType(MediaType.APPLICATION_JSON).body(body));
+    }
+
+    // The GitHub budget ran out: tell the client when to come back instead of failing hard
+    private static Mono<ResponseEntity<Map<String, String>>> budgetExhausted(GitHubBudgetException e) {
+        return Mono.just(ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(Map.of("error", e.getMessage())));
+    }
+
+    /**
+     * Copies the upstream status and headers to the client. When the range was only added to
+     * apply the cap ({@code synthesizedRange}), the client asked for the whole file and gets a
+     * plain 200 with the capped body; an empty file, which upstream answers with 416, becomes
+     * an empty 200.
+     */
+    private static Mono<Void> relay(ServerHttpResponse response, ResponseEntity<Flux<DataBuffer>> upstream,
+                                    Flux<DataBuffer> body, boolean capped, boolean synthesizedRange) {
+        HttpHeaders upstreamHeaders = upstream.getHeaders();
+        HttpHeaders headers = response.getHeaders();
+        HttpStatusCode status = upstream.getStatusCode();
+        if (synthesizedRange && status.value() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+            response.setStatusCode(HttpStatus.OK);
+            headers.setContentLength(0);
+            return body.doOnNext(DataBufferUtils::release).then(response.setComplete());
+        }
+        response.setStatusCode(synthesizedRange ? HttpStatus.OK : status);
+        for (String name : RELAYED_HEADERS) {
+            String value = upstreamHeaders.getFirst(name);
+            if (value != null && !(synthesizedRange && name.equals(HttpHeaders.CONTENT_RANGE))) {
+                headers.set(name, value);
+            }
+        }
+        // A full (200) body cut at the cap no longer matches the upstream length
+        boolean truncated = capped && status == HttpStatus.OK;
+        if (!truncated && upstreamHeaders.getContentLength() >= 0) {
+            headers.setContentLength(upstreamHeaders.getContentLength());
+        }
+        return response.writeWith(body);
+    }
+
+    private static Mono<Void> writeError(ServerHttpResponse response, HttpStatusCode status, String message) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] json = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(json)));
+    }
+
+    private static boolean isBinaryType(MediaType type) {
+        String main = type.getType();
+        if ("image".equals(main)) {
+            return !type.getSubtype().contains("svg");
+        }
+        return "audio".equals(main) || "video".equals(main) || "font".equals(main)
+                || MediaType.APPLICATION_OCTET_STREAM.includes(type)
+                || MediaType.APPLICATION_PDF.includes(type)
+                || "zip".equals(type.getSubtype()) || "gzip".equals(type.getSubtype());
+    }
+
+    // Always 200 while the process can answer; the body tells healthy from degraded
     @GetMapping("/health")
-    public ResponseEntity<?> health() {
-        return ResponseEntity.ok(Map.of("status", "healthy"));
+    public Mono<ResponseEntity<?>> health() {
+        return healthService.check().map(ResponseEntity::ok);
     }
 }
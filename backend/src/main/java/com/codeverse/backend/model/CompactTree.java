@@ -0,0 +1,402 @@
+package com.codeverse.backend.model;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical, array-backed view of a repository tree, built once per commit.
+ * <p>
+ * Node 0 is the repository root. Every node is described by parallel arrays: the index of
+ * its name in the interned segment table, its parent, its type, blob size and object id.
+ * Children are stored CSR-style: the children of node {@code i} are
+ * {@code childIndex[childOffset[i] .. childOffset[i + 1])}. Directories carry precomputed
+ * aggregates over their whole subtree (file count, directory count, total blob size) and
+ * every node knows its depth, so nothing has to be recomputed by clients.
+ * <p>
+ * Two encodings are produced lazily and memoized:
+ * <ul>
+ *   <li>nested JSON, where a directory is {@code {"n":name,"f":files,"d":dirs,"s":bytes,"c":[...]}}
+ *   and a file is {@code {"n":name,"s":bytes}} (depth is implied by nesting);</li>
+ *   <li>a binary columnar format, see {@link #toBinary()}.</li>
+ * </ul>
+ * A cache holding the tree can register {@link #onMemoized} to be told how many bytes each
+ * encoding adds once it is kept.
+ */
+public class CompactTree {
+
+    public static final byte FILE = 0;
+    public static final byte DIR = 1;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BINARY_MAGIC = 0x43565431; // "CVT1"
+
+    private final String[] segments;
+    private final int[] nameIndex;
+    private final int[] parent;
+    private final byte[] type;
+    private final long[] size;
+    private final String[] sha;
+    private final int[] depth;
+    private final int[] childOffset;
+    private final int[] childIndex;
+    private final int[] fileCount;
+    private final int[] dirCount;
+    private final long[] totalSize;
+
+    private volatile byte[] json;
+    private volatile byte[] binary;
+    private volatile LongConsumer memoized;
+
+    private CompactTree(String[] segments, int[] nameIndex, int[] parent, byte[] type, long[] size, String[] sha, int[] depth,
+                        int[] childOffset, int[] childIndex, int[] fileCount, int[] dirCount, long[] totalSize) {
+        this.segments = segments;
+        this.nameIndex = nameIndex;
+        this.parent = parent;
+        this.type = type;
+        this.size = size;
+        this.sha = sha;
+        this.depth = depth;
+        this.childOffset = childOffset;
+        this.childIndex = childIndex;
+        this.fileCount = fileCount;
+        this.dirCount = dirCount;
+        this.totalSize = totalSize;
+    }
+
+    public static CompactTree build(String rootName, List<TreeEntry> entries) {
+        int capacity = entries.size() + 1;
+        Map<String, Integer> segmentIds = new HashMap<>();
+        List<String> segmentList = new ArrayList<>();
+        Map<String, Integer> nodeByPath = new HashMap<>(capacity * 2);
+
+        int[] nameIndex = new int[capacity];
+        int[] parent = new int[capacity];
+        byte[] type = new byte[capacity];
+        long[] size = new long[capacity];
+        String[] sha = new String[capacity];
+        int[] depth = new int[capacity];
+
+        segmentIds.put(rootName, 0);
+        segmentList.add(rootName);
+        parent[0] = -1;
+        type[0] = DIR;
+        nodeByPath.put("", 0);
+        int count = 1;
+
+        for (TreeEntry entry : entries) {
+            String path = entry.getPath();
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            Integer seen = nodeByPath.get(path);
+            if (seen != null) {
+                // A directory implied by an earlier, deeper path gets its object id now
+                if (sha[seen] == null && type[seen] == DIR && entry.isDirectory()) {
+                    sha[seen] = entry.getSha();
+                }
+                continue;
+            }
+
+            // Make sure every ancestor exists; entries may arrive in any order
+            int current = 0;
+            int start = 0;
+            while (true) {
+                int slash = path.indexOf('/', start);
+                boolean last = slash < 0;
+                String prefix = last ? path : path.substring(0, slash);
+                Integer existing = nodeByPath.get(prefix);
+                if (existing == null) {
+                    if (count == nameIndex.length) {
+                        int grown = nameIndex.length * 2;
+                        nameIndex = Arrays.copyOf(nameIndex, grown);
+                        parent = Arrays.copyOf(parent, grown);
+                        type = Arrays.copyOf(type, grown);
+                        size = Arrays.copyOf(size, grown);
+                        sha = Arrays.copyOf(sha, grown);
+                        depth = Arrays.copyOf(depth, grown);
+                    }
+                    String segment = last ? path.substring(start) : path.substring(start, slash);
+                    Integer id = segmentIds.get(segment);
+                    if (id == null) {
+                        id = segmentList.size();
+                        segmentIds.put(segment, id);
+                        segmentList.add(segment);
+                    }
+                    int node = count++;
+                    nameIndex[node] = id;
+                    parent[node] = current;
+                    depth[node] = depth[current] + 1;
+                    type[node] = last && !entry.isDirectory() ? FILE : DIR;
+                    size[node] = last && entry.getSize() != null ? entry.getSize() : 0;
+                    sha[node] = last ? entry.getSha() : null;
+                    nodeByPath.put(prefix, node);
+                    existing = node;
+                }
+                current = existing;
+                if (last) {
+                    break;
+                }
+                start = slash + 1;
+            }
+        }
+
+        // CSR child layout; children are always created after their parent
+        int[] childOffset = new int[count + 1];
+        for (int i = 1; i < count; i++) {
+            childOffset[parent[i] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            childOffset[i + 1] += childOffset[i];
+        }
+        int[] childIndex = new int[Math.max(count - 1, 0)];
+        int[] cursor = Arrays.copyOf(childOffset, count);
+        for (int i = 1; i < count; i++) {
+            childIndex[cursor[parent[i]]++] = i;
+        }
+
+        int[] fileCount = new int[count];
+        int[] dirCount = new int[count];
+        long[] totalSize = new long[count];
+        for (int i = count - 1; i >= 0; i--) {
+            if (type[i] == FILE) {
+                fileCount[i] = 1;
+                totalSize[i] = size[i];
+            }
+            if (i > 0) {
+                int p = parent[i];
+                fileCount[p] += fileCount[i];
+                dirCount[p] += dirCount[i] + (type[i] == DIR ? 1 : 0);
+                totalSize[p] += totalSize[i];
+            }
+        }
+
+        return new CompactTree(segmentList.toArray(new String[0]),
+                Arrays.copyOf(nameIndex, count), Arrays.copyOf(parent, count), Arrays.copyOf(type, count),
+                Arrays.copyOf(size, count), Arrays.copyOf(sha, count), Arrays.copyOf(depth, count),
+                childOffset, childIndex, fileCount, dirCount, totalSize);
+    }
+
+    public int nodeCount() {
+        return parent.length;
+    }
+
+    public String name(int node) {
+        return segments[nameIndex[node]];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    public boolean isDirectory(int node) {
+        return type[node] == DIR;
+    }
+
+    public long size(int node) {
+        return size[node];
+    }
+
+    /**
+     * Git object id of the node, or null for the root and for directories that were only
+     * implied by deeper paths.
+     */
+    public String sha(int node) {
+        return sha[node];
+    }
+
+    public int depth(int node) {
+        return depth[node];
+    }
+
+    public int childCount(int node) {
+        return childOffset[node + 1] - childOffset[node];
+    }
+
+    public int child(int node, int i) {
+        return childIndex[childOffset[node] + i];
+    }
+
+    public int fileCount(int node) {
+        return fileCount[node];
+    }
+
+    public int dirCount(int node) {
+        return dirCount[node];
+    }
+
+    public long totalSize(int node) {
+        return totalSize[node];
+    }
+
+    /**
+     * Returns the node at {@code path} (relative to the root, {@code ""} for the root itself)
+     * or {@code -1} if no such node exists.
+     */
+    public int find(String path) {
+        int node = 0;
+        int start = 0;
+        while (start < path.length()) {
+            int slash = path.indexOf('/', start);
+            int end = slash < 0 ? path.length() : slash;
+            if (end > start) {
+                int match = -1;
+                for (int i = childOffset[node]; i < childOffset[node + 1]; i++) {
+                    String name = segments[nameIndex[childIndex[i]]];
+                    if (name.length() == end - start && path.startsWith(name, start)) {
+                        match = childIndex[i];
+                        break;
+                    }
+                }
+                if (match < 0) {
+                    return -1;
+                }
+                node = match;
+            }
+            start = end + 1;
+        }
+        return node;
+    }
+
+    public String path(int node) {
+        if (node <= 0) {
+            return "";
+        }
+        String parentPath = path(parent[node]);
+        return parentPath.isEmpty() ? name(node) : parentPath + "/" + name(node);
+    }
+
+    /**
+     * Rough retained heap of this tree, used for cache accounting: the columns, the segment
+     * table, the object id strings and whichever encodings have been memoized so far.
+     */
+    public long estimateBytes() {
+        long bytes = (long) parent.length * (4 + 4 + 1 + 8 + 8 + 4 + 4 + 4 + 4 + 4 + 8);
+        for (String segment : segments) {
+            bytes += 40 + 2L * segment.length();
+        }
+        for (String objectId : sha) {
+            if (objectId != null) {
+                // 40 Latin-1 chars plus String and array headers
+                bytes += 80;
+            }
+        }
+        byte[] encoded = json;
+        if (encoded != null) {
+            bytes += 16 + encoded.length;
+        }
+        encoded = binary;
+        if (encoded != null) {
+            bytes += 16 + encoded.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Registers a callback receiving the size of each encoding when it is first memoized.
+     */
+    public void onMemoized(LongConsumer listener) {
+        this.memoized = listener;
+    }
+
+    public byte[] toJson() {
+        byte[] result = json;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            result = json;
+            if (result != null) {
+                return result;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(parent.length * 24);
+            try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                writeNode(gen, 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result = out.toByteArray();
+            json = result;
+        }
+        notifyMemoized(result);
+        return result;
+    }
+
+    /**
+     * Binary columnar encoding (big-endian): magic {@code CVT1}, segment count, node count,
+     * the segment table as length-prefixed UTF-8, then one column per attribute in node order:
+     * name index, parent, type, size, depth, file count, dir count, total size. Children are
+     * recovered from the parent column.
+     */
+    public byte[] toBinary() {
+        byte[] result = binary;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            result = binary;
+            if (result != null) {
+                return result;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(parent.length * 40);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                int n = parent.length;
+                out.writeInt(BINARY_MAGIC);
+                out.writeInt(segments.length);
+                out.writeInt(n);
+                for (String segment : segments) {
+                    byte[] utf8 = segment.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(utf8.length);
+                    out.write(utf8);
+                }
+                for (int i = 0; i < n; i++) out.writeInt(nameIndex[i]);
+                for (int i = 0; i < n; i++) out.writeInt(parent[i]);
+                out.write(type);
+                for (int i = 0; i < n; i++) out.writeLong(size[i]);
+                for (int i = 0; i < n; i++) out.writeShort(depth[i]);
+                for (int i = 0; i < n; i++) out.writeInt(fileCount[i]);
+                for (int i = 0; i < n; i++) out.writeInt(dirCount[i]);
+                for (int i = 0; i < n; i++) out.writeLong(totalSize[i]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result = bytes.toByteArray();
+            binary = result;
+        }
+        notifyMemoized(result);
+        return result;
+    }
+
+    private void notifyMemoized(byte[] encoded) {
+        LongConsumer listener = memoized;
+        if (listener != null) {
+            listener.accept(16 + encoded.length);
+        }
+    }
+
+    private void writeNode(JsonGenerator gen, int node) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("n", name(node));
+        if (type[node] == DIR) {
+            gen.writeNumberField("f", fileCount[node]);
+            gen.writeNumberField("d", dirCount[node]);
+            gen.writeNumberField("s", totalSize[node]);
+            gen.writeArrayFieldStart("c");
+            for (int i = childOffset[node]; i < childOffset[node + 1]; i++) {
+                writeNode(gen, childIndex[i]);
+            }
+            gen.writeEndArray();
+        } else {
+            gen.writeNumberField("s", size[node]);
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,554 @@
+package com.codeverse.backend.model;
+
+import java.util.*;
+
+/**
+ * Case-insensitive path search over one {@link CompactTree}, built once per commit.
+ * <p>
+ * Every node except the root is a document. Two structures are kept: document ids ordered
+ * by lower-cased basename, so all basenames starting with a term form one contiguous range
+ * found by binary search, and a trigram index over the whole lower-cased path (an
+ * open-addressing table whose postings are stored CSR-style in one {@code int[]}, sorted by
+ * document).
+ * <p>
+ * Matches are ranked by tier: exact basename (or basename without extension), basename
+ * prefix, basename substring at a word boundary, other basename substring, directory
+ * substring at a segment boundary, any other substring; within a tier shallower and then
+ * shorter paths win. Because tiers strictly dominate, a single-term query first takes the
+ * basename-prefix range and only looks at trigram candidates when that range does not fill
+ * {@code limit}. A query with several whitespace-separated terms needs every term to match
+ * and adds up their tiers. When substring matching still comes up short, single-term queries
+ * fall back to trigram overlap, which tolerates a one-character typo.
+ */
+public class PathIndex {
+
+    public record Match(int node, String path, int score) {
+    }
+
+    private static final long EMPTY = -1L;
+
+    private static final int EXACT = 6;
+    private static final int BASENAME_PREFIX = 5;
+    private static final int BASENAME_WORD = 4;
+    private static final int BASENAME_SUBSTRING = 3;
+    private static final int SEGMENT = 2;
+    private static final int SUBSTRING = 1;
+
+    // Fuzzy matches rank below every substring match; their score is the trigram overlap
+    private static final int FUZZY_MAX_TRIGRAMS = 48;
+    private static final int SUBSTRING_BASE = FUZZY_MAX_TRIGRAMS + 1;
+
+    private static final int FUZZY_MIN_COMMON_POSTINGS = 1024;
+    private static final int VERIFY_DIRECTLY = 256;
+
+    private final CompactTree tree;
+    private final String[] lowerPaths;
+    private final int[] basenameStart;
+    private final int[] byBasename;
+    // Packed tie-breakers per document: inverted depth, then inverted path length
+    private final int[] rank;
+
+    private final long[] trigramKeys;
+    private final int[] postingOffset;
+    private final int[] postings;
+
+    private PathIndex(CompactTree tree, String[] lowerPaths, int[] basenameStart, int[] byBasename, int[] rank,
+                      long[] trigramKeys, int[] postingOffset, int[] postings) {
+        this.tree = tree;
+        this.lowerPaths = lowerPaths;
+        this.basenameStart = basenameStart;
+        this.byBasename = byBasename;
+        this.rank = rank;
+        this.trigramKeys = trigramKeys;
+        this.postingOffset = postingOffset;
+        this.postings = postings;
+    }
+
+    public static PathIndex build(CompactTree tree) {
+        // Document d is node d + 1; parents precede children, so paths take one pass
+        int docs = tree.nodeCount() - 1;
+        String[] paths = new String[tree.nodeCount()];
+        String[] lowerPaths = new String[docs];
+        int[] basenameStart = new int[docs];
+        int[] rank = new int[docs];
+        paths[0] = "";
+        for (int node = 1; node < tree.nodeCount(); node++) {
+            String parentPath = paths[tree.parent(node)];
+            paths[node] = parentPath.isEmpty() ? tree.name(node) : parentPath + "/" + tree.name(node);
+            lowerPaths[node - 1] = paths[node].toLowerCase(Locale.ROOT);
+            basenameStart[node - 1] = lowerPaths[node - 1].lastIndexOf('/') + 1;
+            rank[node - 1] = (0xFF - Math.min(tree.depth(node), 0xFF)) << 16 | (0xFFFF - Math.min(paths[node].length(), 0xFFFF));
+        }
+
+        Trigrams trigrams = new Trigrams(Math.max(1024, Integer.highestOneBit(Math.max(1, docs)) * 2));
+        for (int doc = 0; doc < docs; doc++) {
+            String path = lowerPaths[doc];
+            for (int i = 0; i + 3 <= path.length(); i++) {
+                trigrams.count(trigram(path, i), doc);
+            }
+        }
+
+        // Lay postings out contiguously; documents are added in order so every list is sorted
+        long[] keys = trigrams.keys;
+        int[] offsets = new int[keys.length + 1];
+        for (int slot = 0; slot < keys.length; slot++) {
+            offsets[slot + 1] = offsets[slot] + trigrams.counts[slot];
+        }
+        int[] postings = new int[offsets[keys.length]];
+        int[] fill = Arrays.copyOf(offsets, keys.length);
+        int[] lastDoc = trigrams.lastDoc;
+        Arrays.fill(lastDoc, -1);
+        for (int doc = 0; doc < docs; doc++) {
+            String path = lowerPaths[doc];
+            for (int i = 0; i + 3 <= path.length(); i++) {
+                int slot = slot(keys, trigram(path, i));
+                if (lastDoc[slot] != doc) {
+                    lastDoc[slot] = doc;
+                    postings[fill[slot]++] = doc;
+                }
+            }
+        }
+
+        String[] basenames = new String[docs];
+        Integer[] order = new Integer[docs];
+        for (int doc = 0; doc < docs; doc++) {
+            basenames[doc] = lowerPaths[doc].substring(basenameStart[doc]);
+            order[doc] = doc;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer doc) -> basenames[doc]));
+        int[] byBasename = new int[docs];
+        for (int i = 0; i < docs; i++) {
+            byBasename[i] = order[i];
+        }
+
+        return new PathIndex(tree, lowerPaths, basenameStart, byBasename, rank, keys, offsets, postings);
+    }
+
+    public int size() {
+        return lowerPaths.length;
+    }
+
+    public CompactTree tree() {
+        return tree;
+    }
+
+    /**
+     * Returns up to {@code limit} best matches for {@code query}, best first.
+     */
+    public List<Match> search(String query, int limit) {
+        String[] terms = query.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        if (limit <= 0 || terms[0].isEmpty()) {
+            return List.of();
+        }
+        TopK top = new TopK(limit);
+
+        if (terms.length == 1) {
+            // Basenames equal to the term, or to the term plus an extension, are sub-ranges
+            String term = terms[0];
+            int from = lowerBound(term);
+            int to = upperBound(term, from);
+            int equalTo = from;
+            while (equalTo < to && lowerPaths[byBasename[equalTo]].length() - basenameStart[byBasename[equalTo]] == term.length()) {
+                equalTo++;
+            }
+            int extensionFrom = lowerBound(term + ".");
+            int extensionTo = upperBound(term + ".", extensionFrom);
+            for (int i = from; i < to; i++) {
+                boolean exact = i < equalTo || (i >= extensionFrom && i < extensionTo);
+                offer(top, byBasename[i], SUBSTRING_BASE + (exact ? EXACT : BASENAME_PREFIX));
+            }
+            if (top.isFull() || term.length() < 3) {
+                return top.matches();
+            }
+        }
+
+        int[] candidates = candidates(terms);
+        if (candidates != null) {
+            for (int doc : candidates) {
+                int score = score(doc, terms);
+                // Single-term basename prefixes were all taken from the sorted range already
+                if (score > 0 && (terms.length > 1 || score < BASENAME_PREFIX)) {
+                    offer(top, doc, SUBSTRING_BASE + score);
+                }
+            }
+        } else {
+            // Only one- and two-character terms: use basename prefixes of the longest one
+            String longest = Arrays.stream(terms).max(Comparator.comparingInt(String::length)).orElseThrow();
+            int from = lowerBound(longest);
+            int to = upperBound(longest, from);
+            for (int i = from; i < to; i++) {
+                int score = score(byBasename[i], terms);
+                if (score > 0) {
+                    offer(top, byBasename[i], SUBSTRING_BASE + score);
+                }
+            }
+        }
+
+        if (!top.isFull() && terms.length == 1 && terms[0].length() >= 4) {
+            fuzzy(terms[0], top);
+        }
+        return top.matches();
+    }
+
+    /**
+     * Rough retained heap of this index, used for cache accounting.
+     */
+    public long estimateBytes() {
+        long bytes = (long) lowerPaths.length * (4 + 4 + 4 + 8) + (long) trigramKeys.length * (8 + 4) + 4L * postings.length;
+        for (String path : lowerPaths) {
+            bytes += 40 + 2L * path.length();
+        }
+        return bytes;
+    }
+
+    // Sum of the terms' tiers, or 0 unless every term matches
+    private int score(int doc, String[] terms) {
+        int score = 0;
+        for (String term : terms) {
+            int tier = tier(doc, term);
+            if (tier == 0) {
+                return 0;
+            }
+            score += tier;
+        }
+        return score;
+    }
+
+    private int tier(int doc, String term) {
+        String path = lowerPaths[doc];
+        int base = basenameStart[doc];
+        int index = path.indexOf(term, base);
+        if (index == base) {
+            int end = base + term.length();
+            return end == path.length() || path.charAt(end) == '.' ? EXACT : BASENAME_PREFIX;
+        }
+        if (index > base) {
+            return isBoundary(path, index) ? BASENAME_WORD : BASENAME_SUBSTRING;
+        }
+        index = path.indexOf(term);
+        if (index < 0) {
+            return 0;
+        }
+        return isBoundary(path, index) ? SEGMENT : SUBSTRING;
+    }
+
+    /**
+     * Sorted documents containing the terms' trigrams, or null if no term has one. Every
+     * candidate is verified with a substring check anyway, so intersection stops once the
+     * set is small enough that checking it is cheaper than narrowing it further.
+     */
+    private int[] candidates(String[] terms) {
+        List<Integer> slots = new ArrayList<>();
+        for (String term : terms) {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                int slot = slot(trigramKeys, trigram(term, i));
+                if (trigramKeys[slot] == EMPTY) {
+                    return new int[0];
+                }
+                if (!slots.contains(slot)) {
+                    slots.add(slot);
+                }
+            }
+        }
+        if (slots.isEmpty()) {
+            return null;
+        }
+        // Rarest trigram first keeps every intersection small
+        slots.sort(Comparator.comparingInt(slot -> postingOffset[slot + 1] - postingOffset[slot]));
+        int first = slots.get(0);
+        int[] result = Arrays.copyOfRange(postings, postingOffset[first], postingOffset[first + 1]);
+        for (int i = 1; i < slots.size() && result.length > VERIFY_DIRECTLY; i++) {
+            result = intersect(result, postings, postingOffset[slots.get(i)], postingOffset[slots.get(i) + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Documents sharing all but three of the term's trigrams, for typos that break substring
+     * matching: one inserted, deleted or replaced character changes at most three trigrams.
+     * Only selective trigrams are counted through their postings; the overlap of the few
+     * documents that can still qualify is completed by checking their paths directly. When
+     * the term has too few selective trigrams to bound the work, there is no fallback.
+     */
+    private void fuzzy(String term, TopK top) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= term.length() && distinct.size() < FUZZY_MAX_TRIGRAMS; i++) {
+            distinct.add(term.substring(i, i + 3));
+        }
+        int required = Math.max(2, distinct.size() - 3);
+        int maxPostings = Math.max(FUZZY_MIN_COMMON_POSTINGS, lowerPaths.length / 16);
+        List<Integer> selective = new ArrayList<>();
+        List<String> common = new ArrayList<>();
+        for (String gram : distinct) {
+            int slot = slot(trigramKeys, trigram(gram, 0));
+            if (trigramKeys[slot] == EMPTY) {
+                continue;
+            }
+            if (postingOffset[slot + 1] - postingOffset[slot] <= maxPostings) {
+                selective.add(slot);
+            } else {
+                common.add(gram);
+            }
+        }
+        int threshold = required - common.size();
+        if (threshold <= 0) {
+            return;
+        }
+
+        byte[] overlap = new byte[lowerPaths.length];
+        int[] qualified = new int[64];
+        int qualifiedCount = 0;
+        for (int slot : selective) {
+            for (int p = postingOffset[slot]; p < postingOffset[slot + 1]; p++) {
+                int doc = postings[p];
+                if (++overlap[doc] == threshold) {
+                    if (qualifiedCount == qualified.length) {
+                        qualified = Arrays.copyOf(qualified, qualifiedCount * 2);
+                    }
+                    qualified[qualifiedCount++] = doc;
+                }
+            }
+        }
+        for (int i = 0; i < qualifiedCount; i++) {
+            int doc = qualified[i];
+            String path = lowerPaths[doc];
+            // Substring matches were already offered
+            if (path.contains(term)) {
+                continue;
+            }
+            int shared = overlap[doc];
+            for (String gram : common) {
+                if (path.contains(gram)) {
+                    shared++;
+                }
+            }
+            if (shared >= required) {
+                offer(top, doc, shared);
+            }
+        }
+    }
+
+    private void offer(TopK top, int doc, int score) {
+        top.offer(((long) score << 48) | ((long) rank[doc] << 24) | (0xFFFFFF - doc));
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = byBasename.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareBasename(byBasename[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // End of the run of basenames that start with prefix
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = byBasename.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int doc = byBasename[mid];
+            if (lowerPaths[doc].startsWith(prefix, basenameStart[doc])) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareBasename(int doc, String other) {
+        String path = lowerPaths[doc];
+        int base = basenameStart[doc];
+        int length = Math.min(path.length() - base, other.length());
+        for (int i = 0; i < length; i++) {
+            int diff = path.charAt(base + i) - other.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (path.length() - base) - other.length();
+    }
+
+    private static boolean isBoundary(String path, int index) {
+        if (index == 0) {
+            return true;
+        }
+        char before = path.charAt(index - 1);
+        return before == '/' || before == '_' || before == '-' || before == '.' || before == ' ';
+    }
+
+    // Intersection of a with the sorted range b[from, to); gallops through b when it is much longer
+    private static int[] intersect(int[] a, int[] b, int from, int to) {
+        int[] out = new int[Math.min(a.length, to - from)];
+        int n = 0;
+        int i = 0;
+        int j = from;
+        if (to - from < a.length * 16L) {
+            while (i < a.length && j < to) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        for (; i < a.length && j < to; i++) {
+            int target = a[i];
+            int step = 1;
+            while (j + step < to && b[j + step] < target) {
+                j += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(b, j, Math.min(j + step + 1, to), target);
+            if (found >= 0) {
+                out[n++] = target;
+                j = found + 1;
+            } else {
+                j = -found - 1;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Bounded min-heap of packed ranking keys: score, then inverted depth, inverted path
+     * length and inverted document id, so a larger key is always a better match.
+     */
+    private final class TopK {
+
+        private final long[] heap;
+        private int size;
+
+        TopK(int limit) {
+            this.heap = new long[limit];
+        }
+
+        boolean isFull() {
+            return size == heap.length;
+        }
+
+        void offer(long key) {
+            if (size < heap.length) {
+                int i = size++;
+                heap[i] = key;
+                while (i > 0 && heap[(i - 1) / 2] > heap[i]) {
+                    swap(i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                int i = 0;
+                while (true) {
+                    int smallest = i;
+                    int left = 2 * i + 1;
+                    if (left < size && heap[left] < heap[smallest]) {
+                        smallest = left;
+                    }
+                    if (left + 1 < size && heap[left + 1] < heap[smallest]) {
+                        smallest = left + 1;
+                    }
+                    if (smallest == i) {
+                        break;
+                    }
+                    swap(i, smallest);
+                    i = smallest;
+                }
+            }
+        }
+
+        List<Match> matches() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            List<Match> result = new ArrayList<>(size);
+            for (int i = keys.length - 1; i >= 0; i--) {
+                int doc = 0xFFFFFF - (int) (keys[i] & 0xFFFFFF);
+                result.add(new Match(doc + 1, tree.path(doc + 1), (int) (keys[i] >>> 48)));
+            }
+            return result;
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Build-time trigram table: per trigram, the number of documents containing it and the
+     * last document counted, so repeats within one path are counted once.
+     */
+    private static final class Trigrams {
+
+        long[] keys;
+        int[] counts;
+        int[] lastDoc;
+        private int distinct;
+
+        Trigrams(int capacity) {
+            allocate(capacity);
+        }
+
+        void count(long key, int doc) {
+            int slot = slot(keys, key);
+            if (keys[slot] == EMPTY) {
+                if ((distinct + 1) * 2 > keys.length) {
+                    grow();
+                    slot = slot(keys, key);
+                }
+                keys[slot] = key;
+                distinct++;
+            }
+            if (lastDoc[slot] != doc) {
+                lastDoc[slot] = doc;
+                counts[slot]++;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int[] oldLastDoc = lastDoc;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                    lastDoc[slot] = oldLastDoc[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            counts = new int[capacity];
+            lastDoc = new int[capacity];
+            Arrays.fill(lastDoc, -1);
+        }
+    }
+}
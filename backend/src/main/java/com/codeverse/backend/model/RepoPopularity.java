@@ -0,0 +1,98 @@
+package com.codeverse.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Request counter for one repository in one hour or one day. Counters are incremented in
+ * place by the history writer, so popularity queries only read a few small documents per
+ * repository instead of the raw request events.
+ */
+@Document(collection = "repo_popularity")
+public class RepoPopularity {
+
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+
+    @Id
+    private String id;
+    private String owner;
+    private String repoName;
+    // The URL of the latest request; owner/repo alone cannot locate a local repository
+    private String repoUrl;
+    private String granularity;
+    private LocalDateTime bucket;
+    private long count;
+    private LocalDateTime expireAt;
+
+    public static String key(String granularity, LocalDateTime bucket, String owner, String repoName) {
+        return granularity + "|" + bucket + "|" + (owner + "/" + repoName).toLowerCase();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getRepoName() {
+        return repoName;
+    }
+
+    public void setRepoName(String repoName) {
+        this.repoName = repoName;
+    }
+
+    public String getRepoUrl() {
+        return repoUrl;
+    }
+
+    public void setRepoUrl(String repoUrl) {
+        this.repoUrl = repoUrl;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(LocalDateTime bucket) {
+        this.bucket = bucket;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public LocalDateTime getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(LocalDateTime expireAt) {
+        this.expireAt = expireAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.codeverse.backend.model;
+
+/**
+ * Last known default branch and head commit of a repository, together with the
+ * ETags GitHub returned for them so they can be revalidated with If-None-Match.
+ */
+public class RepoRef {
+
+    private final String defaultBranch;
+    private final String repoEtag;
+    private final String headSha;
+    private final String headEtag;
+
+    public RepoRef(String defaultBranch, String repoEtag, String headSha, String headEtag) {
+        this.defaultBranch = defaultBranch;
+        this.repoEtag = repoEtag;
+        this.headSha = headSha;
+        this.headEtag = headEtag;
+    }
+
+    public String getDefaultBranch() {
+        return defaultBranch;
+    }
+
+    public String getRepoEtag() {
+        return repoEtag;
+    }
+
+    public String getHeadSha() {
+        return headSha;
+    }
+
+    public String getHeadEtag() {
+        return headEtag;
+    }
+}
@@ -0,0 +1,113 @@
+package com.codeverse.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Document(collection = "repo_trees")
+public class RepoTree {
+
+    @Id
+    private String id;
+    private String owner;
+    private String repoName;
+    private String sha;
+    private boolean truncated;
+    private List<TreeEntry> entries;
+    private long sizeBytes;
+    private LocalDateTime fetchedTime;
+
+    @Transient
+    private volatile CompactTree compactTree;
+
+    @Transient
+    private volatile PathIndex pathIndex;
+
+    public static String key(String owner, String repoName, String sha) {
+        return owner.toLowerCase() + "/" + repoName.toLowerCase() + "/" + sha;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getRepoName() {
+        return repoName;
+    }
+
+    public void setRepoName(String repoName) {
+        this.repoName = repoName;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public void setSha(String sha) {
+        this.sha = sha;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public List<TreeEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<TreeEntry> entries) {
+        this.entries = entries;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public LocalDateTime getFetchedTime() {
+        return fetchedTime;
+    }
+
+    public void setFetchedTime(LocalDateTime fetchedTime) {
+        this.fetchedTime = fetchedTime;
+    }
+
+    public CompactTree getCompactTree() {
+        return compactTree;
+    }
+
+    public void setCompactTree(CompactTree compactTree) {
+        this.compactTree = compactTree;
+    }
+
+    public PathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+    public void setPathIndex(PathIndex pathIndex) {
+        this.pathIndex = pathIndex;
+    }
+}
@@ -0,0 +1,62 @@
+package com.codeverse.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class TreeEntry {
+
+    private String path;
+    private String type;
+    private String sha;
+    private Long size;
+
+    public TreeEntry() {
+    }
+
+    public TreeEntry(String path, String type, String sha, Long size) {
+        this.path = path;
+        this.type = type;
+        this.sha = sha;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    // sha and size are kept server-side; the structure payload only carries path and type
+    @JsonIgnore
+    public String getSha() {
+        return sha;
+    }
+
+    public void setSha(String sha) {
+        this.sha = sha;
+    }
+
+    @JsonIgnore
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    @JsonIgnore
+    public boolean isDirectory() {
+        return "dir".equals(type);
+    }
+}
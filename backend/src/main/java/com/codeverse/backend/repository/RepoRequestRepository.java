@@ -1,9 +1,9 @@
 package com.codeverse.backend.repository;
 
 import com.codeverse.backend.model.RepoRequest;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface RepoRequestRepository extends MongoRepository<RepoRequest, String> {
+public interface RepoRequestRepository extends ReactiveMongoRepository<RepoRequest, String> {
 }
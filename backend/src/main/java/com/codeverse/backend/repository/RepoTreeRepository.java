@@ -0,0 +1,9 @@
+package com.codeverse.backend.repository;
+
+import com.codeverse.backend.model.RepoTree;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RepoTreeRepository extends ReactiveMongoRepository<RepoTree, String> {
+}
@@ -0,0 +1,209 @@
+package com.codeverse.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.*;
+
+/**
+ * Combines per-chunk model answers into the single JSON document the whole-file prompts
+ * produce, so callers cannot tell a chunked analysis from a direct one.
+ * <p>
+ * Chunk prompts number lines from 1 at the start of the excerpt. Each reported line is
+ * shifted back to the file's numbering and, when the item quotes a code snippet, snapped to
+ * the nearest line of the chunk that actually contains it, since models are much better at
+ * quoting code than at counting lines.
+ */
+public class AnalysisMerger {
+
+    private static final List<String> COMPLEXITY = List.of("low", "medium", "high");
+
+    private final ObjectMapper objectMapper;
+
+    public AnalysisMerger(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String mergeAnalyses(List<SourceChunker.Chunk> chunks, List<String> answers) {
+        ObjectNode merged = objectMapper.createObjectNode();
+        StringBuilder overview = new StringBuilder();
+        StringBuilder keyLogic = new StringBuilder();
+        StringBuilder codeFlow = new StringBuilder();
+        List<ObjectNode> comments = new ArrayList<>();
+        Set<String> bestPractices = new LinkedHashSet<>();
+        Set<String> improvements = new LinkedHashSet<>();
+        int complexity = -1;
+        String firstError = null;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            SourceChunker.Chunk chunk = chunks.get(i);
+            JsonNode answer = parse(answers.get(i));
+            if (answer == null || !answer.isObject() || answer.has("error")) {
+                if (firstError == null) {
+                    firstError = answers.get(i);
+                }
+                continue;
+            }
+
+            String range = "Lines " + chunk.startLine() + "-" + chunk.endLine() + ": ";
+            JsonNode explanation = answer.path("explanation");
+            appendSection(overview, range, explanation.path("overview"));
+            appendSection(keyLogic, range, explanation.path("key_logic"));
+            appendSection(codeFlow, range, explanation.path("code_flow"));
+
+            for (JsonNode comment : answer.path("comments")) {
+                if (comment.isObject()) {
+                    ObjectNode copy = ((ObjectNode) comment).deepCopy();
+                    copy.put("line", remapLine(chunk, comment));
+                    comments.add(copy);
+                }
+            }
+
+            JsonNode insights = answer.path("insights");
+            insights.path("best_practices").forEach(item -> bestPractices.add(item.asText()));
+            insights.path("possible_improvements").forEach(item -> improvements.add(item.asText()));
+            complexity = Math.max(complexity, COMPLEXITY.indexOf(insights.path("complexity").asText("").trim().toLowerCase()));
+        }
+
+        if (overview.isEmpty() && comments.isEmpty() && firstError != null) {
+            return firstError;
+        }
+
+        ObjectNode explanation = merged.putObject("explanation");
+        explanation.put("overview", overview.toString());
+        explanation.put("key_logic", keyLogic.toString());
+        explanation.put("code_flow", codeFlow.toString());
+
+        comments.sort(Comparator.comparingInt(comment -> comment.path("line").asInt()));
+        merged.putArray("comments").addAll(comments);
+
+        ObjectNode insights = merged.putObject("insights");
+        bestPractices.forEach(insights.putArray("best_practices")::add);
+        improvements.forEach(insights.putArray("possible_improvements")::add);
+        insights.put("complexity", complexity < 0 ? "Unknown" : capitalize(COMPLEXITY.get(complexity)));
+
+        return merged.toString();
+    }
+
+    public String mergeBugs(List<SourceChunker.Chunk> chunks, List<String> answers) {
+        List<ObjectNode> bugs = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        boolean anyParsed = false;
+        String firstError = null;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            SourceChunker.Chunk chunk = chunks.get(i);
+            JsonNode answer = parse(answers.get(i));
+            if (answer == null || !answer.isArray()) {
+                if (firstError == null) {
+                    firstError = answers.get(i);
+                }
+                continue;
+            }
+            anyParsed = true;
+            for (JsonNode bug : answer) {
+                if (!bug.isObject()) {
+                    continue;
+                }
+                ObjectNode copy = ((ObjectNode) bug).deepCopy();
+                int line = remapLine(chunk, bug);
+                copy.put("line", line);
+                // The same bug reported twice, possibly with the category spelled differently
+                if (seen.add(line + "|" + bug.path("type").asText().trim().toLowerCase(Locale.ROOT))) {
+                    bugs.add(copy);
+                }
+            }
+        }
+
+        if (!anyParsed && firstError != null) {
+            return firstError;
+        }
+        bugs.sort(Comparator.comparingInt(bug -> bug.path("line").asInt()));
+        ArrayNode merged = objectMapper.createArrayNode();
+        merged.addAll(bugs);
+        return merged.toString();
+    }
+
+    /**
+     * Maps an item's chunk-relative line to a line of the original file.
+     */
+    static int remapLine(SourceChunker.Chunk chunk, JsonNode item) {
+        int reported = Math.min(Math.max(leadingInt(item.path("line").asText("")), 1), chunk.lineCount());
+
+        String snippet = firstCodeLine(item.path("code_snippet").asText(""));
+        if (!snippet.isEmpty()) {
+            String[] lines = chunk.text().split("\r?\n", -1);
+            int best = -1;
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i].contains(snippet) && (best < 0 || Math.abs(i + 1 - reported) < Math.abs(best - reported))) {
+                    best = i + 1;
+                }
+            }
+            if (best > 0) {
+                reported = best;
+            }
+        }
+        return chunk.startLine() + reported - 1;
+    }
+
+    // Models sometimes wrap the JSON in prose or a markdown fence
+    private JsonNode parse(String answer) {
+        if (answer == null) {
+            return null;
+        }
+        int start = -1;
+        for (int i = 0; i < answer.length(); i++) {
+            char c = answer.charAt(i);
+            if (c == '{' || c == '[') {
+                start = i;
+                break;
+            }
+        }
+        int end = Math.max(answer.lastIndexOf('}'), answer.lastIndexOf(']'));
+        if (start < 0 || end < start) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(answer.substring(start, end + 1));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static void appendSection(StringBuilder target, String range, JsonNode text) {
+        if (text.isTextual() && !text.asText().isBlank()) {
+            if (!target.isEmpty()) {
+                target.append("\n\n");
+            }
+            target.append(range).append(text.asText().trim());
+        }
+    }
+
+    private static int leadingInt(String value) {
+        int result = 0;
+        int i = 0;
+        while (i < value.length() && !Character.isDigit(value.charAt(i))) {
+            i++;
+        }
+        for (; i < value.length() && Character.isDigit(value.charAt(i)) && result < 10_000_000; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static String firstCodeLine(String snippet) {
+        for (String line : snippet.split("\r?\n")) {
+            if (!line.isBlank()) {
+                return line.trim();
+            }
+        }
+        return "";
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+}
@@ -0,0 +1,245 @@
+package com.codeverse.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache for file contents, keyed by git blob SHA. Because the key is the
+ * blob id, identical files on different branches or forks share one entry.
+ * <p>
+ * The hot tier keeps recently used blobs on heap under a small byte budget. The warm tier
+ * stores one file per blob under {@code codeverse.cache.blob.dir} and reads it back through
+ * a read-only memory mapping, so large previews are paged in by the OS instead of being
+ * copied through the Java heap. Both tiers evict least recently used blobs by total size.
+ * <p>
+ * Callers are on the event loop, so all file system work (reads, the write-behind of new
+ * blobs and deleting evicted ones) runs on the bounded elastic pool.
+ */
+@Service
+public class BlobCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobCache.class);
+
+    private final Path directory;
+    private final long maxHeapBytes;
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, byte[]> heap = new LinkedHashMap<>(256, 0.75f, true);
+    private long heapBytes;
+
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(1024, 0.75f, true);
+    private long diskBytes;
+
+    private final AtomicLong heapHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BlobCache(@Value("${codeverse.cache.blob.dir:${java.io.tmpdir}/codeverse-blobs}") String directory,
+                     @Value("${codeverse.cache.blob.max-heap-bytes:33554432}") long maxHeapBytes,
+                     @Value("${codeverse.cache.blob.max-disk-bytes:1073741824}") long maxDiskBytes) {
+        this.directory = Paths.get(directory);
+        this.maxHeapBytes = maxHeapBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        Files.createDirectories(directory);
+        // Rebuild the disk index from a previous run, oldest files first
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            files.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparingLong(BlobCache::lastModified))
+                    .forEach(p -> {
+                        long size = p.toFile().length();
+                        synchronized (disk) {
+                            disk.put(p.getFileName().toString(), size);
+                            diskBytes += size;
+                        }
+                    });
+        }
+        List<Path> evicted;
+        synchronized (disk) {
+            evicted = evictDisk();
+        }
+        delete(evicted);
+    }
+
+    /**
+     * Emits the cached content of {@code sha}, or completes empty. The buffer is read-only
+     * and must not be retained beyond decoding.
+     */
+    public Mono<ByteBuffer> get(String sha) {
+        return Mono.defer(() -> {
+            synchronized (heap) {
+                byte[] bytes = heap.get(sha);
+                if (bytes != null) {
+                    heapHits.incrementAndGet();
+                    return Mono.just(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+                }
+            }
+            synchronized (disk) {
+                if (disk.get(sha) == null) {
+                    misses.incrementAndGet();
+                    return Mono.empty();
+                }
+            }
+            return Mono.fromCallable(() -> readDisk(sha)).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Adds {@code content} to the heap tier right away and writes it to the disk tier in the
+     * background.
+     */
+    public void put(String sha, byte[] content) {
+        putOnHeap(sha, content);
+
+        synchronized (disk) {
+            if (disk.containsKey(sha) || content.length > maxDiskBytes) {
+                return;
+            }
+        }
+        Schedulers.boundedElastic().schedule(() -> writeDisk(sha, content));
+    }
+
+    // Null when the file is gone, which also drops it from the index
+    private ByteBuffer readDisk(String sha) {
+        try (FileChannel channel = FileChannel.open(pathFor(sha), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            diskHits.incrementAndGet();
+            if (channel.size() <= maxHeapBytes / 16) {
+                byte[] bytes = new byte[(int) channel.size()];
+                mapped.get(bytes);
+                putOnHeap(sha, bytes);
+                return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            }
+            return mapped;
+        } catch (IOException e) {
+            synchronized (disk) {
+                Long size = disk.remove(sha);
+                if (size != null) {
+                    diskBytes -= size;
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    private void writeDisk(String sha, byte[] content) {
+        synchronized (disk) {
+            if (disk.containsKey(sha)) {
+                return;
+            }
+        }
+        Path target = pathFor(sha);
+        Path tmp = target.resolveSibling(sha + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            Files.write(tmp, content);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Blob cache write failed: {}", e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // nothing left to clean up
+            }
+            return;
+        }
+        List<Path> evicted;
+        synchronized (disk) {
+            if (disk.put(sha, (long) content.length) == null) {
+                diskBytes += content.length;
+            }
+            evicted = evictDisk();
+        }
+        delete(evicted);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (heap) {
+            stats.put("heap_entries", heap.size());
+            stats.put("heap_bytes", heapBytes);
+        }
+        synchronized (disk) {
+            stats.put("disk_entries", disk.size());
+            stats.put("disk_bytes", diskBytes);
+        }
+        stats.put("heap_hits", heapHits.get());
+        stats.put("disk_hits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private void putOnHeap(String sha, byte[] content) {
+        if (content.length > maxHeapBytes / 16) {
+            return;
+        }
+        synchronized (heap) {
+            byte[] previous = heap.put(sha, content);
+            if (previous != null) {
+                heapBytes -= previous.length;
+            }
+            heapBytes += content.length;
+
+            Iterator<Map.Entry<String, byte[]>> it = heap.entrySet().iterator();
+            while (heapBytes > maxHeapBytes && it.hasNext()) {
+                heapBytes -= it.next().getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    // Caller holds the disk lock; the files are deleted after it is released
+    private List<Path> evictDisk() {
+        List<Path> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            evicted.add(pathFor(eldest.getKey()));
+            diskBytes -= eldest.getValue();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        return evicted;
+    }
+
+    private static void delete(List<Path> evicted) {
+        for (Path path : evicted) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Blob cache eviction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Path pathFor(String sha) {
+        return directory.resolve(sha.substring(0, 2)).resolve(sha);
+    }
+
+    private static long lastModified(Path path) {
+        return path.toFile().lastModified();
+    }
+}
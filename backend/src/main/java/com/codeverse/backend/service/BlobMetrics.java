@@ -0,0 +1,99 @@
+package com.codeverse.backend.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * What the metrics engine remembers about one blob. It depends only on the blob's bytes, so it
+ * is cached by blob SHA and reused by every commit, branch and path that contains the blob.
+ *
+ * @param binary   a NUL byte in the first 8000 bytes, the same test git uses
+ * @param lines    lines including a final line without a newline; 0 for binary blobs
+ * @param blank    lines holding nothing but whitespace
+ * @param shebang  language named by a {@code #!} line, or null
+ */
+public record BlobMetrics(boolean binary, int lines, int blank, String shebang) {
+
+    public static final BlobMetrics BINARY = new BlobMetrics(true, 0, 0, null);
+    public static final BlobMetrics EMPTY = new BlobMetrics(false, 0, 0, null);
+
+    private static final int BINARY_SNIFF_BYTES = 8000;
+
+    /**
+     * Scans {@code content} from its position to its limit without decoding it. Only bytes are
+     * compared, which is exact for UTF-8 and every ASCII-compatible encoding. Does not move the
+     * buffer's position.
+     */
+    public static BlobMetrics scan(ByteBuffer content) {
+        int start = content.position();
+        int end = content.limit();
+        if (content.hasArray()) {
+            return scan(content.array(), content.arrayOffset() + start, content.arrayOffset() + end, content);
+        }
+        int sniffEnd = Math.min(end, start + BINARY_SNIFF_BYTES);
+        for (int i = start; i < sniffEnd; i++) {
+            if (content.get(i) == 0) {
+                return BINARY;
+            }
+        }
+        int lines = 0;
+        int blank = 0;
+        boolean blankLine = true;
+        for (int i = start; i < end; i++) {
+            byte b = content.get(i);
+            if (b == '\n') {
+                lines++;
+                if (blankLine) {
+                    blank++;
+                }
+                blankLine = true;
+            } else if (blankLine && !isBlank(b)) {
+                blankLine = false;
+            }
+        }
+        return finish(lines, blank, blankLine, end > start && content.get(end - 1) != '\n', content);
+    }
+
+    // Same loop over a heap array, which avoids the bounds-checked buffer accessors
+    private static BlobMetrics scan(byte[] bytes, int start, int end, ByteBuffer content) {
+        int sniffEnd = Math.min(end, start + BINARY_SNIFF_BYTES);
+        for (int i = start; i < sniffEnd; i++) {
+            if (bytes[i] == 0) {
+                return BINARY;
+            }
+        }
+        int lines = 0;
+        int blank = 0;
+        boolean blankLine = true;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                lines++;
+                if (blankLine) {
+                    blank++;
+                }
+                blankLine = true;
+            } else if (blankLine && !isBlank(b)) {
+                blankLine = false;
+            }
+        }
+        return finish(lines, blank, blankLine, end > start && bytes[end - 1] != '\n', content);
+    }
+
+    private static BlobMetrics finish(int lines, int blank, boolean blankLine, boolean unterminated, ByteBuffer content) {
+        if (unterminated) {
+            lines++;
+            if (blankLine) {
+                blank++;
+            }
+        }
+        return new BlobMetrics(false, lines, blank, LanguageDetector.fromShebang(content));
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    public int code() {
+        return lines - blank;
+    }
+}
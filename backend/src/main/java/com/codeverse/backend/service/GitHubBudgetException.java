@@ -0,0 +1,30 @@
+package com.codeverse.backend.service;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Raised when a GitHub request cannot go out within the wait limit, either because every
+ * token of the pool is out of budget or because the request queue is full. Carries the HTTP
+ * status to answer with and how long the caller should wait before retrying.
+ */
+public class GitHubBudgetException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public GitHubBudgetException(HttpStatus status, String message, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,624 @@
+package com.codeverse.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate budget for GitHub API calls, spread over a pool of tokens ({@code github.api.tokens}
+ * plus {@code github.api.token}; anonymous when neither is set).
+ * <p>
+ * The state of every token is read from the {@code X-RateLimit-*} headers of its responses.
+ * Each request goes out on the token with the most budget left, counting requests still in
+ * flight. Interactive requests may use a token down to zero; analysis and background work
+ * stop at {@code analysis-reserve} and {@code background-reserve} of its limit and are paced
+ * so that what is left above the reserve lasts until the reset. Requests that cannot go out
+ * yet wait in a bounded priority queue for up to {@code max-wait}; when no token frees up
+ * within that time they fail at once with the time until the next reset. A 403 or 429 that
+ * reports an exhausted or secondary limit is retried on another token. Conditional requests
+ * answered with 304 do not count against the limit, so revalidation stays cheap even when
+ * the budget is low.
+ * <p>
+ * The priority comes from the subscriber context, see {@link #priority(Priority)}; requests
+ * without one are interactive. A context may also carry an {@link Allowance}, which caps a
+ * kind of work at a share of every token's limit per window.
+ */
+@Service
+public class GitHubRateLimit {
+
+    public enum Priority {
+        INTERACTIVE, ANALYSIS, BACKGROUND
+    }
+
+    private static final String PRIORITY_KEY = GitHubRateLimit.class.getName() + ".priority";
+    private static final String ALLOWANCE_KEY = GitHubRateLimit.class.getName() + ".allowance";
+    // GitHub resets the core limit hourly
+    private static final long WINDOW_SECONDS = 3600;
+
+    private final List<Budget> pool;
+    private final double analysisReserve;
+    private final double backgroundReserve;
+    private final long pacingBurstMillis;
+    private final int queueCapacity;
+    private final Duration maxWait;
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long sequence;
+    private long wakeAtMillis = Long.MAX_VALUE;
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    @Autowired
+    public GitHubRateLimit(@Value("${github.api.token:}") String token,
+                           @Value("${github.api.tokens:}") List<String> tokens,
+                           @Value("${codeverse.github.budget.analysis-reserve:0.2}") double analysisReserve,
+                           @Value("${codeverse.github.budget.background-reserve:0.4}") double backgroundReserve,
+                           @Value("${codeverse.github.budget.pacing-burst:30s}") Duration pacingBurst,
+                           @Value("${codeverse.github.budget.queue-capacity:500}") int queueCapacity,
+                           @Value("${codeverse.github.budget.max-wait:30s}") Duration maxWait) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String pooled : tokens) {
+            if (!pooled.isBlank()) {
+                distinct.add(pooled.trim());
+            }
+        }
+        if (token != null && !token.isBlank()) {
+            distinct.add(token.trim());
+        }
+        List<Budget> budgets = new ArrayList<>();
+        for (String pooled : distinct) {
+            budgets.add(new Budget(pooled, "token-" + (budgets.size() + 1)));
+        }
+        if (budgets.isEmpty()) {
+            budgets.add(new Budget(null, "anonymous"));
+        }
+        this.pool = List.copyOf(budgets);
+        this.analysisReserve = analysisReserve;
+        this.backgroundReserve = backgroundReserve;
+        this.pacingBurstMillis = pacingBurst.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Context that sends the GitHub calls of a pipeline at {@code priority}, for
+     * {@code contextWrite}.
+     */
+    public static Context priority(Priority priority) {
+        return Context.of(PRIORITY_KEY, priority);
+    }
+
+    /**
+     * Like {@link #priority(Priority)}, with the calls also charged to {@code allowance}.
+     */
+    public static Context priority(Priority priority, Allowance allowance) {
+        return Context.of(PRIORITY_KEY, priority, ALLOWANCE_KEY, allowance);
+    }
+
+    /**
+     * Whether some token could still take a call charged to {@code allowance}.
+     */
+    public boolean allows(Allowance allowance) {
+        long nowSeconds = Instant.now().getEpochSecond();
+        synchronized (lock) {
+            for (Budget budget : pool) {
+                if (allowance.allows(budget, nowSeconds)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the token for every request, sets its credentials and records the rate-limit
+     * headers of the response against it.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.deferContextual(context ->
+                exchange(request, next, context.getOrDefault(PRIORITY_KEY, Priority.INTERACTIVE),
+                        context.getOrDefault(ALLOWANCE_KEY, null), 0));
+    }
+
+    /**
+     * Whether some token still has at least {@code reserve} of its limit (a fraction between
+     * 0 and 1) unused. Always true before a token's first response or after its reset time.
+     */
+    public boolean hasHeadroom(double reserve) {
+        long nowSeconds = Instant.now().getEpochSecond();
+        synchronized (lock) {
+            for (Budget budget : pool) {
+                if (budget.limit <= 0 || budget.left(nowSeconds) > budget.limit * reserve) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Totals over the pool plus the state of each token. {@code limit} and {@code remaining}
+     * stay -1 until a response has been seen; {@code reset} is the earliest reset.
+     */
+    public Map<String, Object> stats() {
+        long nowSeconds = Instant.now().getEpochSecond();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> tokens = new ArrayList<>();
+        long limit = -1;
+        long remaining = -1;
+        long reset = 0;
+        int inFlight = 0;
+        synchronized (lock) {
+            for (Budget budget : pool) {
+                inFlight += budget.inFlight;
+                if (budget.limit > 0) {
+                    limit = Math.max(limit, 0) + budget.limit;
+                    remaining = Math.max(remaining, 0) + budget.left(nowSeconds);
+                    if (budget.resetEpochSeconds > nowSeconds && (reset == 0 || budget.resetEpochSeconds < reset)) {
+                        reset = budget.resetEpochSeconds;
+                    }
+                }
+                Map<String, Object> token = new LinkedHashMap<>();
+                token.put("name", budget.name);
+                token.put("limit", budget.limit);
+                token.put("remaining", budget.limit > 0 ? budget.left(nowSeconds) : -1);
+                token.put("reset", budget.resetEpochSeconds > nowSeconds ? Instant.ofEpochSecond(budget.resetEpochSeconds).toString() : null);
+                token.put("in_flight", budget.inFlight);
+                tokens.add(token);
+            }
+            stats.put("limit", limit);
+            stats.put("remaining", remaining);
+            stats.put("reset", reset > 0 ? Instant.ofEpochSecond(reset).toString() : null);
+            stats.put("queued", queue.size());
+        }
+        stats.put("in_flight", inFlight);
+        stats.put("pool_size", pool.size());
+        stats.put("throttled", throttled.get());
+        stats.put("rejected", rejected.get());
+        stats.put("retried", retried.get());
+        stats.put("tokens", tokens);
+        return stats;
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, Priority priority, Allowance allowance,
+                                          int attempt) {
+        Task task = new Task(priority, allowance);
+        return Mono.<Budget>create(sink -> enqueue(task, sink))
+                .timeout(maxWait, Mono.error(() -> {
+                    rejected.incrementAndGet();
+                    return new GitHubBudgetException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "GitHub rate limit is exhausted, try again shortly", Duration.ofSeconds(5));
+                }))
+                .flatMap(budget -> {
+                    ClientRequest authorized = budget.token == null ? request
+                            : ClientRequest.from(request).headers(h -> h.setBearerAuth(budget.token)).build();
+                    return next.exchange(authorized)
+                            .doOnError(e -> finish(task))
+                            .doOnCancel(() -> finish(task))
+                            .flatMap(response -> {
+                                boolean limited = record(budget, response.headers().asHttpHeaders(), response.statusCode());
+                                if (allowance != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                                    // Conditional requests answered with 304 are free
+                                    synchronized (lock) {
+                                        allowance.refund(budget, System.currentTimeMillis() / 1000);
+                                    }
+                                }
+                                finish(task);
+                                // Another token, or the queue, may still get it through
+                                if (limited && attempt < pool.size()) {
+                                    retried.incrementAndGet();
+                                    return response.releaseBody().then(exchange(request, next, priority, allowance, attempt + 1));
+                                }
+                                return Mono.just(response);
+                            });
+                })
+                // Also covers a timeout or cancel after the token was taken but before it was handed over
+                .doFinally(signal -> finish(task));
+    }
+
+    private void enqueue(Task task, MonoSink<Budget> sink) {
+        Budget admitted = null;
+        synchronized (lock) {
+            if (task.state != TaskState.NEW) {
+                return;
+            }
+            long nowMillis = System.currentTimeMillis();
+            if (queue.isEmpty()) {
+                admitted = pick(task, nowMillis);
+                if (admitted != null) {
+                    take(task, admitted, nowMillis);
+                }
+            }
+        }
+        sink.onCancel(() -> finish(task));
+        if (admitted != null) {
+            sink.success(admitted);
+            return;
+        }
+        synchronized (lock) {
+            if (task.state != TaskState.NEW) {
+                return;
+            }
+            long nowMillis = System.currentTimeMillis();
+            long readyAt = readyAt(task, nowMillis);
+            if (readyAt == Long.MAX_VALUE) {
+                rejected.incrementAndGet();
+                task.state = TaskState.DONE;
+                sink.error(allowanceUsedUp(nowMillis));
+                return;
+            }
+            if (readyAt - nowMillis > maxWait.toMillis()) {
+                rejected.incrementAndGet();
+                task.state = TaskState.DONE;
+                sink.error(new GitHubBudgetException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "GitHub rate limit is exhausted", Duration.ofMillis(readyAt - nowMillis)));
+                return;
+            }
+            if (queue.size() >= queueCapacity) {
+                rejected.incrementAndGet();
+                task.state = TaskState.DONE;
+                sink.error(new GitHubBudgetException(HttpStatus.TOO_MANY_REQUESTS,
+                        "GitHub request queue is full", Duration.ofSeconds(5)));
+                return;
+            }
+            throttled.incrementAndGet();
+            task.sequence = sequence++;
+            task.sink = sink;
+            task.state = TaskState.QUEUED;
+            queue.add(task);
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (lock) {
+            long nowMillis = System.currentTimeMillis();
+            while (!queue.isEmpty()) {
+                Task head = queue.peek();
+                if (head.state != TaskState.QUEUED) {
+                    queue.poll();
+                    continue;
+                }
+                Budget budget = pick(head, nowMillis);
+                if (budget == null) {
+                    long readyAt = readyAt(head, nowMillis);
+                    if (readyAt == Long.MAX_VALUE) {
+                        // Its allowance is used up on every token; do not hold up the tasks behind it
+                        queue.poll();
+                        head.state = TaskState.DONE;
+                        rejected.incrementAndGet();
+                        GitHubBudgetException error = allowanceUsedUp(nowMillis);
+                        ready.add(() -> head.sink.error(error));
+                        continue;
+                    }
+                    // Lower priorities face a higher reserve and the same pacing, so they wait too
+                    schedule(readyAt, nowMillis);
+                    break;
+                }
+                queue.poll();
+                take(head, budget, nowMillis);
+                ready.add(() -> head.sink.success(budget));
+            }
+        }
+        // Outside the lock; a task cancelled in the meantime has already given its token back
+        ready.forEach(Runnable::run);
+    }
+
+    // Caller holds the lock; the token with the most spare budget that may serve the task
+    private Budget pick(Task task, long nowMillis) {
+        Priority priority = task.priority;
+        Budget best = null;
+        long bestSpare = 0;
+        for (Budget budget : pool) {
+            if (budget.blockedUntilMillis > nowMillis || (task.allowance != null && !task.allowance.allows(budget, nowMillis / 1000))) {
+                continue;
+            }
+            long spare = spare(budget, priority, nowMillis / 1000);
+            if (spare <= 0 || (paced(budget, priority) && budget.pacedUntil(nowMillis) - pacingBurstMillis > nowMillis)) {
+                continue;
+            }
+            if (best == null || spare > bestSpare) {
+                best = budget;
+                bestSpare = spare;
+            }
+        }
+        return best;
+    }
+
+    // Caller holds the lock
+    private void take(Task task, Budget budget, long nowMillis) {
+        Priority priority = task.priority;
+        task.budget = budget;
+        task.state = TaskState.TAKEN;
+        budget.inFlight++;
+        if (task.allowance != null) {
+            task.allowance.charge(budget, nowMillis / 1000);
+        }
+        if (paced(budget, priority)) {
+            long nowSeconds = nowMillis / 1000;
+            long spare = Math.max(1, spare(budget, priority, nowSeconds) + 1);
+            long interval = budget.secondsToReset(nowSeconds) * 1000 / spare;
+            budget.pacedUntilMillis = Math.max(budget.pacedUntil(nowMillis), nowMillis) + interval;
+        }
+    }
+
+    /**
+     * Caller holds the lock. The earliest time some token could serve the task: now when
+     * only requests in flight stand in the way (their responses dispatch the queue), else the
+     * end of a block, of the pacing interval or the reset. {@code Long.MAX_VALUE} when the
+     * task's allowance is used up on every token.
+     */
+    private long readyAt(Task task, long nowMillis) {
+        Priority priority = task.priority;
+        long nowSeconds = nowMillis / 1000;
+        long earliest = Long.MAX_VALUE;
+        for (Budget budget : pool) {
+            long at;
+            if (task.allowance != null && !task.allowance.allows(budget, nowSeconds)) {
+                continue;
+            } else if (budget.blockedUntilMillis > nowMillis) {
+                at = budget.blockedUntilMillis;
+            } else if (spare(budget, priority, nowSeconds) + budget.inFlight <= 0) {
+                at = budget.resetEpochSeconds * 1000 + 1000;
+            } else if (spare(budget, priority, nowSeconds) <= 0) {
+                at = nowMillis;
+            } else {
+                at = Math.max(nowMillis, budget.pacedUntil(nowMillis) - pacingBurstMillis);
+            }
+            earliest = Math.min(earliest, at);
+        }
+        return earliest;
+    }
+
+    // Caller holds the lock
+    private void schedule(long atMillis, long nowMillis) {
+        if (atMillis <= nowMillis || atMillis >= wakeAtMillis) {
+            return;
+        }
+        wakeAtMillis = atMillis;
+        Schedulers.parallel().schedule(() -> {
+            synchronized (lock) {
+                if (wakeAtMillis == atMillis) {
+                    wakeAtMillis = Long.MAX_VALUE;
+                }
+            }
+            dispatch();
+        }, atMillis - nowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Caller holds the lock; requests the token may still send at this priority
+    private long spare(Budget budget, Priority priority, long nowSeconds) {
+        if (budget.limit <= 0) {
+            // Nothing known yet; the first response tells
+            return Integer.MAX_VALUE;
+        }
+        double reserve = switch (priority) {
+            case INTERACTIVE -> 0;
+            case ANALYSIS -> analysisReserve;
+            case BACKGROUND -> backgroundReserve;
+        };
+        return budget.left(nowSeconds) - budget.inFlight - (long) Math.ceil(budget.limit * reserve);
+    }
+
+    // Caller holds the lock
+    private GitHubBudgetException allowanceUsedUp(long nowMillis) {
+        long nowSeconds = nowMillis / 1000;
+        long reset = pool.stream().mapToLong(budget -> budget.secondsToReset(nowSeconds)).min().orElse(WINDOW_SECONDS);
+        return new GitHubBudgetException(HttpStatus.SERVICE_UNAVAILABLE,
+                "GitHub rate limit share for this work is used up", Duration.ofSeconds(reset));
+    }
+
+    private static boolean paced(Budget budget, Priority priority) {
+        return priority != Priority.INTERACTIVE && budget.limit > 0;
+    }
+
+    /**
+     * Takes {@code task} out of the limiter, whatever state it reached: a queued task leaves
+     * the queue, a task holding a token gives it back. Idempotent, so every way a request can
+     * end may call it.
+     */
+    private void finish(Task task) {
+        boolean released;
+        synchronized (lock) {
+            TaskState state = task.state;
+            task.state = TaskState.DONE;
+            released = state == TaskState.TAKEN;
+            if (state == TaskState.QUEUED) {
+                queue.remove(task);
+            } else if (released) {
+                task.budget.inFlight--;
+            }
+        }
+        if (released) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Updates the token from the response headers. Returns true when the response is a 403
+     * or 429 for an exhausted or secondary rate limit, which is worth retrying elsewhere.
+     */
+    private boolean record(Budget budget, HttpHeaders headers, HttpStatusCode status) {
+        String remainingHeader = headers.getFirst("X-RateLimit-Remaining");
+        String limitHeader = headers.getFirst("X-RateLimit-Limit");
+        String resetHeader = headers.getFirst("X-RateLimit-Reset");
+        boolean exhausted = false;
+        if (remainingHeader != null && limitHeader != null && resetHeader != null) {
+            try {
+                long newLimit = Long.parseLong(limitHeader);
+                long newRemaining = Long.parseLong(remainingHeader);
+                long newReset = Long.parseLong(resetHeader);
+                synchronized (lock) {
+                    // Responses overtake each other; within a window the lowest count is the latest
+                    if (newReset != budget.resetEpochSeconds || budget.remaining < 0) {
+                        // A new window: pacing starts over
+                        budget.remaining = newRemaining;
+                        budget.pacedUntilMillis = 0;
+                    } else {
+                        budget.remaining = Math.min(budget.remaining, newRemaining);
+                    }
+                    budget.limit = newLimit;
+                    budget.resetEpochSeconds = newReset;
+                }
+                exhausted = newRemaining == 0;
+            } catch (NumberFormatException ignored) {
+                // Not a GitHub API response; keep the previous state
+            }
+        }
+        if (status.value() != 403 && status.value() != 429) {
+            return false;
+        }
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                long blockedUntil = System.currentTimeMillis() + Long.parseLong(retryAfter.trim()) * 1000;
+                synchronized (lock) {
+                    budget.blockedUntilMillis = Math.max(budget.blockedUntilMillis, blockedUntil);
+                }
+                return true;
+            } catch (NumberFormatException ignored) {
+                // An HTTP date; rely on the rate-limit headers
+            }
+        }
+        return exhausted;
+    }
+
+    /**
+     * Rate-limit state of one token, guarded by the lock.
+     */
+    private static final class Budget {
+
+        private final String token;
+        private final String name;
+        private long limit = -1;
+        private long remaining = -1;
+        private long resetEpochSeconds;
+        private int inFlight;
+        private long blockedUntilMillis;
+        private long pacedUntilMillis;
+
+        private Budget(String token, String name) {
+            this.token = token;
+            this.name = name;
+        }
+
+        // Requests left in the current window; the whole limit once the reset has passed
+        private long left(long nowSeconds) {
+            return nowSeconds >= resetEpochSeconds ? limit : remaining;
+        }
+
+        private long secondsToReset(long nowSeconds) {
+            return nowSeconds >= resetEpochSeconds ? WINDOW_SECONDS : resetEpochSeconds - nowSeconds;
+        }
+
+        // The reset of the current window, 0 once it has passed and the next is not known yet
+        private long window(long nowSeconds) {
+            return nowSeconds >= resetEpochSeconds ? 0 : resetEpochSeconds;
+        }
+
+        // Pacing of a window that has ended no longer applies
+        private long pacedUntil(long nowMillis) {
+            return nowMillis >= resetEpochSeconds * 1000 ? 0 : pacedUntilMillis;
+        }
+    }
+
+    /**
+     * Caps the calls of one kind of work, such as prefetching, at {@code share} of every
+     * token's limit per rate-limit window. Calls are counted when they get a token and given
+     * back when answered with 304; a call beyond the cap fails at once with
+     * {@link GitHubBudgetException}.
+     */
+    public static final class Allowance {
+
+        private final double share;
+        // Guarded by the limiter lock: per token, the window counted and the calls in it
+        private final Map<Budget, long[]> spent = new IdentityHashMap<>();
+        private final AtomicLong calls = new AtomicLong();
+
+        public Allowance(double share) {
+            this.share = share;
+        }
+
+        /**
+         * Calls charged so far, over all windows.
+         */
+        public long calls() {
+            return calls.get();
+        }
+
+        private boolean allows(Budget budget, long nowSeconds) {
+            // Nothing known before the token's first response
+            return budget.limit <= 0 || used(budget, nowSeconds) < (long) (budget.limit * share);
+        }
+
+        private void charge(Budget budget, long nowSeconds) {
+            long[] window = spent.get(budget);
+            if (window == null || window[0] != budget.window(nowSeconds)) {
+                window = new long[]{budget.window(nowSeconds), 0};
+                spent.put(budget, window);
+            }
+            window[1]++;
+            calls.incrementAndGet();
+        }
+
+        private void refund(Budget budget, long nowSeconds) {
+            long[] window = spent.get(budget);
+            if (window != null && window[0] == budget.window(nowSeconds) && window[1] > 0) {
+                window[1]--;
+                calls.decrementAndGet();
+            }
+        }
+
+        private long used(Budget budget, long nowSeconds) {
+            long[] window = spent.get(budget);
+            return window != null && window[0] == budget.window(nowSeconds) ? window[1] : 0;
+        }
+    }
+
+    private enum TaskState {
+        NEW, QUEUED, TAKEN, DONE
+    }
+
+    // Mutable fields are guarded by the limiter lock
+    private static final class Task implements Comparable<Task> {
+
+        private final Priority priority;
+        private final Allowance allowance;
+        private long sequence;
+        private MonoSink<Budget> sink;
+        private TaskState state = TaskState.NEW;
+        private Budget budget;
+
+        private Task(Priority priority, Allowance allowance) {
+            this.priority = priority;
+            this.allowance = allowance;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads repositories through the GitHub REST API and raw.githubusercontent.com, or whatever
+ * {@code github.api.url} and {@code github.raw.url} point at (GitHub Enterprise, a stand-in
+ * for load tests). API calls go through {@link GitHubRateLimit}, which picks the token.
+ * Refs are revalidated with ETags, trees come from the recursive trees endpoint (rebuilt by
+ * {@link TreeWalker} when GitHub truncates it) and files are downloaded one at a time.
+ */
+@Service
+public class GitHubRestSource implements RepositorySource {
+
+    private final WebClient webClient;
+    private final WebClient rawClient;
+    private final String rawUrl;
+    private final RepoTreeCache repoTreeCache;
+    private final StageMetrics stageMetrics;
+
+    @Value("${codeverse.github.tree.walk-concurrency:8}")
+    private int walkConcurrency;
+
+    @Value("${codeverse.github.tree.walk-max-requests:500}")
+    private int walkMaxRequests;
+
+    @Value("${codeverse.github.tree.walk-deadline:20s}")
+    private Duration walkDeadline;
+
+    @Autowired
+    public GitHubRestSource(WebClient.Builder webClientBuilder, RepoTreeCache repoTreeCache, GitHubRateLimit gitHubRateLimit,
+                            StageMetrics stageMetrics,
+                            @Value("${github.api.url:https://api.github.com}") String apiUrl,
+                            @Value("${github.raw.url:https://raw.githubusercontent.com}") String rawUrl,
+                            @Value("${codeverse.github.raw.max-bytes:16777216}") int rawMaxBytes) {
+        // One shared client (and Netty connection pool) for all raw content fetches. Files are
+        // read whole into memory, so the codec limit (256 KiB by default) must fit them
+        this.rawClient = webClientBuilder.clone()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(rawMaxBytes))
+                .build();
+        this.rawUrl = rawUrl.endsWith("/") ? rawUrl.substring(0, rawUrl.length() - 1) : rawUrl;
+        this.webClient = webClientBuilder.baseUrl(apiUrl).filter(gitHubRateLimit.filter()).build();
+        this.repoTreeCache = repoTreeCache;
+        this.stageMetrics = stageMetrics;
+    }
+
+    @Override
+    public Mono<RepoRef> resolveRef(String owner, String repo) {
+        RepoRef cached = repoTreeCache.getRef(owner, repo);
+
+        return webClient.get()
+                .uri("/repos/{owner}/{repo}", owner, repo)
+                .headers(h -> {
+                    if (cached != null && cached.getRepoEtag() != null) {
+                        h.setIfNoneMatch(cached.getRepoEtag());
+                    }
+                })
+                .retrieve()
+                .toEntity(Map.class)
+                .transform(call -> stageMetrics.time("github.repo", call))
+                .flatMap(repoInfo -> {
+                    String defaultBranch;
+                    String repoEtag;
+                    if (repoInfo.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+                        defaultBranch = cached.getDefaultBranch();
+                        repoEtag = cached.getRepoEtag();
+                    } else if (repoInfo.getBody() != null) {
+                        defaultBranch = repoInfo.getBody().get("default_branch") instanceof String branch ? branch : "main";
+                        repoEtag = repoInfo.getHeaders().getETag();
+                    } else {
+                        return Mono.error(new IllegalArgumentException("Repository not found"));
+                    }
+
+                    // The sha media type returns just the commit id of the branch head
+                    String branchEtag = cached != null && defaultBranch.equals(cached.getDefaultBranch()) ? cached.getHeadEtag() : null;
+                    return webClient.get()
+                            .uri("/repos/{owner}/{repo}/commits/{branch}", owner, repo, defaultBranch)
+                            .headers(h -> {
+                                h.set(HttpHeaders.ACCEPT, "application/vnd.github.sha");
+                                if (branchEtag != null) {
+                                    h.setIfNoneMatch(branchEtag);
+                                }
+                            })
+                            .retrieve()
+                            .toEntity(String.class)
+                            .transform(call -> stageMetrics.time("github.head", call))
+                            .flatMap(head -> {
+                                if (head.getStatusCode() == HttpStatus.NOT_MODIFIED && branchEtag != null) {
+                                    return Mono.just(new RepoRef(defaultBranch, repoEtag, cached.getHeadSha(), branchEtag));
+                                } else if (head.getBody() != null) {
+                                    return Mono.just(new RepoRef(defaultBranch, repoEtag, head.getBody().trim(), head.getHeaders().getETag()));
+                                }
+                                return Mono.error(new RuntimeException("Failed to resolve repository head commit"));
+                            });
+                });
+    }
+
+    /**
+     * Entries are parsed and emitted while the GitHub response is still arriving. When GitHub
+     * truncates the listing, the stream goes on with whatever the subtree walk adds.
+     */
+    @Override
+    public Flux<TreeEntry> streamTree(String owner, String repo, String sha, AtomicBoolean complete) {
+        GitHubTreeParser parser = new GitHubTreeParser();
+        List<TreeEntry> received = new ArrayList<>();
+        return parser.parse(requestTree(owner, repo, sha, true))
+                .doOnNext(received::add)
+                .concatWith(Flux.defer(() -> {
+                    if (!parser.isTruncated()) {
+                        return Flux.empty();
+                    }
+                    Set<String> emitted = new HashSet<>();
+                    received.forEach(entry -> emitted.add(entry.getPath()));
+                    return walker(owner, repo).walk(sha, received)
+                            .flatMapMany(result -> {
+                                if (!result.complete()) {
+                                    complete.set(false);
+                                }
+                                return Flux.fromIterable(result.entries())
+                                        .filter(entry -> !emitted.contains(entry.getPath()));
+                            });
+                }));
+    }
+
+    @Override
+    public Mono<RepoTree> fetchTree(String owner, String repo, String sha) {
+        GitHubTreeParser parser = new GitHubTreeParser();
+        return parser.parse(requestTree(owner, repo, sha, true))
+                .collectList()
+                .flatMap(entries -> {
+                    if (!parser.isTruncated()) {
+                        return Mono.just(newTree(owner, repo, sha, entries, false));
+                    }
+                    // GitHub caps recursive listings; fill in what it left out from subtrees in parallel
+                    return walker(owner, repo).walk(sha, entries)
+                            .map(result -> newTree(owner, repo, sha, result.entries(), !result.complete()));
+                });
+    }
+
+    @Override
+    public Mono<String> resolveCommit(String owner, String repo, String revision) {
+        return webClient.get()
+                .uri("/repos/{owner}/{repo}/commits/{ref}", owner, repo, revision)
+                .header(HttpHeaders.ACCEPT, "application/vnd.github.sha")
+                .retrieve()
+                .bodyToMono(String.class)
+                .transform(call -> stageMetrics.time("github.commit", call))
+                .map(String::trim);
+    }
+
+    @Override
+    public Mono<TreeWalker.Subtree> listTree(String owner, String repo, String treeish) {
+        return fetchSubtree(owner, repo, treeish, false);
+    }
+
+    private TreeWalker walker(String owner, String repo) {
+        return new TreeWalker((subtreeSha, recursive) -> fetchSubtree(owner, repo, subtreeSha, recursive),
+                walkConcurrency, walkMaxRequests, walkDeadline);
+    }
+
+    private Mono<TreeWalker.Subtree> fetchSubtree(String owner, String repo, String sha, boolean recursive) {
+        GitHubTreeParser parser = new GitHubTreeParser();
+        return parser.parse(requestTree(owner, repo, sha, recursive))
+                .collectList()
+                .map(entries -> new TreeWalker.Subtree(entries, parser.isTruncated()));
+    }
+
+    static RepoTree newTree(String owner, String repo, String sha, List<TreeEntry> entries, boolean truncated) {
+        RepoTree tree = new RepoTree();
+        tree.setOwner(owner);
+        tree.setRepoName(repo);
+        tree.setSha(sha);
+        tree.setTruncated(truncated);
+        tree.setEntries(entries);
+        tree.setFetchedTime(LocalDateTime.now());
+        return tree;
+    }
+
+    private Flux<DataBuffer> requestTree(String owner, String repo, String sha, boolean recursive) {
+        return webClient.get()
+                .uri(recursive ? "/repos/{owner}/{repo}/git/trees/{sha}?recursive=1" : "/repos/{owner}/{repo}/git/trees/{sha}", owner, repo, sha)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .transform(call -> stageMetrics.time("github.tree", call));
+    }
+
+    @Override
+    public Mono<byte[]> fetchFile(String owner, String repo, String branch, String path) {
+        return rawClient.get()
+                .uri(rawUrl(owner, repo, branch, path))
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .transform(call -> stageMetrics.time("github.raw", call))
+                .doOnNext(bytes -> stageMetrics.recordSize("github.raw", "bytes", bytes.length));
+    }
+
+    /**
+     * The upstream status and headers come back with the body still unread. A {@code range}
+     * is forwarded as-is; an unsatisfiable range is returned, not raised.
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<DataBuffer>>> openFile(String owner, String repo, String branch, String path, String range) {
+        return rawClient.get()
+                .uri(rawUrl(owner, repo, branch, path))
+                .headers(h -> {
+                    if (range != null && !range.isEmpty()) {
+                        h.set(HttpHeaders.RANGE, range);
+                    }
+                })
+                .retrieve()
+                .onStatus(status -> status.value() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response -> Mono.empty())
+                .toEntityFlux(DataBuffer.class)
+                .transform(call -> stageMetrics.time("github.raw", call));
+    }
+
+    private String rawUrl(String owner, String repo, String branch, String path) {
+        return String.format("%s/%s/%s/%s/%s", rawUrl, owner, repo, branch, path);
+    }
+}
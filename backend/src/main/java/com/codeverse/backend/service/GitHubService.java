@@ -1,131 +1,540 @@
 package com.codeverse.backend.service;
 
-import com.codeverse.backend.model.RepoRequest;
-import com.codeverse.backend.repository.RepoRequestRepository;
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.PathIndex;
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.FileNotFoundException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.time.LocalDateTime;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 @Service
 public class GitHubService {
 
-    private final WebClient webClient;
-    private final RepoRequestRepository repoRequestRepository;
+    private static final Logger log = LoggerFactory.getLogger(GitHubService.class);
+
+    private static final int BINARY_SNIFF_BYTES = 8000;
+    private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-fA-F]{40}");
+
+    private final GitHubRestSource gitHubRestSource;
+    private final LocalMirrorSource localMirrorSource;
+    private final RequestHistoryService requestHistoryService;
     private final OpenAIService openAIService;
+    private final RepoTreeCache repoTreeCache;
+    private final BlobCache blobCache;
+    private final SummaryContextCache summaryContextCache;
+    private final RepoResponseCache repoResponseCache;
+    private final StageMetrics stageMetrics;
+
+    @Value("${codeverse.content.preview-max-bytes:65536}")
+    private long previewMaxBytes;
+
+    @Value("${codeverse.content.batch-concurrency:8}")
+    private int batchConcurrency;
+
+    @Value("${codeverse.content.batch-max-paths:200}")
+    private int batchMaxPaths;
+
+    @Value("${codeverse.llm.summary.context-tokens:3000}")
+    private int summaryContextTokens;
+
+    @Value("${codeverse.llm.summary.max-files:8}")
+    private int summaryMaxFiles;
+
+    @Value("${codeverse.diff.concurrency:8}")
+    private int diffConcurrency;
 
-    @Value("${github.api.token:}") // Optional token
-    private String githubToken;
+    @Value("${codeverse.diff.max-listings:200}")
+    private int diffMaxListings;
+
+    @Value("${codeverse.diff.max-changes:5000}")
+    private int diffMaxChanges;
 
     @Autowired
-    public GitHubService(WebClient.Builder webClientBuilder, RepoRequestRepository repoRequestRepository, OpenAIService openAIService) {
-        this.webClient = webClientBuilder.baseUrl("https://api.github.com").build();
-        this.repoRequestRepository = repoRequestRepository;
+    public GitHubService(GitHubRestSource gitHubRestSource, LocalMirrorSource localMirrorSource, RequestHistoryService requestHistoryService,
+                         OpenAIService openAIService, RepoTreeCache repoTreeCache, BlobCache blobCache, SummaryContextCache summaryContextCache,
+                         RepoResponseCache repoResponseCache, StageMetrics stageMetrics) {
+        this.gitHubRestSource = gitHubRestSource;
+        this.localMirrorSource = localMirrorSource;
+        this.requestHistoryService = requestHistoryService;
         this.openAIService = openAIService;
+        this.repoTreeCache = repoTreeCache;
+        this.blobCache = blobCache;
+        this.summaryContextCache = summaryContextCache;
+        this.repoResponseCache = repoResponseCache;
+        this.stageMetrics = stageMetrics;
     }
 
-    public Map<String, Object> fetchRepoStructure(String repoUrl) {
+    /**
+     * The full structure of the default-branch head, serialized and compressed once per
+     * commit. When {@code ifNoneMatch} already names the current version only the ref is
+     * revalidated and the payload carries no body.
+     */
+    public Mono<RepoResponseCache.Payload> fetchRepoStructure(String repoUrl, String ifNoneMatch) {
         String[] ownerRepo = extractOwnerRepo(repoUrl);
         if (ownerRepo == null) {
-            throw new IllegalArgumentException("Invalid GitHub repository URL");
+            return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
         }
 
         String owner = ownerRepo[0];
         String repo = ownerRepo[1];
 
-        // Save request to MongoDB
-        RepoRequest request = new RepoRequest();
-        request.setRepoUrl(repoUrl);
-        request.setOwner(owner);
-        request.setRepoName(repo);
-        request.setRequestTime(LocalDateTime.now());
-        repoRequestRepository.save(request);
+        String canonicalUrl = repoUrl.startsWith("file:") ? repoUrl : "https://github.com/" + owner + "/" + repo;
+        requestHistoryService.record(canonicalUrl, owner, repo);
 
-        try {
-            // 1. Get Repo Info (for default branch)
-            Map repoInfo = webClient.get()
-                    .uri("/repos/{owner}/{repo}", owner, repo)
-                    .headers(h -> {
-                        if (githubToken != null && !githubToken.isEmpty()) {
-                            h.setBearerAuth(githubToken);
-                        }
-                    })
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-
-            if (repoInfo == null) {
-                throw new RuntimeException("Repository not found");
-            }
+        // 1. Resolve default branch and head commit, revalidating the cached ref with ETags
+        return resolveRef(owner, repo)
+                .flatMap(ref -> {
+                    String version = RepoResponseCache.version(ref.getHeadSha(), owner, repo, canonicalUrl, ref.getDefaultBranch());
+                    if (RepoResponseCache.matches(ifNoneMatch, version)) {
+                        return Mono.just(repoResponseCache.notModified(version));
+                    }
+                    // 2. Get Tree (Recursive), keyed by the immutable commit SHA
+                    return repoResponseCache.get(version, () -> loadTree(owner, repo, ref.getHeadSha())
+                            .map(tree -> {
+                                Map<String, Object> response = new HashMap<>();
+                                response.put("repo_name", repo);
+                                response.put("owner", owner);
+                                response.put("repo_url", canonicalUrl);
+                                response.put("default_branch", ref.getDefaultBranch());
+                                response.put("commit_sha", tree.getSha());
+                                response.put("complete", !tree.isTruncated());
+                                response.put("structure", tree.getEntries());
+                                return response;
+                            }));
+                })
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
 
-            String defaultBranch = (String) repoInfo.getOrDefault("default_branch", "main");
-
-            // 2. Get Tree (Recursive)
-            Map treeData = webClient.get()
-                    .uri("/repos/{owner}/{repo}/git/trees/{branch}?recursive=1", owner, repo, defaultBranch)
-                    .headers(h -> {
-                        if (githubToken != null && !githubToken.isEmpty()) {
-                            h.setBearerAuth(githubToken);
-                        }
-                    })
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-
-            if (treeData == null || !treeData.containsKey("tree")) {
-                throw new RuntimeException("Failed to fetch repository tree");
+    public Map<String, Object> getCacheStats() {
+        return Map.of("trees", repoTreeCache.stats(), "blobs", blobCache.stats(), "summary_contexts", summaryContextCache.stats(),
+                "repo_responses", repoResponseCache.stats(), "mirrors", localMirrorSource.stats());
+    }
+
+    public Mono<CompactTree> fetchCompactTree(String owner, String repo, String sha) {
+        return fetchTree(owner, repo, sha).map(repoTreeCache::compact);
+    }
+
+    /**
+     * The tree of commit {@code sha}, possibly truncated; {@link #compact} gives its
+     * hierarchical view.
+     */
+    public Mono<RepoTree> fetchTree(String owner, String repo, String sha) {
+        return loadTree(owner, repo, sha)
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    public CompactTree compact(RepoTree tree) {
+        return repoTreeCache.compact(tree);
+    }
+
+    /**
+     * Returns the directory at {@code path} expanded {@code depth} levels down. Directories
+     * below that depth are collapsed and only report their child count and aggregates.
+     * When {@code sha} is null the current head of the default branch is used.
+     */
+    public Mono<Map<String, Object>> expandDirectory(String repoUrl, String sha, String path, int depth) {
+        String[] ownerRepo = extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
+        }
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+        String normalizedPath = path == null ? "" : path.replaceAll("^/+|/+$", "");
+
+        Mono<String> shaMono = sha != null && !sha.isEmpty()
+                ? Mono.just(sha)
+                : resolveRef(owner, repo).map(RepoRef::getHeadSha);
+
+        return shaMono
+                .flatMap(commitSha -> fetchTree(owner, repo, commitSha)
+                        .flatMap(repoTree -> {
+                            CompactTree tree = repoTreeCache.compact(repoTree);
+                            int node = tree.find(normalizedPath);
+                            if (node < 0) {
+                                // In a truncated tree the path may just not have been reached
+                                return Mono.error(new IllegalArgumentException(repoTree.isTruncated()
+                                        ? "Path not found in the partial tree: " + normalizedPath
+                                        : "Path not found: " + normalizedPath));
+                            }
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("repo_name", repo);
+                            response.put("owner", owner);
+                            response.put("commit_sha", commitSha);
+                            response.put("complete", !repoTree.isTruncated());
+                            response.put("node", describeNode(tree, node, normalizedPath, depth));
+                            return Mono.just(response);
+                        }));
+    }
+
+    /**
+     * Searches the paths of the tree at {@code sha} (the default-branch head when null) and
+     * returns the {@code limit} best matches.
+     */
+    public Mono<Map<String, Object>> searchPaths(String repoUrl, String sha, String query, int limit) {
+        String[] ownerRepo = extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
+        }
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+
+        Mono<String> shaMono = sha != null && !sha.isEmpty()
+                ? Mono.just(sha)
+                : resolveRef(owner, repo).map(RepoRef::getHeadSha);
+
+        return shaMono
+                .flatMap(commitSha -> loadTree(owner, repo, commitSha)
+                        .flatMap(repoTree -> pathIndex(repoTree).map(index -> Map.entry(repoTree, index)))
+                        .map(indexed -> {
+                            PathIndex index = indexed.getValue();
+                            List<Map<String, Object>> results = new ArrayList<>();
+                            for (PathIndex.Match match : index.search(query, limit)) {
+                                CompactTree tree = index.tree();
+                                Map<String, Object> result = new LinkedHashMap<>();
+                                result.put("path", match.path());
+                                result.put("name", tree.name(match.node()));
+                                result.put("type", tree.isDirectory(match.node()) ? "dir" : "file");
+                                result.put("size", tree.isDirectory(match.node()) ? tree.totalSize(match.node()) : tree.size(match.node()));
+                                result.put("score", match.score());
+                                results.add(result);
+                            }
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("repo_name", repo);
+                            response.put("owner", owner);
+                            response.put("commit_sha", commitSha);
+                            response.put("query", query);
+                            response.put("complete", !indexed.getKey().isTruncated());
+                            response.put("indexed_paths", index.size());
+                            response.put("results", results);
+                            return response;
+                        }))
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    /**
+     * Changes from {@code base} to {@code head}, each a branch, tag or commit SHA. The head
+     * tree comes from the tree cache. A cached base tree is diffed whole; otherwise only the
+     * base directories along the changes are listed, and the base is loaded whole instead
+     * once that would take more than {@code max-listings} requests.
+     */
+    public Mono<Map<String, Object>> diffTrees(String repoUrl, String base, String head) {
+        String[] ownerRepo = extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
+        }
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+        TreeDiffer differ = new TreeDiffer(diffConcurrency, diffMaxListings, diffMaxChanges);
+
+        return Mono.zip(resolveCommit(owner, repo, base), resolveCommit(owner, repo, head))
+                .flatMap(shas -> {
+                    String baseSha = shas.getT1();
+                    String headSha = shas.getT2();
+                    return loadTree(owner, repo, headSha)
+                            .flatMap(headTree -> {
+                                CompactTree headCompact = repoTreeCache.compact(headTree);
+                                return repoTreeCache.get(owner, repo, baseSha)
+                                        .flatMap(baseTree -> differ.diff(repoTreeCache.compact(baseTree), headCompact)
+                                                .map(result -> Map.entry(result, !baseTree.isTruncated())))
+                                        .switchIfEmpty(Mono.defer(() -> differ.diff(baseSha,
+                                                        treeSha -> source(owner, repo).listTree(owner, repo, treeSha), headCompact)
+                                                .map(result -> Map.entry(result, true))))
+                                        .onErrorResume(TreeDiffer.ListingBudgetExceededException.class, e -> loadTree(owner, repo, baseSha)
+                                                .flatMap(baseTree -> differ.diff(repoTreeCache.compact(baseTree), headCompact)
+                                                        .map(result -> Map.entry(result, !baseTree.isTruncated()))))
+                                        .map(diff -> describeDiff(owner, repo, base, head, baseSha, headSha, diff.getKey(),
+                                                diff.getValue() && !headTree.isTruncated()));
+                            });
+                })
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    private static Map<String, Object> describeDiff(String owner, String repo, String base, String head, String baseSha, String headSha,
+                                                    TreeDiffer.Result result, boolean complete) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String status : List.of(TreeDiffer.ADDED, TreeDiffer.REMOVED, TreeDiffer.MODIFIED, TreeDiffer.RENAMED)) {
+            counts.put(status, 0);
+        }
+        List<Map<String, Object>> changes = new ArrayList<>(result.changes().size());
+        for (TreeDiffer.Change change : result.changes()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("path", change.path());
+            entry.put("type", change.type());
+            entry.put("status", change.status());
+            if (change.previousPath() != null) {
+                entry.put("previous_path", change.previousPath());
             }
+            changes.add(entry);
+            counts.merge(change.status(), 1, Integer::sum);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("repo_name", repo);
+        response.put("owner", owner);
+        response.put("base", base);
+        response.put("head", head);
+        response.put("base_sha", baseSha);
+        response.put("head_sha", headSha);
+        response.put("complete", complete && !result.truncated());
+        response.put("truncated", result.truncated());
+        response.put("listings", result.listings());
+        response.put("counts", counts);
+        response.put("changes", changes);
+        return response;
+    }
+
+    // Commit SHAs are taken as they are; anything else is resolved by the source
+    private Mono<String> resolveCommit(String owner, String repo, String revision) {
+        if (COMMIT_SHA.matcher(revision).matches()) {
+            return Mono.just(revision.toLowerCase());
+        }
+        return source(owner, repo).resolveCommit(owner, repo, revision)
+                .onErrorMap(e -> e instanceof WebClientResponseException.NotFound || e instanceof WebClientResponseException.UnprocessableEntity,
+                        e -> new IllegalArgumentException("Unknown revision: " + revision));
+    }
+
+    // Building an index is CPU work proportional to the tree; keep it off the event loop
+    private Mono<PathIndex> pathIndex(RepoTree tree) {
+        PathIndex index = tree.getPathIndex();
+        return index != null
+                ? Mono.just(index)
+                : Mono.fromCallable(() -> repoTreeCache.pathIndex(tree)).subscribeOn(Schedulers.parallel());
+    }
+
+    private Map<String, Object> describeNode(CompactTree tree, int node, String path, int depth) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", tree.name(node));
+        result.put("path", path);
+        result.put("depth", tree.depth(node));
+        if (!tree.isDirectory(node)) {
+            result.put("type", "file");
+            result.put("size", tree.size(node));
+            return result;
+        }
 
-            List<Map<String, Object>> rawTree = (List<Map<String, Object>>) treeData.get("tree");
-            List<Map<String, String>> structure = rawTree.stream()
-                    .map(item -> {
-                        Map<String, String> node = new HashMap<>();
-                        node.put("path", (String) item.get("path"));
-                        String type = (String) item.get("type");
-                        node.put("type", "tree".equals(type) ? "dir" : "file");
-                        return node;
-                    })
-                    .collect(Collectors.toList());
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("repo_name", repo);
-            response.put("owner", owner);
-            response.put("repo_url", "https://github.com/" + owner + "/" + repo);
-            response.put("default_branch", defaultBranch);
-            response.put("structure", structure);
-
-            return response;
-
-        } catch (WebClientResponseException e) {
-            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                throw new IllegalArgumentException("Repository not found");
-            } else if (e.getStatusCode() == HttpStatus.FORBIDDEN) {
-                throw new RuntimeException("Access denied or rate limit exceeded");
+        int childCount = tree.childCount(node);
+        result.put("type", "dir");
+        result.put("file_count", tree.fileCount(node));
+        result.put("dir_count", tree.dirCount(node));
+        result.put("total_size", tree.totalSize(node));
+        result.put("child_count", childCount);
+        if (depth > 0) {
+            List<Map<String, Object>> children = new ArrayList<>(childCount);
+            for (int i = 0; i < childCount; i++) {
+                int child = tree.child(node, i);
+                String childPath = path.isEmpty() ? tree.name(child) : path + "/" + tree.name(child);
+                children.add(describeNode(tree, child, childPath, depth - 1));
             }
-            throw new RuntimeException("GitHub API error: " + e.getMessage());
+            result.put("children", children);
         }
+        return result;
+    }
+
+    private Mono<RepoTree> loadTree(String owner, String repo, String sha) {
+        return repoTreeCache.get(owner, repo, sha)
+                .switchIfEmpty(Mono.defer(() -> source(owner, repo).fetchTree(owner, repo, sha)
+                        .doOnNext(tree -> {
+                            stageMetrics.recordSize("tree", "entries", tree.getEntries().size());
+                            repoTreeCache.put(tree);
+                            // Index paths while the client is still rendering the tree
+                            pathIndex(tree).subscribe(index -> { }, e -> log.warn("Path index build failed: {}", e.getMessage()));
+                        })));
+    }
+
+    /**
+     * Default branch and head commit; the REST source revalidates the cached ref with ETags.
+     */
+    public Mono<RepoRef> resolveRef(String owner, String repo) {
+        return source(owner, repo).resolveRef(owner, repo)
+                .doOnNext(ref -> repoTreeCache.putRef(owner, repo, ref))
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    /**
+     * Streams the entries of the tree at {@code sha}, followed by one {@code {"complete": ...}}
+     * record telling whether every entry was sent. Cached trees are replayed from memory;
+     * otherwise entries are emitted as early as the repository source allows.
+     */
+    public Flux<Object> streamTree(String owner, String repo, String sha) {
+        AtomicBoolean complete = new AtomicBoolean(true);
+        return repoTreeCache.get(owner, repo, sha)
+                .flatMapMany(tree -> {
+                    complete.set(!tree.isTruncated());
+                    return Flux.fromIterable(tree.getEntries());
+                })
+                .switchIfEmpty(Flux.defer(() -> source(owner, repo).streamTree(owner, repo, sha, complete)))
+                .<Object>map(entry -> entry)
+                .concatWith(Mono.fromSupplier(() -> Map.of("complete", complete.get())))
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    private Throwable translateError(WebClientResponseException e) {
+        if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+            return new IllegalArgumentException("Repository not found");
+        } else if (e.getStatusCode() == HttpStatus.FORBIDDEN) {
+            return new RuntimeException("Access denied or rate limit exceeded");
+        }
+        return new RuntimeException("GitHub API error: " + e.getMessage());
     }
 
     public Mono<String> fetchFileContent(String owner, String repo, String branch, String path) {
-        String rawUrl = String.format("https://raw.githubusercontent.com/%s/%s/%s/%s", owner, repo, branch, path);
-        return WebClient.create(rawUrl)
-                .get()
-                .retrieve()
-                .bodyToMono(String.class)
+        return loadFileContent(owner, repo, branch, path)
                 .onErrorResume(e -> Mono.just("⚠️ Error fetching file: " + e.getMessage()));
     }
 
+    /**
+     * Fetches many files of one repository with bounded concurrency and emits a result per
+     * file as soon as it completes, in completion order. Each result carries its own status,
+     * so one missing file does not fail the batch.
+     */
+    public Flux<Map<String, Object>> fetchFileContents(String owner, String repo, String branch, List<String> paths) {
+        return Flux.fromIterable(new LinkedHashSet<>(paths))
+                .flatMap(path -> loadFileContent(owner, repo, branch, path)
+                        .map(content -> {
+                            Map<String, Object> result = new LinkedHashMap<>();
+                            result.put("path", path);
+                            result.put("status", "ok");
+                            result.put("content", content);
+                            return result;
+                        })
+                        .onErrorResume(e -> {
+                            boolean notFound = e instanceof FileNotFoundException || (e instanceof WebClientResponseException wce
+                                    && wce.getStatusCode() == HttpStatus.NOT_FOUND);
+                            Map<String, Object> result = new LinkedHashMap<>();
+                            result.put("path", path);
+                            result.put("status", notFound ? "not_found" : "error");
+                            result.put("error", notFound ? "File not found" : "Failed to fetch file content: " + e.getMessage());
+                            return Mono.just(result);
+                        }), batchConcurrency);
+    }
+
+    public int getBatchMaxPaths() {
+        return batchMaxPaths;
+    }
+
+    private Mono<String> loadFileContent(String owner, String repo, String branch, String path) {
+        return resolveBlob(owner, repo, branch, path)
+                .flatMap(blob -> blobCache.get(blob.getValue())
+                        .map(cached -> StandardCharsets.UTF_8.decode(cached).toString())
+                        // Read at the commit the blob SHA came from; a branch URL may lag behind it
+                        .switchIfEmpty(Mono.defer(() -> source(owner, repo).fetchFile(owner, repo, blob.getKey(), path)
+                                .doOnNext(bytes -> {
+                                    if (isBlob(blob.getValue(), bytes)) {
+                                        blobCache.put(blob.getValue(), bytes);
+                                    } else {
+                                        log.warn("Content of {}/{}:{} does not match blob {}, not caching it", owner, repo, path, blob.getValue());
+                                    }
+                                })
+                                .map(bytes -> new String(bytes, StandardCharsets.UTF_8)))))
+                // Unknown blob (other branch, tree not loaded yet): fetch without caching
+                .switchIfEmpty(Mono.defer(() -> source(owner, repo).fetchFile(owner, repo, branch, path)
+                        .map(bytes -> new String(bytes, StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Contents of blob {@code blobSha}, found at {@code path} in commit {@code sha}. Read from
+     * the blob cache when it is there; bulk readers do not add to the cache, so whole-repository
+     * scans do not push out the files people are previewing.
+     */
+    public Mono<ByteBuffer> fetchBlob(String owner, String repo, String sha, String path, String blobSha) {
+        return blobCache.get(blobSha)
+                .switchIfEmpty(Mono.defer(() -> source(owner, repo).fetchFile(owner, repo, sha, path).map(ByteBuffer::wrap)));
+    }
+
+    // Commit SHA and blob SHA of path, when branch is the cached head of the repository
+    private Mono<Map.Entry<String, String>> resolveBlob(String owner, String repo, String branch, String path) {
+        RepoRef ref = repoTreeCache.getRef(owner, repo);
+        if (ref == null || !(branch.equals(ref.getDefaultBranch()) || branch.equals(ref.getHeadSha()))) {
+            return Mono.empty();
+        }
+        return repoTreeCache.get(owner, repo, ref.getHeadSha())
+                .map(repoTreeCache::compact)
+                .flatMap(tree -> {
+                    int node = tree.find(path);
+                    if (node <= 0 || tree.isDirectory(node) || tree.sha(node) == null) {
+                        return Mono.empty();
+                    }
+                    return Mono.just(Map.entry(ref.getHeadSha(), tree.sha(node)));
+                });
+    }
+
+    // Git names a blob by the SHA-1 of "blob <length>\0" followed by its bytes
+    private static boolean isBlob(String blobSha, byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + bytes.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            digest.update(bytes);
+            return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(blobSha);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens a raw file download without reading it. The status and headers come back with
+     * the body still unread, so callers can relay the buffers as they arrive. An
+     * unsatisfiable {@code range} is returned, not raised.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> openRawContent(String owner, String repo, String branch, String path, String range) {
+        return source(owner, repo).openFile(owner, repo, branch, path, range);
+    }
+
+    /**
+     * Sniffs the start of a file the way git does: a NUL byte in the first 8000 bytes means
+     * binary. Does not move the buffer's read position.
+     */
+    public boolean looksBinary(DataBuffer buffer) {
+        int start = buffer.readPosition();
+        int end = Math.min(buffer.writePosition(), start + BINARY_SNIFF_BYTES);
+        for (int i = start; i < end; i++) {
+            if (buffer.getByte(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getPreviewMaxBytes() {
+        return previewMaxBytes;
+    }
+
     public Mono<String> summarizeRepo(String repoUrl, String mode, String length, String languageLevel) {
+        return summaryContext(repoUrl)
+                .flatMap(context -> openAIService.summarizeRepository(context, mode, length, languageLevel));
+    }
+
+    /**
+     * Same as {@link #summarizeRepo} but emits the summary as it is generated.
+     */
+    public Flux<String> streamSummarizeRepo(String repoUrl, String mode, String length, String languageLevel) {
+        return summaryContext(repoUrl)
+                .flatMapMany(context -> openAIService.streamSummarizeRepository(context, mode, length, languageLevel));
+    }
+
+    // Ranked, budgeted prompt context for the current head commit
+    private Mono<String> summaryContext(String repoUrl) {
         String[] ownerRepo = extractOwnerRepo(repoUrl);
         if (ownerRepo == null) {
             return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
@@ -133,44 +542,42 @@ public class GitHubService {
         String owner = ownerRepo[0];
         String repo = ownerRepo[1];
 
-        return webClient.get()
-                .uri("/repos/{owner}/{repo}", owner, repo)
-                .headers(h -> {
-                    if (githubToken != null && !githubToken.isEmpty()) {
-                        h.setBearerAuth(githubToken);
-                    }
-                })
-                .retrieve()
-                .bodyToMono(Map.class)
-                .flatMap(repoInfo -> {
-                    String defaultBranch = (String) repoInfo.getOrDefault("default_branch", "main");
-                    Mono<String> readmeMono = fetchFileContent(owner, repo, defaultBranch, "README.md")
-                            .onErrorReturn("No README found.");
-
-                    Mono<List<String>> structureMono = webClient.get()
-                            .uri("/repos/{owner}/{repo}/git/trees/{branch}?recursive=1", owner, repo, defaultBranch)
-                            .headers(h -> {
-                                if (githubToken != null && !githubToken.isEmpty()) {
-                                    h.setBearerAuth(githubToken);
-                                }
-                            })
-                            .retrieve()
-                            .bodyToMono(Map.class)
-                            .map(treeData -> {
-                                List<Map<String, Object>> rawTree = (List<Map<String, Object>>) treeData.get("tree");
-                                return rawTree.stream()
-                                        .map(item -> (String) item.get("path"))
-                                        .collect(Collectors.toList());
-                            });
+        return resolveRef(owner, repo)
+                .flatMap(ref -> summaryContext(owner, repo, ref.getHeadSha()))
+                .onErrorMap(WebClientResponseException.class, this::translateError)
+                .contextWrite(GitHubRateLimit.priority(GitHubRateLimit.Priority.BACKGROUND));
+    }
 
-                    return Mono.zip(readmeMono, structureMono)
-                            .flatMap(tuple -> openAIService.summarizeRepository(tuple.getT1(), tuple.getT2(), mode, length, languageLevel));
-                });
+    // Built once per commit; every summary mode and length reuses it
+    private Mono<String> summaryContext(String owner, String repo, String sha) {
+        return summaryContextCache.get(RepoTree.key(owner, repo, sha),
+                () -> loadTree(owner, repo, sha)
+                        .map(repoTreeCache::compact)
+                        .flatMap(tree -> new SummaryContextBuilder(summaryContextTokens, summaryMaxFiles, batchConcurrency)
+                                .build(tree, path -> loadFileContent(owner, repo, sha, path))));
+    }
+
+    /**
+     * Loads the tree, README and summary context of {@code sha} into the caches, so the next
+     * visitor of the repository is served without calling GitHub.
+     */
+    public Mono<Void> warmRepository(String owner, String repo, String sha) {
+        return loadTree(owner, repo, sha)
+                .then(summaryContext(owner, repo, sha))
+                .then()
+                .onErrorMap(WebClientResponseException.class, this::translateError);
+    }
+
+    private RepositorySource source(String owner, String repo) {
+        return localMirrorSource.handles(owner, repo) ? localMirrorSource : gitHubRestSource;
     }
 
     public String[] extractOwnerRepo(String url) {
         try {
             URI uri = new URI(url);
+            if ("file".equalsIgnoreCase(uri.getScheme())) {
+                return localMirrorSource.register(uri);
+            }
             String path = uri.getPath();
             if (path.startsWith("/")) {
                 path = path.substring(1);
@@ -179,7 +586,7 @@ public class GitHubService {
             if (parts.length >= 2) {
                 return new String[]{parts[0], parts[1].replace(".git", "")};
             }
-        } catch (URISyntaxException e) {
+        } catch (URISyntaxException | IllegalArgumentException e) {
             return null;
         }
         return null;
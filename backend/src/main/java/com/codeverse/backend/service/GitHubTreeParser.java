@@ -0,0 +1,145 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.TreeEntry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for the GitHub git/trees response. Bytes are fed to a non-blocking
+ * Jackson parser as they arrive and each entry of the {@code tree} array is emitted as
+ * soon as its object closes, so neither the raw body nor an intermediate {@code Map}
+ * is ever held in memory.
+ * <p>
+ * One instance parses one response; {@link #isTruncated()} and {@link #getSha()} are
+ * valid once the returned {@link Flux} completes.
+ */
+public class GitHubTreeParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    private boolean inTree;
+    private String field;
+    private String sha;
+    private boolean truncated;
+
+    private String entryPath;
+    private String entryType;
+    private String entrySha;
+    private Long entrySize;
+
+    public GitHubTreeParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public Flux<TreeEntry> parse(Flux<DataBuffer> body) {
+        return body.concatMapIterable(this::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(finish())));
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    private List<TreeEntry> feed(DataBuffer buffer) {
+        List<TreeEntry> entries = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer chunk = it.next();
+                feeder.feedInput(chunk);
+                drain(entries);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return entries;
+    }
+
+    private List<TreeEntry> finish() {
+        List<TreeEntry> entries = new ArrayList<>();
+        feeder.endOfInput();
+        try {
+            drain(entries);
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    private void drain(List<TreeEntry> out) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (token == JsonToken.START_ARRAY && depth == 2 && "tree".equals(field)) {
+                        inTree = true;
+                    } else if (token == JsonToken.START_OBJECT && inTree && depth == 3) {
+                        entryPath = null;
+                        entryType = null;
+                        entrySha = null;
+                        entrySize = null;
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (token == JsonToken.END_OBJECT && inTree && depth == 3 && entryPath != null) {
+                        out.add(new TreeEntry(entryPath, "tree".equals(entryType) ? "dir" : "file", entrySha, entrySize));
+                    } else if (token == JsonToken.END_ARRAY && inTree && depth == 2) {
+                        inTree = false;
+                    }
+                    depth--;
+                }
+                case FIELD_NAME -> field = parser.currentName();
+                case VALUE_STRING -> {
+                    if (inTree && depth == 3) {
+                        switch (field) {
+                            case "path" -> entryPath = parser.getText();
+                            case "type" -> entryType = parser.getText();
+                            case "sha" -> entrySha = parser.getText();
+                            default -> { }
+                        }
+                    } else if (depth == 1 && "sha".equals(field)) {
+                        sha = parser.getText();
+                    }
+                }
+                case VALUE_NUMBER_INT -> {
+                    if (inTree && depth == 3 && "size".equals(field)) {
+                        entrySize = parser.getLongValue();
+                    }
+                }
+                case VALUE_TRUE -> {
+                    if (depth == 1 && "truncated".equals(field)) {
+                        truncated = true;
+                    }
+                }
+                default -> { }
+            }
+        }
+    }
+}
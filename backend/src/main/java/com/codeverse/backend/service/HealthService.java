@@ -0,0 +1,80 @@
+package com.codeverse.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks the dependencies behind {@code /api/health}: MongoDB with a ping, GitHub by the last
+ * rate-limit state seen, and the model endpoint by its circuit breaker. Any of them failing
+ * makes the service {@code degraded}, never down: cached trees, blobs and responses are still
+ * served without GitHub, and an exhausted rate limit hits every instance at once, so taking
+ * them out of rotation for it would only turn a partial outage into a full one.
+ */
+@Service
+public class HealthService {
+
+    public static final String UP = "up";
+    public static final String DOWN = "down";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final GitHubRateLimit gitHubRateLimit;
+    private final LlmRequestScheduler llmRequestScheduler;
+    private final Duration timeout;
+
+    @Autowired
+    public HealthService(ReactiveMongoTemplate mongoTemplate, GitHubRateLimit gitHubRateLimit, LlmRequestScheduler llmRequestScheduler,
+                         @Value("${codeverse.health.timeout:2s}") Duration timeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.gitHubRateLimit = gitHubRateLimit;
+        this.llmRequestScheduler = llmRequestScheduler;
+        this.timeout = timeout;
+    }
+
+    public Mono<Map<String, Object>> check() {
+        return mongo().map(mongo -> {
+            Map<String, Object> github = new LinkedHashMap<>(gitHubRateLimit.stats());
+            github.put("status", gitHubRateLimit.hasHeadroom(0) ? UP : DOWN);
+
+            Map<String, Object> llm = new LinkedHashMap<>(llmRequestScheduler.stats());
+            llm.put("status", "open".equals(llm.get("circuit")) ? DOWN : UP);
+
+            String status = DOWN.equals(github.get("status")) || DOWN.equals(mongo.get("status")) || DOWN.equals(llm.get("status"))
+                    ? "degraded"
+                    : "healthy";
+
+            Map<String, Object> components = new LinkedHashMap<>();
+            components.put("mongo", mongo);
+            components.put("github", github);
+            components.put("llm", llm);
+            Map<String, Object> health = new LinkedHashMap<>();
+            health.put("status", status);
+            health.put("components", components);
+            return health;
+        });
+    }
+
+    private Mono<Map<String, Object>> mongo() {
+        long start = System.nanoTime();
+        return mongoTemplate.executeCommand("{ ping: 1 }")
+                .timeout(timeout)
+                .map(reply -> {
+                    Map<String, Object> mongo = new LinkedHashMap<>();
+                    mongo.put("status", UP);
+                    mongo.put("latency_ms", (System.nanoTime() - start) / 1_000_000);
+                    return mongo;
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> mongo = new LinkedHashMap<>();
+                    mongo.put("status", DOWN);
+                    mongo.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    return Mono.just(mongo);
+                });
+    }
+}
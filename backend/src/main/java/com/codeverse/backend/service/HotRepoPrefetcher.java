@@ -0,0 +1,144 @@
+package com.codeverse.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most requested repositories warm.
+ * <p>
+ * Every {@code interval-ms} the top {@code top-n} repositories of the last {@code window}
+ * are read from the popularity counters. For each one the default-branch head is revalidated
+ * with conditional requests (a 304 is free against the rate limit), and only when the head
+ * has moved since the last pass are the tree, README and summary context loaded for the new
+ * commit. Repositories are processed one at a time. Every call is charged to an
+ * {@link GitHubRateLimit.Allowance} of {@code rate-limit-share}, so at most that share of each
+ * token's rate-limit window is spent here: a call beyond it fails and the pass skips the
+ * remaining repositories. The calls also go out at background priority, so
+ * {@link GitHubRateLimit} paces them behind user requests and stops them at its background
+ * reserve.
+ */
+@Service
+public class HotRepoPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(HotRepoPrefetcher.class);
+
+    private final RequestHistoryService requestHistoryService;
+    private final GitHubService gitHubService;
+    private final GitHubRateLimit gitHubRateLimit;
+    private final boolean enabled;
+    private final int topN;
+    private final Duration window;
+    private final GitHubRateLimit.Allowance allowance;
+
+    private final Map<String, String> warmedHeads = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong skippedForBudget = new AtomicLong();
+    private final AtomicLong skippedUnavailable = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile LocalDateTime lastPass;
+
+    @Autowired
+    public HotRepoPrefetcher(RequestHistoryService requestHistoryService, GitHubService gitHubService, GitHubRateLimit gitHubRateLimit,
+                             @Value("${codeverse.prefetch.enabled:true}") boolean enabled,
+                             @Value("${codeverse.prefetch.top-n:20}") int topN,
+                             @Value("${codeverse.prefetch.window:24h}") Duration window,
+                             @Value("${codeverse.prefetch.rate-limit-share:0.2}") double rateLimitShare) {
+        this.requestHistoryService = requestHistoryService;
+        this.gitHubService = gitHubService;
+        this.gitHubRateLimit = gitHubRateLimit;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.window = window;
+        this.allowance = new GitHubRateLimit.Allowance(rateLimitShare);
+    }
+
+    @Scheduled(initialDelayString = "${codeverse.prefetch.initial-delay-ms:60000}",
+            fixedDelayString = "${codeverse.prefetch.interval-ms:300000}")
+    public void prefetchOnSchedule() {
+        if (enabled && running.compareAndSet(false, true)) {
+            prefetch().doFinally(signal -> running.set(false)).subscribe();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("passes", passes.get());
+        stats.put("last_pass", lastPass != null ? lastPass.toString() : null);
+        stats.put("tracked_repos", warmedHeads.size());
+        stats.put("checked", checked.get());
+        stats.put("refreshed", refreshed.get());
+        stats.put("skipped_for_budget", skippedForBudget.get());
+        stats.put("skipped_unavailable", skippedUnavailable.get());
+        stats.put("failures", failures.get());
+        stats.put("github_calls", allowance.calls());
+        stats.put("rate_limit", gitHubRateLimit.stats());
+        return stats;
+    }
+
+    private Mono<Void> prefetch() {
+        return requestHistoryService.popular(window, topN)
+                .flatMapMany(popular -> Flux.fromIterable(popular.repos()))
+                // Sequential on purpose: the budget is re-checked before every repository
+                .concatMap(repo -> {
+                    if (!gitHubRateLimit.allows(allowance)) {
+                        skippedForBudget.incrementAndGet();
+                        return Mono.empty();
+                    }
+                    // Resolving the URL registers local repositories again after a restart and
+                    // drops those no longer allowed, which no source could serve
+                    String repoUrl = repo.repoUrl();
+                    String[] ownerRepo = repoUrl != null ? gitHubService.extractOwnerRepo(repoUrl) : null;
+                    if (ownerRepo == null) {
+                        skippedUnavailable.incrementAndGet();
+                        return Mono.empty();
+                    }
+                    return refresh(ownerRepo[0], ownerRepo[1]);
+                })
+                .then()
+                .doOnSuccess(v -> {
+                    passes.incrementAndGet();
+                    lastPass = LocalDateTime.now();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Prefetch pass failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> refresh(String owner, String repo) {
+        String key = (owner + "/" + repo).toLowerCase();
+        return gitHubService.resolveRef(owner, repo)
+                .doOnNext(ref -> checked.incrementAndGet())
+                .filter(ref -> !ref.getHeadSha().equals(warmedHeads.get(key)))
+                .flatMap(ref -> gitHubService.warmRepository(owner, repo, ref.getHeadSha())
+                        .doOnSuccess(v -> {
+                            warmedHeads.put(key, ref.getHeadSha());
+                            refreshed.incrementAndGet();
+                        }))
+                .onErrorResume(e -> {
+                    failures.incrementAndGet();
+                    log.warn("Prefetch of {}/{} failed: {}", owner, repo, e.getMessage());
+                    return Mono.empty();
+                })
+                .contextWrite(GitHubRateLimit.priority(GitHubRateLimit.Priority.BACKGROUND, allowance));
+    }
+}
@@ -0,0 +1,207 @@
+package com.codeverse.backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out a file's language from its name, falling back to the interpreter named on a
+ * {@code #!} line for extensionless scripts. Names are checked first so that a blob shared by
+ * two paths can still be reported under each path's own language.
+ */
+public final class LanguageDetector {
+
+    public static final String OTHER = "Other";
+    public static final String BINARY = "Binary";
+
+    private static final Map<String, String> FILE_NAMES = new HashMap<>();
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+    private static final Map<String, String> INTERPRETERS = new HashMap<>();
+
+    // Skipped without reading the blob
+    private static final Set<String> BINARY_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "bmp", "ico", "webp", "tiff", "psd", "pdf", "zip", "gz", "tgz", "bz2", "xz",
+            "7z", "rar", "jar", "war", "class", "so", "dll", "dylib", "exe", "o", "a", "lib", "obj", "bin", "woff",
+            "woff2", "ttf", "otf", "eot", "mp3", "mp4", "wav", "ogg", "flac", "avi", "mov", "webm", "mkv", "pyc",
+            "wasm", "sqlite", "db", "dat", "jks", "keystore", "xlsx", "docx", "pptx", "xls", "doc", "ppt");
+
+    static {
+        fileNames("Makefile", "makefile", "gnumakefile", "bsdmakefile");
+        fileNames("Dockerfile", "dockerfile", "containerfile");
+        fileNames("CMake", "cmakelists.txt");
+        fileNames("Ruby", "gemfile", "rakefile", "podfile", "vagrantfile", "guardfile");
+        fileNames("Groovy", "jenkinsfile");
+        fileNames("Starlark", "build.bazel", "workspace", "buck");
+
+        extensions("Java", "java");
+        extensions("Kotlin", "kt", "kts");
+        extensions("Scala", "scala", "sc");
+        extensions("Groovy", "groovy", "gradle");
+        extensions("Clojure", "clj", "cljs", "cljc", "edn");
+        extensions("JavaScript", "js", "mjs", "cjs", "jsx");
+        extensions("TypeScript", "ts", "mts", "cts", "tsx");
+        extensions("Vue", "vue");
+        extensions("Svelte", "svelte");
+        extensions("Python", "py", "pyi", "pyw", "pyx");
+        extensions("Jupyter Notebook", "ipynb");
+        extensions("Ruby", "rb", "erb", "gemspec", "rake");
+        extensions("PHP", "php", "phtml");
+        extensions("Perl", "pl", "pm", "t");
+        extensions("Lua", "lua");
+        extensions("R", "r", "rmd");
+        extensions("Julia", "jl");
+        extensions("Go", "go");
+        extensions("Rust", "rs");
+        extensions("C", "c", "h");
+        extensions("C++", "cc", "cpp", "cxx", "c++", "hh", "hpp", "hxx", "ipp", "inl");
+        extensions("Objective-C", "m", "mm");
+        extensions("C#", "cs", "csx");
+        extensions("F#", "fs", "fsi", "fsx");
+        extensions("Visual Basic", "vb");
+        extensions("Swift", "swift");
+        extensions("Dart", "dart");
+        extensions("Elixir", "ex", "exs");
+        extensions("Erlang", "erl", "hrl");
+        extensions("Haskell", "hs", "lhs");
+        extensions("OCaml", "ml", "mli");
+        extensions("Zig", "zig");
+        extensions("Nim", "nim");
+        extensions("Assembly", "s", "asm");
+        extensions("Shell", "sh", "bash", "zsh", "ksh", "fish");
+        extensions("PowerShell", "ps1", "psm1", "psd1");
+        extensions("Batchfile", "bat", "cmd");
+        extensions("SQL", "sql");
+        extensions("HTML", "html", "htm", "xhtml");
+        extensions("CSS", "css");
+        extensions("SCSS", "scss", "sass");
+        extensions("Less", "less");
+        extensions("Markdown", "md", "markdown", "mdx");
+        extensions("reStructuredText", "rst");
+        extensions("AsciiDoc", "adoc", "asciidoc");
+        extensions("TeX", "tex", "sty", "cls");
+        extensions("JSON", "json", "jsonc", "json5");
+        extensions("YAML", "yml", "yaml");
+        extensions("TOML", "toml");
+        extensions("XML", "xml", "xsd", "xsl", "xslt", "pom", "plist", "csproj", "fsproj", "vbproj", "props");
+        extensions("SVG", "svg");
+        extensions("INI", "ini", "cfg", "conf", "properties");
+        extensions("Protocol Buffers", "proto");
+        extensions("GraphQL", "graphql", "gql");
+        extensions("HCL", "tf", "tfvars", "hcl");
+        extensions("Nix", "nix");
+        extensions("Starlark", "bzl", "star");
+        extensions("CMake", "cmake");
+        extensions("Makefile", "mk", "mak");
+        extensions("Dockerfile", "dockerfile");
+        extensions("Text", "txt");
+        extensions("CSV", "csv", "tsv");
+
+        interpreters("Shell", "sh", "bash", "zsh", "ksh", "dash", "ash", "fish");
+        interpreters("Python", "python", "pypy");
+        interpreters("JavaScript", "node", "nodejs");
+        interpreters("TypeScript", "deno", "ts-node", "bun");
+        interpreters("Ruby", "ruby", "jruby");
+        interpreters("Perl", "perl");
+        interpreters("PHP", "php");
+        interpreters("Lua", "lua", "luajit");
+        interpreters("R", "rscript");
+        interpreters("Groovy", "groovy");
+        interpreters("Scala", "scala");
+        interpreters("Elixir", "elixir");
+        interpreters("Erlang", "escript");
+        interpreters("Julia", "julia");
+        interpreters("Makefile", "make");
+        interpreters("Tcl", "tclsh", "wish");
+        interpreters("AWK", "awk", "gawk");
+        interpreters("PowerShell", "pwsh");
+    }
+
+    private LanguageDetector() {
+    }
+
+    /**
+     * Language of {@code name} judging by the name alone, or null when the name says nothing.
+     */
+    public static String fromName(String name) {
+        String lower = name.toLowerCase();
+        String language = FILE_NAMES.get(lower);
+        if (language != null) {
+            return language;
+        }
+        int dot = lower.lastIndexOf('.');
+        if (dot < 0 || dot == lower.length() - 1) {
+            return null;
+        }
+        String extension = lower.substring(dot + 1);
+        if (BINARY_EXTENSIONS.contains(extension)) {
+            return BINARY;
+        }
+        return EXTENSIONS.get(extension);
+    }
+
+    /**
+     * True when the name alone shows the file is binary, so its contents need not be read.
+     */
+    public static boolean isBinaryName(String name) {
+        return BINARY.equals(fromName(name));
+    }
+
+    /**
+     * Language of the interpreter on the {@code #!} line that starts {@code content}, or null.
+     * Reads bytes in place and does not move the buffer's position.
+     */
+    public static String fromShebang(ByteBuffer content) {
+        int start = content.position();
+        int limit = Math.min(content.limit(), start + 256);
+        if (limit - start < 3 || content.get(start) != '#' || content.get(start + 1) != '!') {
+            return null;
+        }
+        int end = start + 2;
+        while (end < limit && content.get(end) != '\n' && content.get(end) != '\r') {
+            end++;
+        }
+        byte[] line = new byte[end - start - 2];
+        content.get(start + 2, line);
+        String[] words = new String(line, StandardCharsets.US_ASCII).trim().split("\\s+");
+
+        // "#!/usr/bin/env -S python3 -u": skip env and its options
+        int i = 0;
+        String command = baseName(words[i]);
+        if (command.equals("env")) {
+            i++;
+            while (i < words.length && words[i].startsWith("-")) {
+                i++;
+            }
+            if (i == words.length) {
+                return null;
+            }
+            command = baseName(words[i]);
+        }
+        // python3.12 -> python
+        return INTERPRETERS.get(command.replaceAll("[0-9.]+$", ""));
+    }
+
+    private static String baseName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1).toLowerCase();
+    }
+
+    private static void fileNames(String language, String... names) {
+        for (String name : names) {
+            FILE_NAMES.put(name, language);
+        }
+    }
+
+    private static void extensions(String language, String... extensions) {
+        for (String extension : extensions) {
+            EXTENSIONS.put(extension, language);
+        }
+    }
+
+    private static void interpreters(String language, String... commands) {
+        for (String command : commands) {
+            INTERPRETERS.put(command, language);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.codeverse.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the model endpoint.
+ * <p>
+ * Requests wait in a bounded priority queue and are started while fewer than
+ * {@code max-concurrent} are running and the token bucket (refilled at
+ * {@code tokens-per-minute}) can cover their estimated cost. Interactive work is always
+ * dequeued before background work. 429 and 5xx answers are retried with jittered exponential
+ * backoff; repeated failures open a circuit breaker that rejects new work immediately until a
+ * single probe request succeeds.
+ */
+@Service
+public class LlmRequestScheduler {
+
+    public enum Priority {
+        INTERACTIVE, ANALYSIS, BACKGROUND
+    }
+
+    private enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final double tokensPerMinute;
+    private final int maxRetries;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long sequence;
+    private int running;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private boolean refillScheduled;
+
+    private CircuitState circuit = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilMillis;
+    private boolean probeInFlight;
+
+    @Autowired
+    public LlmRequestScheduler(@Value("${codeverse.llm.scheduler.max-concurrent:4}") int maxConcurrent,
+                               @Value("${codeverse.llm.scheduler.queue-capacity:100}") int queueCapacity,
+                               @Value("${codeverse.llm.scheduler.tokens-per-minute:60000}") double tokensPerMinute,
+                               @Value("${codeverse.llm.scheduler.max-retries:3}") int maxRetries,
+                               @Value("${codeverse.llm.scheduler.failure-threshold:5}") int failureThreshold,
+                               @Value("${codeverse.llm.scheduler.open-duration:30s}") Duration openDuration) {
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxRetries = maxRetries;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.tokens = tokensPerMinute;
+    }
+
+    public <T> Mono<T> submit(Priority priority, int tokenCost, Supplier<Mono<T>> call) {
+        return submitMany(priority, tokenCost, () -> call.get().flux()).singleOrEmpty();
+    }
+
+    /**
+     * Schedules a streaming call. The concurrency slot is held until the stream terminates or
+     * is cancelled, and a failure is only retried while nothing has been emitted yet, so a
+     * caller never sees duplicated output. A request cancelled after it was admitted but
+     * before the call started gives back its slot and its tokens.
+     */
+    public <T> Flux<T> submitMany(Priority priority, int tokenCost, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            boolean probe;
+            try {
+                probe = acquireCircuit();
+            } catch (LlmUnavailableException e) {
+                return Flux.error(e);
+            }
+
+            AtomicBoolean emitted = new AtomicBoolean();
+            Task task = new Task(priority, tokenCost);
+            Mono<Void> admission = Mono.create(sink -> enqueue(task, sink));
+            return admission
+                    .thenMany(Flux.defer(() -> {
+                                start(task);
+                                return call.get();
+                            })
+                            .doOnNext(value -> emitted.set(true))
+                            .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500))
+                                    .maxBackoff(Duration.ofSeconds(8))
+                                    .jitter(0.5)
+                                    .filter(e -> !emitted.get() && isRetryable(e))
+                                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                            .doOnComplete(this::recordSuccess)
+                            .doOnError(this::recordFailure))
+                    // Covers every way out, including a cancel between admission and the call
+                    .doFinally(signal -> {
+                        finish(task);
+                        if (probe) {
+                            synchronized (lock) {
+                                probeInFlight = false;
+                            }
+                        }
+                    });
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            refill();
+            stats.put("queued", queue.size());
+            stats.put("running", running);
+            stats.put("tokens_available", (long) tokens);
+            stats.put("circuit", circuit.name().toLowerCase());
+            stats.put("consecutive_failures", consecutiveFailures);
+        }
+        return stats;
+    }
+
+    /**
+     * Lets the request through the circuit breaker, or throws. Returns true when the request
+     * is the half-open probe.
+     */
+    private boolean acquireCircuit() {
+        synchronized (lock) {
+            if (circuit == CircuitState.OPEN) {
+                long remaining = openUntilMillis - System.currentTimeMillis();
+                if (remaining > 0) {
+                    throw new LlmUnavailableException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "AI service is temporarily unavailable", Duration.ofMillis(remaining));
+                }
+                circuit = CircuitState.HALF_OPEN;
+            }
+            if (circuit == CircuitState.HALF_OPEN) {
+                if (probeInFlight) {
+                    throw new LlmUnavailableException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "AI service is recovering, try again shortly", Duration.ofSeconds(1));
+                }
+                probeInFlight = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void enqueue(Task task, MonoSink<Void> sink) {
+        synchronized (lock) {
+            if (task.state != TaskState.NEW) {
+                return;
+            }
+            if (queue.size() >= queueCapacity) {
+                task.state = TaskState.DONE;
+                sink.error(new LlmUnavailableException(HttpStatus.TOO_MANY_REQUESTS,
+                        "AI request queue is full", Duration.ofSeconds(5)));
+                return;
+            }
+            task.sequence = sequence++;
+            task.sink = sink;
+            task.state = TaskState.QUEUED;
+            queue.add(task);
+        }
+        sink.onCancel(() -> finish(task));
+        dispatch();
+    }
+
+    private void dispatch() {
+        List<Task> ready = new ArrayList<>();
+        synchronized (lock) {
+            refill();
+            while (running < maxConcurrent && !queue.isEmpty()) {
+                Task head = queue.peek();
+                // A single request larger than the whole budget waits for a full bucket
+                double cost = Math.min(head.tokenCost, tokensPerMinute);
+                if (tokens < cost) {
+                    if (!refillScheduled) {
+                        refillScheduled = true;
+                        long delayMillis = (long) Math.ceil((cost - tokens) / tokensPerMinute * 60_000);
+                        Schedulers.parallel().schedule(() -> {
+                            synchronized (lock) {
+                                refillScheduled = false;
+                            }
+                            dispatch();
+                        }, Math.max(delayMillis, 1), TimeUnit.MILLISECONDS);
+                    }
+                    break;
+                }
+                queue.poll();
+                if (head.state != TaskState.QUEUED) {
+                    continue;
+                }
+                tokens -= cost;
+                running++;
+                head.charged = cost;
+                head.state = TaskState.ADMITTED;
+                ready.add(head);
+            }
+        }
+        // Outside the lock; a task cancelled in the meantime has already given its slot back
+        for (Task task : ready) {
+            task.sink.success();
+        }
+    }
+
+    private void start(Task task) {
+        synchronized (lock) {
+            if (task.state == TaskState.ADMITTED) {
+                task.state = TaskState.STARTED;
+            }
+        }
+    }
+
+    /**
+     * Takes {@code task} out of the scheduler, whatever state it reached. Idempotent, so both
+     * the admission sink and the request stream can call it.
+     */
+    private void finish(Task task) {
+        boolean released;
+        synchronized (lock) {
+            TaskState state = task.state;
+            task.state = TaskState.DONE;
+            released = state == TaskState.ADMITTED || state == TaskState.STARTED;
+            if (state == TaskState.QUEUED) {
+                queue.remove(task);
+            } else if (released) {
+                running--;
+                if (state == TaskState.ADMITTED) {
+                    // Admitted but the call never went out: the tokens were not spent
+                    refill();
+                    tokens = Math.min(tokensPerMinute, tokens + task.charged);
+                }
+            }
+        }
+        if (released) {
+            dispatch();
+        }
+    }
+
+    // Caller holds the lock
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(tokensPerMinute, tokens + (now - lastRefillNanos) / 60e9 * tokensPerMinute);
+        lastRefillNanos = now;
+    }
+
+    private void recordSuccess() {
+        synchronized (lock) {
+            consecutiveFailures = 0;
+            circuit = CircuitState.CLOSED;
+        }
+    }
+
+    private void recordFailure(Throwable e) {
+        if (!isRetryable(e)) {
+            return;
+        }
+        synchronized (lock) {
+            consecutiveFailures++;
+            if (circuit == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                circuit = CircuitState.OPEN;
+                openUntilMillis = System.currentTimeMillis() + openDuration.toMillis();
+            }
+        }
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientResponseException wce) {
+            return wce.getStatusCode().value() == 429 || wce.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException;
+    }
+
+    private enum TaskState {
+        NEW, QUEUED, ADMITTED, STARTED, DONE
+    }
+
+    // Mutable fields are guarded by the scheduler lock
+    private static final class Task implements Comparable<Task> {
+
+        private final Priority priority;
+        private final int tokenCost;
+        private long sequence;
+        private MonoSink<Void> sink;
+        private TaskState state = TaskState.NEW;
+        private double charged;
+
+        private Task(Priority priority, int tokenCost) {
+            this.priority = priority;
+            this.tokenCost = tokenCost;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
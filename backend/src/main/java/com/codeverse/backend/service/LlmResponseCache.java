@@ -0,0 +1,160 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.LlmResponse;
+import com.codeverse.backend.repository.LlmResponseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache for model completions, keyed by a hash of everything that determines the output.
+ * <p>
+ * Lookups go through an in-memory LRU, then the {@code llm_responses} collection, then the
+ * model. Concurrent requests for the same key share one in-flight {@link Mono}, so a burst of
+ * identical requests costs a single upstream call. Only successful completions are stored.
+ */
+@Service
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final LlmResponseRepository llmResponseRepository;
+    private final long maxMemoryBytes;
+    private final StageMetrics stageMetrics;
+
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final Map<String, Mono<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong mongoHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public LlmResponseCache(LlmResponseRepository llmResponseRepository,
+                            @Value("${codeverse.cache.llm.max-memory-bytes:16777216}") long maxMemoryBytes,
+                            StageMetrics stageMetrics) {
+        this.llmResponseRepository = llmResponseRepository;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.stageMetrics = stageMetrics;
+    }
+
+    public Mono<String> get(String key, String operation, String model, Supplier<Mono<String>> loader) {
+        return Mono.defer(() -> {
+            synchronized (memory) {
+                String cached = memory.get(key);
+                if (cached != null) {
+                    memoryHits.incrementAndGet();
+                    return Mono.just(cached);
+                }
+            }
+
+            boolean[] created = new boolean[1];
+            Mono<String> shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return load(k, operation, model, loader)
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache();
+            });
+            if (!created[0]) {
+                coalesced.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memory) {
+            stats.put("memory_entries", memory.size());
+            stats.put("memory_bytes", memoryBytes);
+        }
+        stats.put("memory_hits", memoryHits.get());
+        stats.put("mongo_hits", mongoHits.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    /**
+     * Looks the key up in memory and MongoDB without ever calling the model.
+     */
+    public Mono<String> lookup(String key) {
+        return Mono.defer(() -> {
+            synchronized (memory) {
+                String cached = memory.get(key);
+                if (cached != null) {
+                    memoryHits.incrementAndGet();
+                    return Mono.just(cached);
+                }
+            }
+            return findStored(key);
+        });
+    }
+
+    public void store(String key, String operation, String model, String content) {
+        putInMemory(key, content);
+        LlmResponse response = new LlmResponse();
+        response.setId(key);
+        response.setOperation(operation);
+        response.setModel(model);
+        response.setContent(content);
+        response.setCreatedTime(LocalDateTime.now());
+        llmResponseRepository.save(response)
+                .subscribe(saved -> { }, e -> log.warn("LLM cache write failed: {}", e.getMessage()));
+    }
+
+    private Mono<String> load(String key, String operation, String model, Supplier<Mono<String>> loader) {
+        return findStored(key).switchIfEmpty(Mono.defer(() -> {
+            misses.incrementAndGet();
+            return loader.get().doOnNext(content -> store(key, operation, model, content));
+        }));
+    }
+
+    private Mono<String> findStored(String key) {
+        return llmResponseRepository.findById(key)
+                .transform(read -> stageMetrics.time("mongo.llm_read", read))
+                .map(LlmResponse::getContent)
+                .doOnNext(content -> {
+                    mongoHits.incrementAndGet();
+                    putInMemory(key, content);
+                })
+                .onErrorResume(e -> {
+                    log.warn("LLM cache lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private void putInMemory(String key, String content) {
+        long size = 2L * content.length();
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            String previous = memory.put(key, content);
+            if (previous != null) {
+                memoryBytes -= 2L * previous.length();
+            }
+            memoryBytes += size;
+
+            Iterator<Map.Entry<String, String>> it = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+                memoryBytes -= 2L * it.next().getValue().length();
+                it.remove();
+            }
+        }
+    }
+}
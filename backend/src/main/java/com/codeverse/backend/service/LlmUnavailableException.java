@@ -0,0 +1,30 @@
+package com.codeverse.backend.service;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Raised when the model cannot take a request right now, either because the admission queue
+ * is full or because the circuit breaker is open. Carries the HTTP status to answer with and,
+ * when known, how long the caller should wait before retrying.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public LlmUnavailableException(HttpStatus status, String message, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,562 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.*;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Serves repositories from local bare mirrors instead of the GitHub API.
+ * <p>
+ * A repository is cloned once with {@code --mirror} into {@code mirror.dir} and brought up
+ * to date with an incremental fetch at most every {@code refresh-interval}, so a busy
+ * repository costs one fetch per interval however many requests it gets. Trees and blobs are
+ * then read straight from the packfiles through JGit's window cache, configured to
+ * memory-map pack windows, so walking even a very large tree is local I/O only. When a fetch
+ * fails the existing mirror keeps being served.
+ * <p>
+ * {@code file://} repositories are always mirrored, but only from below one of
+ * {@code allowed-file-roots} (none by default). GitHub repositories are mirrored instead of
+ * going through the REST API when {@code codeverse.source.default=mirror}.
+ * <p>
+ * Mirrors are bounded by {@code max-mirrors} and {@code max-disk-bytes}: after a clone or
+ * fetch the least recently used mirrors that no request is reading are closed and deleted
+ * until both limits hold again. Mirrors left by an earlier run count from startup.
+ */
+@Service
+public class LocalMirrorSource implements RepositorySource {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalMirrorSource.class);
+
+    static final String FILE_OWNER_PREFIX = "local-";
+
+    // GitHub's rule for owner and repository names; they become directory names under mirror.dir
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final Path mirrorDir;
+    private final Duration refreshInterval;
+    private final int maxMirrors;
+    private final long maxDiskBytes;
+    private final StageMetrics stageMetrics;
+    private final boolean mirrorGitHub;
+    private final List<Path> allowedFileRoots;
+
+    @Value("${github.api.token:}") // Optional token
+    private String githubToken;
+
+    private final Map<String, URI> fileRemotes = new ConcurrentHashMap<>();
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+    private final Object budgetLock = new Object();
+
+    private final AtomicLong clones = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong fetchFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Fields other than the atomics are guarded by the mirror's monitor
+    private static final class Mirror {
+        final Path dir;
+        String remote;
+        Repository repository;
+        // False for a mirror left by an earlier run until it has been fetched once
+        boolean fetched;
+        long lastFetchNanos;
+        // Set once the mirror is deleted; a caller still holding it has to look it up again
+        boolean evicted;
+        final AtomicInteger users = new AtomicInteger();
+        volatile long lastUsedNanos = System.nanoTime();
+        volatile long diskBytes;
+
+        Mirror(Path dir, String remote) {
+            this.dir = dir;
+            this.remote = remote;
+        }
+    }
+
+    @Autowired
+    public LocalMirrorSource(@Value("${codeverse.mirror.dir:${java.io.tmpdir}/codeverse-mirrors}") Path mirrorDir,
+                             @Value("${codeverse.mirror.refresh-interval:60s}") Duration refreshInterval,
+                             @Value("${codeverse.source.default:rest}") String defaultSource,
+                             @Value("${codeverse.mirror.allowed-file-roots:}") List<String> allowedFileRoots,
+                             @Value("${codeverse.mirror.packed-git-limit:268435456}") long packedGitLimit,
+                             @Value("${codeverse.mirror.packed-git-window-size:1048576}") int packedGitWindowSize,
+                             @Value("${codeverse.mirror.max-mirrors:100}") int maxMirrors,
+                             @Value("${codeverse.mirror.max-disk-bytes:10737418240}") long maxDiskBytes,
+                             StageMetrics stageMetrics) {
+        this.mirrorDir = mirrorDir.toAbsolutePath().normalize();
+        this.refreshInterval = refreshInterval;
+        this.maxMirrors = maxMirrors;
+        this.maxDiskBytes = maxDiskBytes;
+        this.stageMetrics = stageMetrics;
+        this.mirrorGitHub = "mirror".equalsIgnoreCase(defaultSource);
+        this.allowedFileRoots = allowedFileRoots.stream()
+                .filter(root -> !root.isBlank())
+                .map(root -> Path.of(root).toAbsolutePath().normalize())
+                .toList();
+
+        // JGit's pack cache is process wide
+        WindowCacheConfig config = new WindowCacheConfig();
+        config.setPackedGitMMAP(true);
+        config.setPackedGitLimit(packedGitLimit);
+        config.setPackedGitWindowSize(packedGitWindowSize);
+        config.install();
+    }
+
+    // Mirrors from an earlier run take disk space before anyone asks for them
+    @PostConstruct
+    void loadExistingMirrors() {
+        if (!Files.isDirectory(mirrorDir)) {
+            return;
+        }
+        try (var owners = Files.list(mirrorDir)) {
+            for (Path ownerDir : owners.filter(Files::isDirectory).toList()) {
+                try (var repos = Files.list(ownerDir)) {
+                    for (Path dir : repos.filter(d -> d.getFileName().toString().endsWith(".git")
+                            && Files.isDirectory(d.resolve("objects"))).toList()) {
+                        String name = dir.getFileName().toString();
+                        Mirror mirror = new Mirror(dir, null);
+                        mirror.diskBytes = diskUsage(dir);
+                        mirror.lastUsedNanos = System.nanoTime() - Duration.ofDays(1).toNanos();
+                        mirrors.putIfAbsent(ownerDir.getFileName() + "/" + name.substring(0, name.length() - 4), mirror);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to list existing mirrors in {}: {}", mirrorDir, e.getMessage());
+        }
+        enforceBudget();
+    }
+
+    /**
+     * Whether requests for {@code owner/repo} should be served from a mirror.
+     */
+    public boolean handles(String owner, String repo) {
+        return mirrorGitHub || (isValidName(owner) && isValidName(repo) && fileRemotes.containsKey(key(owner, repo)));
+    }
+
+    /**
+     * Accepts a {@code file://} repository URL and returns the owner/repo pair it will be
+     * known by: {@code local-<hash of the full path>} and the directory name without
+     * {@code .git}. The hash keeps {@code /a/team/app} and {@code /b/team/app} apart.
+     */
+    public String[] register(URI uri) {
+        Path path;
+        try {
+            path = Path.of(uri).toAbsolutePath().normalize();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid repository URL");
+        }
+        if (allowedFileRoots.stream().noneMatch(path::startsWith)) {
+            throw new IllegalArgumentException("Local repositories are not allowed from " + path);
+        }
+        String owner = FILE_OWNER_PREFIX + pathHash(path);
+        String repo = path.getFileName() != null
+                ? path.getFileName().toString().replaceAll("\\.git$", "").replaceAll("[^A-Za-z0-9._-]", "-")
+                : "root";
+        if (!isValidName(repo)) {
+            repo = "root";
+        }
+        fileRemotes.put(key(owner, repo), path.toUri());
+        return new String[]{owner, repo};
+    }
+
+    @Override
+    public Mono<RepoRef> resolveRef(String owner, String repo) {
+        return withRepository(owner, repo, true, repository -> {
+            Ref head = repository.exactRef(Constants.HEAD);
+            if (head == null || head.getObjectId() == null) {
+                throw new IllegalArgumentException("Repository has no commits");
+            }
+            String branch = head.isSymbolic() ? Repository.shortenRefName(head.getTarget().getName()) : head.getObjectId().name();
+            return new RepoRef(branch, null, head.getObjectId().name(), null);
+        });
+    }
+
+    @Override
+    public Mono<String> resolveCommit(String owner, String repo, String revision) {
+        return withRepository(owner, repo, true, repository -> {
+            ObjectId id = repository.resolve(revision + "^{commit}");
+            if (id == null) {
+                throw new IllegalArgumentException("Unknown revision: " + revision);
+            }
+            return id.name();
+        });
+    }
+
+    @Override
+    public Mono<TreeWalker.Subtree> listTree(String owner, String repo, String treeish) {
+        return withRepository(owner, repo, false, repository -> {
+            List<TreeEntry> entries = new ArrayList<>();
+            try (RevWalk revWalk = new RevWalk(repository); TreeWalk treeWalk = new TreeWalk(repository)) {
+                treeWalk.addTree(rootTree(repository, revWalk, treeish));
+                ObjectReader reader = treeWalk.getObjectReader();
+                while (treeWalk.next()) {
+                    ObjectId id = treeWalk.getObjectId(0);
+                    if (treeWalk.isSubtree()) {
+                        entries.add(new TreeEntry(treeWalk.getNameString(), "dir", id.name(), null));
+                    } else if (treeWalk.getFileMode(0) == FileMode.GITLINK) {
+                        entries.add(new TreeEntry(treeWalk.getNameString(), "file", id.name(), null));
+                    } else {
+                        entries.add(new TreeEntry(treeWalk.getNameString(), "file", id.name(), reader.getObjectSize(id, Constants.OBJ_BLOB)));
+                    }
+                }
+            }
+            return new TreeWalker.Subtree(entries, false);
+        });
+    }
+
+    @Override
+    public Mono<RepoTree> fetchTree(String owner, String repo, String sha) {
+        return withRepository(owner, repo, false, repository -> {
+            List<TreeEntry> entries = new ArrayList<>();
+            try (RevWalk revWalk = new RevWalk(repository); TreeWalk treeWalk = new TreeWalk(repository)) {
+                treeWalk.addTree(rootTree(repository, revWalk, sha));
+                ObjectReader reader = treeWalk.getObjectReader();
+                while (treeWalk.next()) {
+                    ObjectId id = treeWalk.getObjectId(0);
+                    FileMode mode = treeWalk.getFileMode(0);
+                    if (treeWalk.isSubtree()) {
+                        entries.add(new TreeEntry(treeWalk.getPathString(), "dir", id.name(), null));
+                        treeWalk.enterSubtree();
+                    } else if (mode == FileMode.GITLINK) {
+                        entries.add(new TreeEntry(treeWalk.getPathString(), "file", id.name(), null));
+                    } else {
+                        // Reads the object header from the pack index and pack only; no inflation of the content
+                        entries.add(new TreeEntry(treeWalk.getPathString(), "file", id.name(), reader.getObjectSize(id, Constants.OBJ_BLOB)));
+                    }
+                }
+            }
+            return GitHubRestSource.newTree(owner, repo, sha, entries, false);
+        });
+    }
+
+    @Override
+    public Mono<byte[]> fetchFile(String owner, String repo, String ref, String path) {
+        return withRepository(owner, repo, false, repository -> {
+            try (RevWalk revWalk = new RevWalk(repository);
+                 TreeWalk treeWalk = TreeWalk.forPath(repository, path, rootTree(repository, revWalk, ref))) {
+                if (treeWalk == null || treeWalk.isSubtree() || treeWalk.getFileMode(0) == FileMode.GITLINK) {
+                    throw new FileNotFoundException("File not found: " + path);
+                }
+                ObjectLoader loader = repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+                return loader.isLarge() ? loader.openStream().readAllBytes() : loader.getBytes();
+            }
+        });
+    }
+
+    /**
+     * Reads the whole blob and answers a single {@code bytes=} range from it; local blob
+     * reads are cheap enough that streaming from the pack is not worth the complexity.
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<DataBuffer>>> openFile(String owner, String repo, String ref, String path, String range) {
+        return fetchFile(owner, repo, ref, path).map(bytes -> {
+            MediaType type = MediaTypeFactory.getMediaType(path).orElse(MediaType.TEXT_PLAIN);
+            List<HttpRange> ranges;
+            try {
+                ranges = range != null && !range.isEmpty() ? HttpRange.parseRanges(range) : List.of();
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() != 1) {
+                return ResponseEntity.ok()
+                        .contentType(type)
+                        .contentLength(bytes.length)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)));
+            }
+            long start = ranges.get(0).getRangeStart(bytes.length);
+            long end = ranges.get(0).getRangeEnd(bytes.length);
+            if (bytes.length == 0 || start >= bytes.length) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + bytes.length)
+                        .body(Flux.<DataBuffer>empty());
+            }
+            int length = (int) (end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(type)
+                    .contentLength(length)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + bytes.length)
+                    .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(bytes, (int) start, length))));
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mirrors", mirrors.size());
+        stats.put("disk_bytes", mirrors.values().stream().mapToLong(mirror -> mirror.diskBytes).sum());
+        stats.put("clones", clones.get());
+        stats.put("fetches", fetches.get());
+        stats.put("fetch_failures", fetchFailures.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    @PreDestroy
+    void close() {
+        for (Mirror mirror : mirrors.values()) {
+            synchronized (mirror) {
+                if (mirror.repository != null) {
+                    mirror.repository.close();
+                }
+            }
+        }
+    }
+
+    private interface RepositoryCall<T> {
+        T apply(Repository repository) throws IOException;
+    }
+
+    // Git I/O blocks, so every call runs on the bounded elastic pool
+    private <T> Mono<T> withRepository(String owner, String repo, boolean refresh, RepositoryCall<T> call) {
+        return Mono.fromCallable(() -> {
+                    Mirror mirror = open(owner, repo, refresh);
+                    try {
+                        return call.apply(mirror.repository);
+                    } finally {
+                        // Only now may the mirror be evicted
+                        mirror.users.decrementAndGet();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .transform(read -> stageMetrics.time("mirror", read));
+    }
+
+    /**
+     * Returns the mirror of {@code owner/repo}, cloned and open, counted as in use; the caller
+     * decrements {@link Mirror#users} when done.
+     */
+    private Mirror open(String owner, String repo, boolean refresh) throws IOException {
+        String key = key(owner, repo);
+        Path dir = mirrorDir.resolve(key + ".git").normalize();
+        if (!dir.startsWith(mirrorDir) || dir.equals(mirrorDir)) {
+            throw new IllegalArgumentException("Invalid repository name");
+        }
+        URI fileRemote = fileRemotes.get(key);
+        String remote = fileRemote != null ? fileRemote.toString() : "https://github.com/" + owner + "/" + repo + ".git";
+        while (true) {
+            Mirror mirror = mirrors.computeIfAbsent(key, k -> new Mirror(dir, remote));
+            mirror.users.incrementAndGet();
+            mirror.lastUsedNanos = System.nanoTime();
+            boolean grown = false;
+            try {
+                // One clone or fetch per repository at a time; callers for the same repository wait for it
+                synchronized (mirror) {
+                    if (mirror.evicted) {
+                        mirror.users.decrementAndGet();
+                        continue;
+                    }
+                    mirror.remote = remote;
+                    if (mirror.repository == null) {
+                        if (!Files.isDirectory(mirror.dir.resolve("objects"))) {
+                            cloneMirror(mirror);
+                            grown = true;
+                        }
+                        mirror.repository = new FileRepositoryBuilder().setGitDir(mirror.dir.toFile()).setMustExist(true).build();
+                    }
+                    if (refresh && (!mirror.fetched || System.nanoTime() - mirror.lastFetchNanos > refreshInterval.toNanos())) {
+                        fetch(mirror);
+                        grown = true;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                mirror.users.decrementAndGet();
+                throw e;
+            }
+            // Outside the mirror's monitor: eviction takes other mirrors' monitors
+            if (grown) {
+                mirror.diskBytes = diskUsage(mirror.dir);
+                enforceBudget();
+            }
+            return mirror;
+        }
+    }
+
+    /**
+     * Deletes the least recently used idle mirrors until the count and disk limits hold.
+     * Mirrors in use are skipped, so the limits can be exceeded while they are being read.
+     */
+    private void enforceBudget() {
+        synchronized (budgetLock) {
+            List<Map.Entry<String, Mirror>> byAge = new ArrayList<>(mirrors.entrySet());
+            byAge.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsedNanos));
+            int count = byAge.size();
+            long bytes = byAge.stream().mapToLong(entry -> entry.getValue().diskBytes).sum();
+            for (Map.Entry<String, Mirror> entry : byAge) {
+                if (count <= maxMirrors && bytes <= maxDiskBytes) {
+                    break;
+                }
+                Mirror mirror = entry.getValue();
+                if (mirror.users.get() > 0) {
+                    continue;
+                }
+                synchronized (mirror) {
+                    if (mirror.users.get() > 0 || mirror.evicted) {
+                        continue;
+                    }
+                    mirror.evicted = true;
+                    mirrors.remove(entry.getKey(), mirror);
+                    if (mirror.repository != null) {
+                        mirror.repository.close();
+                        mirror.repository = null;
+                    }
+                    deleteQuietly(mirror.dir);
+                }
+                count--;
+                bytes -= mirror.diskBytes;
+                evictions.incrementAndGet();
+                log.info("Evicted mirror {} ({} bytes)", entry.getKey(), mirror.diskBytes);
+            }
+        }
+    }
+
+    // Clones next to the final location and renames, so a failed clone never looks like a mirror
+    private void cloneMirror(Mirror mirror) throws IOException {
+        Files.createDirectories(mirror.dir.getParent());
+        Path staging = mirror.dir.resolveSibling(mirror.dir.getFileName() + ".tmp-" + System.nanoTime());
+        try (Git git = Git.cloneRepository()
+                .setURI(mirror.remote)
+                .setDirectory(staging.toFile())
+                .setBare(true)
+                .setMirror(true)
+                .setCredentialsProvider(credentials())
+                .call()) {
+            clones.incrementAndGet();
+        } catch (InvalidRemoteException e) {
+            deleteQuietly(staging);
+            throw new IllegalArgumentException("Repository not found");
+        } catch (GitAPIException e) {
+            deleteQuietly(staging);
+            throw new IOException("Failed to mirror repository: " + e.getMessage(), e);
+        }
+        Files.move(staging, mirror.dir, StandardCopyOption.ATOMIC_MOVE);
+        mirror.fetched = true;
+        mirror.lastFetchNanos = System.nanoTime();
+    }
+
+    private void fetch(Mirror mirror) {
+        try {
+            Git.wrap(mirror.repository).fetch()
+                    .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                    .setRemoveDeletedRefs(true)
+                    .setCredentialsProvider(credentials())
+                    .call();
+            fetches.incrementAndGet();
+        } catch (GitAPIException e) {
+            fetchFailures.incrementAndGet();
+            log.warn("Mirror fetch failed for {}, serving the existing mirror: {}", mirror.remote, e.getMessage());
+        }
+        // Also after a failure, so an unreachable remote is retried once per interval and not per request
+        mirror.fetched = true;
+        mirror.lastFetchNanos = System.nanoTime();
+    }
+
+    private CredentialsProvider credentials() {
+        return githubToken != null && !githubToken.isEmpty()
+                ? new UsernamePasswordCredentialsProvider("x-access-token", githubToken)
+                : null;
+    }
+
+    // A commit (or anything peeling to a tree) named by SHA, branch or tag
+    private static RevTree rootTree(Repository repository, RevWalk revWalk, String revision) throws IOException {
+        ObjectId id = repository.resolve(revision);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown revision: " + revision);
+        }
+        try {
+            RevObject object = revWalk.peel(revWalk.parseAny(id));
+            if (object instanceof RevCommit commit) {
+                return commit.getTree();
+            }
+            if (object instanceof RevTree tree) {
+                return tree;
+            }
+        } catch (MissingObjectException e) {
+            throw new IllegalArgumentException("Unknown revision: " + revision);
+        }
+        throw new IllegalArgumentException("Not a commit or tree: " + revision);
+    }
+
+    private static long diskUsage(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to measure {}: {}", dir, e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to clean up {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static String pathHash(Path path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isValidName(String name) {
+        return name != null && NAME.matcher(name).matches() && !name.equals(".") && !name.equals("..");
+    }
+
+    // Names from the request end up in a path below mirror.dir, so anything else is refused
+    private static String key(String owner, String repo) {
+        if (!isValidName(owner) || !isValidName(repo)) {
+            throw new IllegalArgumentException("Invalid repository name");
+        }
+        return owner.toLowerCase() + "/" + repo.toLowerCase();
+    }
+}
@@ -1,21 +1,43 @@
 package com.codeverse.backend.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class OpenAIService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
+
+    // Bump whenever a prompt template changes so cached completions are not reused
+    private static final int PROMPT_TEMPLATE_VERSION = 1;
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final AnalysisMerger analysisMerger;
+    private final LlmResponseCache llmResponseCache;
+    private final LlmRequestScheduler llmRequestScheduler;
+    private final StageMetrics stageMetrics;
 
     @Value("${huggingface.api.url}")
     private String apiUrl;
@@ -26,9 +48,23 @@ public class OpenAIService {
     @Value("${huggingface.api.model}")
     private String modelName;
 
-    public OpenAIService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
+    @Value("${codeverse.llm.chunking.max-chunk-tokens:3000}")
+    private int maxChunkTokens;
+
+    @Value("${codeverse.llm.chunking.max-chunk-lines:400}")
+    private int maxChunkLines;
+
+    @Value("${codeverse.llm.chunking.concurrency:4}")
+    private int chunkConcurrency;
+
+    public OpenAIService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper, LlmResponseCache llmResponseCache,
+                         LlmRequestScheduler llmRequestScheduler, StageMetrics stageMetrics) {
         this.webClient = webClientBuilder.build();
         this.objectMapper = objectMapper;
+        this.analysisMerger = new AnalysisMerger(objectMapper);
+        this.llmResponseCache = llmResponseCache;
+        this.llmRequestScheduler = llmRequestScheduler;
+        this.stageMetrics = stageMetrics;
     }
 
     public Mono<String> explainCode(String codeSnippet) {
@@ -45,17 +81,28 @@ public class OpenAIService {
         requestBody.put("max_tokens", 500);
         requestBody.put("temperature", 0.7);
 
-        return makeRequest(requestBody);
+        return makeRequest("explain_code", requestBody);
     }
 
-    public Mono<String> summarizeRepository(String readmeContent, List<String> fileStructure, String mode, String length, String languageLevel) {
+    public Mono<String> summarizeRepository(String context, String mode, String length, String languageLevel) {
         if (apiToken == null || apiToken.isEmpty()) {
             return Mono.error(new IllegalStateException("Hugging Face API token not configured"));
         }
+        return makeRequest("summarize_repository", summarizeRepositoryRequest(context, mode, length, languageLevel));
+    }
 
-        String truncatedReadme = readmeContent.length() > 4000 ? readmeContent.substring(0, 4000) + "..." : readmeContent;
-        String fileList = String.join("\n", fileStructure.subList(0, Math.min(fileStructure.size(), 60)));
+    public Flux<String> streamSummarizeRepository(String context, String mode, String length, String languageLevel) {
+        if (apiToken == null || apiToken.isEmpty()) {
+            return Flux.error(new IllegalStateException("Hugging Face API token not configured"));
+        }
+        return streamRequest("summarize_repository", summarizeRepositoryRequest(context, mode, length, languageLevel));
+    }
 
+    /**
+     * {@code context} is the packed repository context (outline, README and key files), already
+     * cut to the summary token budget.
+     */
+    Map<String, Object> summarizeRepositoryRequest(String context, String mode, String length, String languageLevel) {
         boolean isBulletMode = "bullet".equalsIgnoreCase(mode);
 
         // Define strict JSON structure based on mode
@@ -97,8 +144,7 @@ public class OpenAIService {
                 Analyze this GitHub repository and generate a structured summary.
                 
                 CONTEXT:
-                README: %s
-                FILES: %s
+                %s
                 
                 INSTRUCTIONS:
                 1. Mode: %s
@@ -108,7 +154,7 @@ public class OpenAIService {
                 
                 REQUIRED JSON STRUCTURE:
                 %s
-                """, truncatedReadme, fileList, mode, lengthInstruction, toneInstruction, jsonStructure);
+                """, context, mode, lengthInstruction, toneInstruction, jsonStructure);
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", modelName);
@@ -119,21 +165,41 @@ public class OpenAIService {
         requestBody.put("max_tokens", 1500);
         requestBody.put("temperature", 0.3);
 
-        return makeRequest(requestBody);
+        return requestBody;
     }
 
     public Mono<String> analyzeFile(String fileContent, String languageLevel) {
         if (apiToken == null || apiToken.isEmpty()) {
             return Mono.error(new IllegalStateException("Hugging Face API token not configured"));
         }
+        SourceChunker chunker = new SourceChunker(maxChunkTokens, maxChunkLines);
+        if (chunker.fits(fileContent)) {
+            return makeRequest("analyze_file", analyzeFileRequest(fileContent, languageLevel, null));
+        }
+        List<SourceChunker.Chunk> chunks = chunker.split(fileContent);
+        return analyzeChunks(chunks, chunk -> makeRequest("analyze_file", analyzeFileRequest(chunk.text(), languageLevel, excerptNote(chunk, chunks))))
+                .map(answers -> analysisMerger.mergeAnalyses(chunks, answers));
+    }
+
+    public Flux<String> streamAnalyzeFile(String fileContent, String languageLevel) {
+        if (apiToken == null || apiToken.isEmpty()) {
+            return Flux.error(new IllegalStateException("Hugging Face API token not configured"));
+        }
+        // A large file is analyzed in chunks and can only be delivered once merged
+        if (!new SourceChunker(maxChunkTokens, maxChunkLines).fits(fileContent)) {
+            return analyzeFile(fileContent, languageLevel).flux();
+        }
+        return streamRequest("analyze_file", analyzeFileRequest(fileContent, languageLevel, null));
+    }
 
+    Map<String, Object> analyzeFileRequest(String fileContent, String languageLevel, String excerptNote) {
         String toneInstruction = switch (languageLevel.toLowerCase()) {
             case "beginner" -> "Explain like I'm a complete beginner. Use simple analogies.";
             case "technical" -> "Provide a deep, technical analysis for an expert developer.";
             default -> "Provide a standard, developer-friendly explanation.";
         };
 
-        String prompt = String.format("""
+        String prompt = (excerptNote != null ? excerptNote : "") + String.format("""
             Analyze the following code file and generate a structured analysis.
             
             CODE:
@@ -176,21 +242,40 @@ public class OpenAIService {
         requestBody.put("max_tokens", 2000);
         requestBody.put("temperature", 0.2);
 
-        return makeRequest(requestBody);
+        return requestBody;
     }
 
     public Mono<String> findBugsInFile(String fileContent, String languageLevel) {
         if (apiToken == null || apiToken.isEmpty()) {
             return Mono.error(new IllegalStateException("Hugging Face API token not configured"));
         }
+        SourceChunker chunker = new SourceChunker(maxChunkTokens, maxChunkLines);
+        if (chunker.fits(fileContent)) {
+            return makeRequest("find_bugs", findBugsInFileRequest(fileContent, languageLevel, null));
+        }
+        List<SourceChunker.Chunk> chunks = chunker.split(fileContent);
+        return analyzeChunks(chunks, chunk -> makeRequest("find_bugs", findBugsInFileRequest(chunk.text(), languageLevel, excerptNote(chunk, chunks))))
+                .map(answers -> analysisMerger.mergeBugs(chunks, answers));
+    }
+
+    public Flux<String> streamFindBugsInFile(String fileContent, String languageLevel) {
+        if (apiToken == null || apiToken.isEmpty()) {
+            return Flux.error(new IllegalStateException("Hugging Face API token not configured"));
+        }
+        if (!new SourceChunker(maxChunkTokens, maxChunkLines).fits(fileContent)) {
+            return findBugsInFile(fileContent, languageLevel).flux();
+        }
+        return streamRequest("find_bugs", findBugsInFileRequest(fileContent, languageLevel, null));
+    }
 
+    private Map<String, Object> findBugsInFileRequest(String fileContent, String languageLevel, String excerptNote) {
         String toneInstruction = switch (languageLevel.toLowerCase()) {
             case "beginner" -> "Explain bugs in very simple terms, as if for a first-time coder.";
             case "technical" -> "Provide a deep, technical analysis of the bug, including potential memory or performance impacts.";
             default -> "Provide a standard, developer-friendly explanation of the bug.";
         };
 
-        String prompt = String.format("""
+        String prompt = (excerptNote != null ? excerptNote : "") + String.format("""
             [INST] You are an expert static analysis tool. Your task is to find critical bugs in the provided code that would cause a runtime error if not corrected.
             
             CODE:
@@ -227,37 +312,155 @@ public class OpenAIService {
         requestBody.put("max_tokens", 2000);
         requestBody.put("temperature", 0.1);
 
-        return makeRequest(requestBody);
+        return requestBody;
+    }
+
+    /**
+     * Runs one request per chunk, at most {@code chunkConcurrency} at a time, and returns
+     * the answers in chunk order.
+     */
+    private Mono<List<String>> analyzeChunks(List<SourceChunker.Chunk> chunks, Function<SourceChunker.Chunk, Mono<String>> request) {
+        return Flux.fromIterable(chunks)
+                .flatMapSequential(request, chunkConcurrency)
+                .collectList();
+    }
+
+    private static String excerptNote(SourceChunker.Chunk chunk, List<SourceChunker.Chunk> chunks) {
+        int totalLines = chunks.get(chunks.size() - 1).endLine();
+        return String.format("The code below is lines %d-%d of a %d-line file, split at a declaration boundary. "
+                        + "Analyze only this excerpt and number lines from 1 at its first line.%n",
+                chunk.startLine(), chunk.endLine(), totalLines);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return llmResponseCache.stats();
+    }
+
+    public Map<String, Object> getSchedulerStats() {
+        return llmRequestScheduler.stats();
     }
 
-    private Mono<String> makeRequest(Map<String, Object> requestBody) {
-        return webClient.post()
+    private Mono<String> makeRequest(String operation, Map<String, Object> requestBody) {
+        return llmResponseCache.get(cacheKey(operation, requestBody), operation, modelName,
+                        () -> llmRequestScheduler.submit(priorityOf(operation), estimateTokens(requestBody), () -> callModel(operation, requestBody)))
+                .defaultIfEmpty("{}")
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.warn("Hugging Face API Error: {} {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return Mono.just("{\"error\": \"API Error: " + e.getStatusCode() + "\"}");
+                })
+                // Queue-full and open-circuit rejections keep their status for the controller
+                .onErrorResume(e -> !(e instanceof LlmUnavailableException), e -> {
+                    log.warn("Error calling Hugging Face API: {}", e.getMessage());
+                    return Mono.just("{\"error\": \"Failed to generate response.\"}");
+                });
+    }
+
+    /**
+     * Streams the completion as text deltas. A cached completion is replayed as a single
+     * delta; a streamed one is cached once it finishes so later requests of either kind
+     * reuse it. Cancelling the returned flux closes the upstream connection.
+     */
+    private Flux<String> streamRequest(String operation, Map<String, Object> requestBody) {
+        String key = cacheKey(operation, requestBody);
+        return llmResponseCache.lookup(key)
+                .flux()
+                .switchIfEmpty(Flux.defer(() -> {
+                    StringBuilder completion = new StringBuilder();
+                    return llmRequestScheduler.submitMany(priorityOf(operation), estimateTokens(requestBody), () -> callModelStreaming(operation, requestBody))
+                            .doOnNext(completion::append)
+                            .doOnComplete(() -> {
+                                stageMetrics.recordSize("llm.completion", "chars", completion.length());
+                                if (completion.length() > 0) {
+                                    llmResponseCache.store(key, operation, modelName, completion.toString());
+                                }
+                            });
+                }));
+    }
+
+    private Flux<String> callModelStreaming(String operation, Map<String, Object> requestBody) {
+        Map<String, Object> streamingBody = new HashMap<>(requestBody);
+        streamingBody.put("stream", true);
+        stageMetrics.recordSize("llm.prompt", "tokens", estimateTokens(requestBody));
+
+        Flux<String> deltas = webClient.post()
+                .uri(apiUrl)
+                .header("Authorization", "Bearer " + apiToken)
+                .header("Content-Type", "application/json")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(streamingBody)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .map(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .concatMap(data -> {
+                    try {
+                        JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+                        return delta.isTextual() && !delta.asText().isEmpty() ? Mono.just(delta.asText()) : Mono.empty();
+                    } catch (JsonProcessingException e) {
+                        return Mono.empty();
+                    }
+                });
+        return stageMetrics.time("llm." + operation, deltas);
+    }
+
+    private static LlmRequestScheduler.Priority priorityOf(String operation) {
+        return switch (operation) {
+            case "explain_code" -> LlmRequestScheduler.Priority.INTERACTIVE;
+            case "summarize_repository" -> LlmRequestScheduler.Priority.BACKGROUND;
+            default -> LlmRequestScheduler.Priority.ANALYSIS;
+        };
+    }
+
+    // Estimated prompt tokens plus the completion budget
+    private int estimateTokens(Map<String, Object> requestBody) {
+        int promptTokens = 0;
+        for (Object message : (List<?>) requestBody.get("messages")) {
+            promptTokens += SourceChunker.estimateTokens(String.valueOf(((Map<?, ?>) message).get("content")));
+        }
+        return promptTokens + (Integer) requestBody.get("max_tokens");
+    }
+
+    // Empty when the model returned no message, so nothing gets cached for it
+    private Mono<String> callModel(String operation, Map<String, Object> requestBody) {
+        stageMetrics.recordSize("llm.prompt", "tokens", estimateTokens(requestBody));
+        Mono<String> completion = webClient.post()
                 .uri(apiUrl)
                 .header("Authorization", "Bearer " + apiToken)
                 .header("Content-Type", "application/json")
                 .bodyValue(requestBody)
                 .retrieve()
                 .bodyToMono(Map.class)
-                .map(response -> {
+                .flatMap(response -> {
                     if (response.containsKey("choices")) {
-                        List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
+                        List<?> choices = (List<?>) response.get("choices");
                         if (choices != null && !choices.isEmpty()) {
-                            Map<String, Object> choice = choices.get(0);
+                            Map<?, ?> choice = (Map<?, ?>) choices.get(0);
                             if (choice.containsKey("message")) {
-                                Map<String, Object> message = (Map<String, Object>) choice.get("message");
-                                return (String) message.get("content");
+                                Map<?, ?> message = (Map<?, ?>) choice.get("message");
+                                return Mono.justOrEmpty((String) message.get("content"));
                             }
                         }
                     }
-                    return "{}";
-                })
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    System.err.println("Hugging Face API Error: " + e.getStatusCode() + " " + e.getResponseBodyAsString());
-                    return Mono.just("{\"error\": \"API Error: " + e.getStatusCode() + "\"}");
-                })
-                .onErrorResume(e -> {
-                    System.err.println("Error calling Hugging Face API: " + e.getMessage());
-                    return Mono.just("{\"error\": \"Failed to generate response.\"}");
+                    return Mono.empty();
                 });
+        return stageMetrics.time("llm." + operation, completion)
+                .doOnNext(content -> stageMetrics.recordSize("llm.completion", "chars", content.length()));
+    }
+
+    /**
+     * Hash of everything that determines a completion: operation, prompt template version,
+     * model, sampling parameters and the rendered messages. The messages already embed the
+     * user content and the instructions derived from language level, mode and length.
+     */
+    String cacheKey(String operation, Map<String, Object> requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((operation + "|" + PROMPT_TEMPLATE_VERSION + "|" + requestBody.get("model") + "|"
+                    + requestBody.get("temperature") + "|" + requestBody.get("max_tokens") + "|").getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(requestBody.get("messages")));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to compute cache key", e);
+        }
     }
 }
@@ -0,0 +1,417 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Language breakdown, line counts and size distributions for a commit.
+ * <p>
+ * Each blob is scanned once, byte by byte, for its line count, blank lines, a binary marker
+ * and a {@code #!} interpreter; the result is cached by blob SHA, so the next commit of the
+ * same repository only reads the blobs it changed. Blobs are fetched concurrently and scanned
+ * in batches on a fork-join pool, and the per-file results are then folded into the commit's
+ * totals by a second fork-join pass over the tree. Files whose name marks them as binary,
+ * files above {@code max-blob-bytes} and blobs beyond {@code max-fetches} per request are
+ * counted by name and size only; the response says how many were left unscanned, and a
+ * later request picks them up.
+ */
+@Service
+public class RepoMetricsService {
+
+    // Upper bounds (exclusive) of the histogram buckets; the last bucket is open-ended
+    private static final long[] SIZE_BOUNDS = {1L << 10, 4L << 10, 16L << 10, 64L << 10, 256L << 10, 1L << 20, 4L << 20};
+    private static final long[] LINE_BOUNDS = {10, 50, 100, 500, 1000, 5000};
+
+    private static final int AGGREGATE_FILES_PER_TASK = 4096;
+    private static final int SCAN_BYTES_PER_TASK = 256 * 1024;
+
+    private final GitHubService gitHubService;
+    private final int maxEntries;
+    private final long maxBlobBytes;
+    private final int maxFetches;
+    private final int fetchConcurrency;
+    private final int scanBatchFiles;
+    private final ForkJoinPool pool;
+
+    private final LinkedHashMap<String, BlobMetrics> blobs = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, Mono<Map<String, Object>>> running = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong scannedBytes = new AtomicLong();
+    private final AtomicLong fetchFailures = new AtomicLong();
+
+    @Autowired
+    public RepoMetricsService(GitHubService gitHubService,
+                              @Value("${codeverse.metrics.cache-max-entries:200000}") int maxEntries,
+                              @Value("${codeverse.metrics.max-blob-bytes:1048576}") long maxBlobBytes,
+                              @Value("${codeverse.metrics.max-fetches:5000}") int maxFetches,
+                              @Value("${codeverse.metrics.fetch-concurrency:16}") int fetchConcurrency,
+                              @Value("${codeverse.metrics.scan-batch-files:64}") int scanBatchFiles,
+                              @Value("${codeverse.metrics.parallelism:0}") int parallelism,
+                              @Value("${codeverse.github.raw.max-bytes:16777216}") long rawMaxBytes) {
+        this.gitHubService = gitHubService;
+        this.maxEntries = maxEntries;
+        // Anything larger could not be downloaded anyway
+        this.maxBlobBytes = Math.min(maxBlobBytes, rawMaxBytes);
+        this.maxFetches = maxFetches;
+        this.fetchConcurrency = fetchConcurrency;
+        this.scanBatchFiles = scanBatchFiles;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Metrics of the tree at {@code sha}, or of the default-branch head when {@code sha} is
+     * null. Concurrent requests for the same commit share one scan, and its GitHub calls yield
+     * to interactive ones.
+     */
+    public Mono<Map<String, Object>> metrics(String repoUrl, String sha) {
+        String[] ownerRepo = gitHubService.extractOwnerRepo(repoUrl);
+        if (ownerRepo == null) {
+            return Mono.error(new IllegalArgumentException("Invalid GitHub repository URL"));
+        }
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+
+        Mono<String> shaMono = sha != null && !sha.isEmpty()
+                ? Mono.just(sha)
+                : gitHubService.resolveRef(owner, repo).map(RepoRef::getHeadSha);
+
+        return shaMono.flatMap(commitSha -> {
+            String key = RepoTree.key(owner, repo, commitSha);
+            return running.computeIfAbsent(key, k -> gitHubService.fetchTree(owner, repo, commitSha)
+                    .flatMap(tree -> measure(owner, repo, commitSha, gitHubService.compact(tree), !tree.isTruncated()))
+                    .doFinally(signal -> running.remove(k))
+                    .cache());
+        }).contextWrite(GitHubRateLimit.priority(GitHubRateLimit.Priority.ANALYSIS));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (blobs) {
+            stats.put("cached_blobs", blobs.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("scanned", scanned.get());
+        stats.put("scanned_bytes", scannedBytes.get());
+        stats.put("fetch_failures", fetchFailures.get());
+        stats.put("running", running.size());
+        return stats;
+    }
+
+    // complete is false when the tree itself is missing entries
+    private Mono<Map<String, Object>> measure(String owner, String repo, String sha, CompactTree tree, boolean complete) {
+        return Mono.fromCallable(() -> plan(tree))
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(plan -> Flux.fromIterable(plan.pending.entrySet())
+                        .flatMap(blob -> gitHubService.fetchBlob(owner, repo, sha, tree.path(blob.getValue()), blob.getKey())
+                                .map(content -> Map.entry(blob.getKey(), content))
+                                .onErrorResume(e -> {
+                                    fetchFailures.incrementAndGet();
+                                    return Mono.empty();
+                                }), fetchConcurrency)
+                        .buffer(scanBatchFiles)
+                        .concatMap(batch -> Mono.fromRunnable(() -> scan(batch)).subscribeOn(Schedulers.boundedElastic()))
+                        .then(Mono.fromCallable(() -> aggregate(tree, plan)).subscribeOn(Schedulers.boundedElastic())))
+                .map(totals -> describe(owner, repo, sha, totals, complete));
+    }
+
+    // Which files are already known, and which blobs to read for this request
+    private Plan plan(CompactTree tree) {
+        int count = 0;
+        for (int node = 1; node < tree.nodeCount(); node++) {
+            if (!tree.isDirectory(node)) {
+                count++;
+            }
+        }
+        Plan plan = new Plan(count);
+        int i = 0;
+        synchronized (blobs) {
+            for (int node = 1; node < tree.nodeCount(); node++) {
+                if (tree.isDirectory(node)) {
+                    continue;
+                }
+                plan.files[i] = node;
+                String blobSha = tree.sha(node);
+                if (tree.size(node) == 0) {
+                    plan.metrics[i] = BlobMetrics.EMPTY;
+                } else if (LanguageDetector.isBinaryName(tree.name(node))) {
+                    plan.metrics[i] = BlobMetrics.BINARY;
+                } else if (blobSha != null && tree.size(node) <= maxBlobBytes) {
+                    BlobMetrics cached = blobs.get(blobSha);
+                    if (cached != null) {
+                        plan.metrics[i] = cached;
+                        hits.incrementAndGet();
+                    } else if (plan.pending.size() < maxFetches || plan.pending.containsKey(blobSha)) {
+                        plan.pending.putIfAbsent(blobSha, node);
+                    }
+                }
+                i++;
+            }
+        }
+        return plan;
+    }
+
+    private void scan(List<Map.Entry<String, ByteBuffer>> batch) {
+        BlobMetrics[] results = new BlobMetrics[batch.size()];
+        pool.invoke(new ScanTask(batch, results, 0, batch.size()));
+        long bytes = 0;
+        synchronized (blobs) {
+            for (int i = 0; i < results.length; i++) {
+                blobs.put(batch.get(i).getKey(), results[i]);
+                bytes += batch.get(i).getValue().remaining();
+            }
+            Iterator<String> eldest = blobs.keySet().iterator();
+            while (blobs.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        scanned.addAndGet(results.length);
+        scannedBytes.addAndGet(bytes);
+    }
+
+    private Totals aggregate(CompactTree tree, Plan plan) {
+        // Fill in what this request scanned; blobs evicted meanwhile stay unscanned
+        synchronized (blobs) {
+            for (int i = 0; i < plan.files.length; i++) {
+                if (plan.metrics[i] == null && tree.sha(plan.files[i]) != null) {
+                    plan.metrics[i] = blobs.get(tree.sha(plan.files[i]));
+                }
+            }
+        }
+        return pool.invoke(new AggregateTask(tree, plan, 0, plan.files.length));
+    }
+
+    private Map<String, Object> describe(String owner, String repo, String sha, Totals totals, boolean complete) {
+        List<Map<String, Object>> languages = new ArrayList<>();
+        totals.languages.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> -e.getValue()[1]).thenComparing(Map.Entry::getKey))
+                .forEach(e -> {
+                    long[] counts = e.getValue();
+                    Map<String, Object> language = new LinkedHashMap<>();
+                    language.put("language", e.getKey());
+                    language.put("files", counts[0]);
+                    language.put("bytes", counts[1]);
+                    language.put("lines", counts[2]);
+                    language.put("code_lines", counts[2] - counts[3]);
+                    language.put("blank_lines", counts[3]);
+                    language.put("percentage", totals.bytes > 0 ? Math.round(counts[1] * 1000.0 / totals.bytes) / 10.0 : 0.0);
+                    languages.add(language);
+                });
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("repo_name", repo);
+        response.put("owner", owner);
+        response.put("commit_sha", sha);
+        response.put("files", totals.files);
+        response.put("total_bytes", totals.bytes);
+        response.put("lines", totals.lines);
+        response.put("code_lines", totals.lines - totals.blank);
+        response.put("blank_lines", totals.blank);
+        response.put("binary_files", totals.binary);
+        response.put("oversized_files", totals.oversized);
+        response.put("unscanned_files", totals.unscanned);
+        response.put("complete", complete && totals.unscanned == 0);
+        response.put("languages", languages);
+        response.put("size_histogram", histogram(SIZE_BOUNDS, totals.sizeFiles, totals.sizeBytes, "bytes"));
+        response.put("line_histogram", histogram(LINE_BOUNDS, totals.lineFiles, totals.lineLines, "lines"));
+        return response;
+    }
+
+    private static List<Map<String, Object>> histogram(long[] bounds, long[] files, long[] sums, String unit) {
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        for (int b = 0; b < files.length; b++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("min_" + unit, b == 0 ? 0 : bounds[b - 1]);
+            bucket.put("max_" + unit, b < bounds.length ? bounds[b] : null);
+            bucket.put("files", files[b]);
+            bucket.put(unit, sums[b]);
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    private static int bucket(long[] bounds, long value) {
+        int b = 0;
+        while (b < bounds.length && value >= bounds[b]) {
+            b++;
+        }
+        return b;
+    }
+
+    private static final class Plan {
+        final int[] files;
+        final BlobMetrics[] metrics;
+        // Blob SHA to one node holding it; the path is what the sources fetch by
+        final Map<String, Integer> pending = new LinkedHashMap<>();
+
+        Plan(int files) {
+            this.files = new int[files];
+            this.metrics = new BlobMetrics[files];
+        }
+    }
+
+    private final class Totals {
+        // language -> files, bytes, lines, blank lines
+        final Map<String, long[]> languages = new HashMap<>();
+        final long[] sizeFiles = new long[SIZE_BOUNDS.length + 1];
+        final long[] sizeBytes = new long[SIZE_BOUNDS.length + 1];
+        final long[] lineFiles = new long[LINE_BOUNDS.length + 1];
+        final long[] lineLines = new long[LINE_BOUNDS.length + 1];
+        long files;
+        long bytes;
+        long lines;
+        long blank;
+        long binary;
+        long oversized;
+        long unscanned;
+
+        void add(String name, long size, BlobMetrics metrics) {
+            String language;
+            if (metrics != null && metrics.binary()) {
+                language = LanguageDetector.BINARY;
+            } else {
+                language = LanguageDetector.fromName(name);
+                if (language == null) {
+                    language = metrics != null && metrics.shebang() != null ? metrics.shebang() : LanguageDetector.OTHER;
+                }
+            }
+
+            long[] counts = languages.computeIfAbsent(language, k -> new long[4]);
+            counts[0]++;
+            counts[1] += size;
+            files++;
+            bytes += size;
+            int sizeBucket = bucket(SIZE_BOUNDS, size);
+            sizeFiles[sizeBucket]++;
+            sizeBytes[sizeBucket] += size;
+
+            if (metrics == null) {
+                if (size > maxBlobBytes) {
+                    oversized++;
+                } else {
+                    unscanned++;
+                }
+            } else if (metrics.binary()) {
+                binary++;
+            } else {
+                counts[2] += metrics.lines();
+                counts[3] += metrics.blank();
+                lines += metrics.lines();
+                blank += metrics.blank();
+                int lineBucket = bucket(LINE_BOUNDS, metrics.lines());
+                lineFiles[lineBucket]++;
+                lineLines[lineBucket] += metrics.lines();
+            }
+        }
+
+        Totals merge(Totals other) {
+            other.languages.forEach((language, counts) -> {
+                long[] mine = languages.computeIfAbsent(language, k -> new long[4]);
+                for (int i = 0; i < mine.length; i++) {
+                    mine[i] += counts[i];
+                }
+            });
+            for (int b = 0; b < sizeFiles.length; b++) {
+                sizeFiles[b] += other.sizeFiles[b];
+                sizeBytes[b] += other.sizeBytes[b];
+            }
+            for (int b = 0; b < lineFiles.length; b++) {
+                lineFiles[b] += other.lineFiles[b];
+                lineLines[b] += other.lineLines[b];
+            }
+            files += other.files;
+            bytes += other.bytes;
+            lines += other.lines;
+            blank += other.blank;
+            binary += other.binary;
+            oversized += other.oversized;
+            unscanned += other.unscanned;
+            return this;
+        }
+    }
+
+    // Splits a batch until each leaf holds one large blob or a few small ones
+    private static final class ScanTask extends RecursiveAction {
+        private final List<Map.Entry<String, ByteBuffer>> batch;
+        private final BlobMetrics[] results;
+        private final int from;
+        private final int to;
+
+        ScanTask(List<Map.Entry<String, ByteBuffer>> batch, BlobMetrics[] results, int from, int to) {
+            this.batch = batch;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long bytes = 0;
+            for (int i = from; i < to; i++) {
+                bytes += batch.get(i).getValue().remaining();
+            }
+            if (to - from == 1 || bytes <= SCAN_BYTES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = BlobMetrics.scan(batch.get(i).getValue());
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScanTask(batch, results, from, mid), new ScanTask(batch, results, mid, to));
+        }
+    }
+
+    private final class AggregateTask extends RecursiveTask<Totals> {
+        private final CompactTree tree;
+        private final Plan plan;
+        private final int from;
+        private final int to;
+
+        AggregateTask(CompactTree tree, Plan plan, int from, int to) {
+            this.tree = tree;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= AGGREGATE_FILES_PER_TASK) {
+                Totals totals = new Totals();
+                for (int i = from; i < to; i++) {
+                    int node = plan.files[i];
+                    totals.add(tree.name(node), tree.size(node), plan.metrics[i]);
+                }
+                return totals;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask right = new AggregateTask(tree, plan, mid, to);
+            right.fork();
+            Totals left = new AggregateTask(tree, plan, from, mid).compute();
+            return left.merge(right.join());
+        }
+    }
+}
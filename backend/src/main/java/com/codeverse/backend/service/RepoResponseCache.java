@@ -0,0 +1,361 @@
+package com.codeverse.backend.service;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized {@code /api/repo} responses, keyed by commit. A response depends only on the
+ * commit and the repository it was read from, so it is written to JSON once and kept as
+ * gzip and, when the native Brotli library loads, Brotli bytes that are sent as they are.
+ * Clients that accept neither get the plain JSON, which is kept too while it is no larger
+ * than {@code identity-max-bytes} and otherwise inflated from the gzip bytes off the event loop.
+ * <p>
+ * Every response has a strong ETag derived from the commit SHA, with a suffix per encoding,
+ * so a client revalidating an unchanged repository gets a 304 without the body ever being
+ * built. Entries hold the cached {@link Mono}, which makes concurrent requests for the same
+ * commit share one serialization; the least recently used are evicted by compressed size.
+ * <p>
+ * A response built from a truncated tree ({@code "complete": false}) is not tied to its
+ * commit: a later walk may get further. It is served to the requests that waited for it,
+ * then dropped, and must be sent without an ETag.
+ */
+@Service
+public class RepoResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RepoResponseCache.class);
+
+    // Bump when the response layout changes, so clients do not revalidate against old bodies
+    private static final String FORMAT_VERSION = "1";
+
+    public enum Encoding {
+        BROTLI("br", "-br"), GZIP("gzip", "-gz"), IDENTITY(null, "");
+
+        private final String token;
+        private final String etagSuffix;
+
+        Encoding(String token, String etagSuffix) {
+            this.token = token;
+            this.etagSuffix = etagSuffix;
+        }
+
+        /**
+         * The {@code Content-Encoding} value, null for identity.
+         */
+        public String token() {
+            return token;
+        }
+    }
+
+    /**
+     * One serialized response. The bodies are null when the client's copy is current;
+     * {@code brotliEnabled} still tells which encoding it was sent with. {@code identity} is
+     * null unless the JSON was small enough to keep. {@code complete} is false for a response
+     * from a truncated tree, which must not be cached or validated.
+     */
+    public record Payload(String version, boolean brotliEnabled, byte[] gzip, byte[] brotli, byte[] identity, int identityLength,
+                          boolean complete) {
+
+        public boolean isNotModified() {
+            return gzip == null;
+        }
+
+        public String etag(Encoding encoding) {
+            return "\"" + version + encoding.etagSuffix + "\"";
+        }
+
+        /**
+         * The best encoding the {@code Accept-Encoding} header allows.
+         */
+        public Encoding negotiate(String acceptEncoding) {
+            if (brotliEnabled && accepts(acceptEncoding, "br")) {
+                return Encoding.BROTLI;
+            }
+            return accepts(acceptEncoding, "gzip") ? Encoding.GZIP : Encoding.IDENTITY;
+        }
+
+        /**
+         * The body in {@code encoding}. Only a large identity body has to be inflated, which
+         * happens on the parallel scheduler.
+         */
+        public Mono<byte[]> body(Encoding encoding) {
+            return switch (encoding) {
+                case BROTLI -> Mono.just(brotli);
+                case GZIP -> Mono.just(gzip);
+                case IDENTITY -> identity != null
+                        ? Mono.just(identity)
+                        : Mono.fromCallable(() -> gunzip(gzip, identityLength)).subscribeOn(Schedulers.parallel());
+            };
+        }
+
+        private long bytes() {
+            return gzip.length + (brotli != null ? brotli.length : 0) + (identity != null ? identity.length : 0);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final StageMetrics stageMetrics;
+    private final long maxBytes;
+    private final int gzipLevel;
+    private final int brotliQuality;
+    private final int identityMaxBytes;
+    private final boolean brotliAvailable;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public RepoResponseCache(ObjectMapper objectMapper, StageMetrics stageMetrics,
+                             @Value("${codeverse.cache.repo-response.max-bytes:134217728}") long maxBytes,
+                             @Value("${codeverse.cache.repo-response.gzip-level:6}") int gzipLevel,
+                             @Value("${codeverse.cache.repo-response.brotli-quality:5}") int brotliQuality,
+                             @Value("${codeverse.cache.repo-response.identity-max-bytes:65536}") int identityMaxBytes) {
+        this.objectMapper = objectMapper;
+        this.stageMetrics = stageMetrics;
+        this.maxBytes = maxBytes;
+        this.gzipLevel = gzipLevel;
+        this.brotliQuality = brotliQuality;
+        this.identityMaxBytes = identityMaxBytes;
+        this.brotliAvailable = brotliQuality >= 0 && loadBrotli();
+    }
+
+    /**
+     * The version tag of the response for {@code sha} as read through {@code variant} (owner,
+     * repository, branch and URL as they appear in the body): the SHA plus a short digest
+     * of the rest, so forks at the same commit do not share ETags.
+     */
+    public static String version(String sha, String... variant) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+            for (String part : variant) {
+                digest.update((byte) 0);
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            }
+            return sha + "-" + HexFormat.of().formatHex(digest.digest(), 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header names {@code version} in any encoding.
+     */
+    public static boolean matches(String ifNoneMatch, String version) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            // If-None-Match uses the weak comparison
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            for (Encoding encoding : Encoding.values()) {
+                if (value.equals(version + encoding.etagSuffix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A payload that only carries the version, for answering 304.
+     */
+    public Payload notModified(String version) {
+        notModified.incrementAndGet();
+        return new Payload(version, brotliAvailable, null, null, null, 0, true);
+    }
+
+    public Mono<Payload> get(String version, Supplier<Mono<? extends Map<String, Object>>> response) {
+        synchronized (entries) {
+            Entry cached = entries.get(version);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.payload;
+            }
+            misses.incrementAndGet();
+            Entry created = new Entry();
+            created.payload = Mono.defer(response)
+                    .flatMap(body -> stageMetrics.time("repo.encode", Mono.fromCallable(() -> encode(version, body))
+                            .subscribeOn(Schedulers.parallel())))
+                    .doOnSuccess(payload -> {
+                        if (payload.complete()) {
+                            account(version, created, payload);
+                        } else {
+                            remove(version, created);
+                        }
+                    })
+                    .doOnError(e -> remove(version, created))
+                    .cache();
+            entries.put(version, created);
+            return created.payload;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("brotli", brotliAvailable);
+        stats.put("hits", hits.get());
+        stats.put("not_modified", notModified.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private Payload encode(String version, Map<String, Object> body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            stageMetrics.recordSize("repo.json", "bytes", json.length);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 8 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip, 64 * 1024) {
+                {
+                    def.setLevel(gzipLevel);
+                }
+            }) {
+                out.write(json);
+            }
+            byte[] brotli = null;
+            if (brotliAvailable) {
+                brotli = Encoder.compress(json, new Encoder.Parameters().setQuality(brotliQuality).setMode(Encoder.Mode.TEXT));
+            }
+            boolean complete = !Boolean.FALSE.equals(body.get("complete"));
+            byte[] identity = json.length <= identityMaxBytes ? json : null;
+            return new Payload(version, brotliAvailable, gzip.toByteArray(), brotli, identity, json.length, complete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Sizes are known once the payload is built; pending entries count as zero until then
+    private void account(String version, Entry entry, Payload payload) {
+        synchronized (entries) {
+            if (entries.get(version) != entry) {
+                return;
+            }
+            entry.bytes = payload.bytes();
+            totalBytes += entry.bytes;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                if (evicted.bytes == 0) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= evicted.bytes;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String version, Entry entry) {
+        synchronized (entries) {
+            if (entries.get(version) == entry) {
+                entries.remove(version);
+                totalBytes -= entry.bytes;
+            }
+        }
+    }
+
+    private static boolean loadBrotli() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            log.warn("Brotli is unavailable on this platform, serving gzip only: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows {@code coding}. Codings carry optional
+     * weights and {@code q=0} turns one off; a coding named explicitly overrides {@code *}
+     * wherever the two appear in the list.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim();
+            if (name.equalsIgnoreCase(coding)) {
+                return weight(params) > 0;
+            }
+            if (name.equals("*") && wildcard == null) {
+                wildcard = weight(params) > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double weight(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] gunzip(byte[] gzip, int length) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip), 64 * 1024)) {
+            byte[] json = new byte[length];
+            int read = in.readNBytes(json, 0, length);
+            if (read != length) {
+                throw new IOException("Cached response is shorter than recorded");
+            }
+            return json;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private Mono<Payload> payload;
+        private long bytes;
+    }
+}
@@ -0,0 +1,248 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.PathIndex;
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import com.codeverse.backend.repository.RepoTreeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache for recursive repository trees. Trees are immutable once keyed by
+ * commit SHA, so entries never need revalidation; only the owner/repo -> head SHA
+ * mapping ({@link RepoRef}) is revalidated against GitHub with ETags. Refs are kept in an
+ * LRU of at most {@code max-refs} repositories.
+ * <p>
+ * Tier 1 is an in-memory LRU bounded by an estimated byte budget, tier 2 is the
+ * {@code repo_trees} MongoDB collection. A truncated tree (a walk that ran out of time or
+ * requests) is only kept in memory for {@code truncated-ttl}, so requests arriving right
+ * after it share it but a later one walks again.
+ */
+@Service
+public class RepoTreeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RepoTreeCache.class);
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final RepoTreeRepository repoTreeRepository;
+    private final long maxMemoryBytes;
+    private final long maxDocumentBytes;
+    private final Duration truncatedTtl;
+    private final int maxRefs;
+    private final StageMetrics stageMetrics;
+
+    private final LinkedHashMap<String, RepoTree> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final LinkedHashMap<String, RepoRef> refs = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RepoRef> eldest) {
+            if (size() > maxRefs) {
+                refEvictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final AtomicLong refEvictions = new AtomicLong();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong mongoHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public RepoTreeCache(RepoTreeRepository repoTreeRepository,
+                         @Value("${codeverse.cache.tree.max-memory-bytes:268435456}") long maxMemoryBytes,
+                         @Value("${codeverse.cache.tree.max-document-bytes:12582912}") long maxDocumentBytes,
+                         @Value("${codeverse.cache.tree.truncated-ttl:30s}") Duration truncatedTtl,
+                         @Value("${codeverse.cache.tree.max-refs:10000}") int maxRefs,
+                         StageMetrics stageMetrics) {
+        this.repoTreeRepository = repoTreeRepository;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDocumentBytes = maxDocumentBytes;
+        this.truncatedTtl = truncatedTtl;
+        this.maxRefs = maxRefs;
+        this.stageMetrics = stageMetrics;
+    }
+
+    public RepoRef getRef(String owner, String repo) {
+        synchronized (refs) {
+            return refs.get(refKey(owner, repo));
+        }
+    }
+
+    public void putRef(String owner, String repo, RepoRef ref) {
+        synchronized (refs) {
+            refs.put(refKey(owner, repo), ref);
+        }
+    }
+
+    public Mono<RepoTree> get(String owner, String repo, String sha) {
+        String key = RepoTree.key(owner, repo, sha);
+        synchronized (memory) {
+            RepoTree tree = memory.get(key);
+            if (tree != null && isExpired(tree)) {
+                memory.remove(key);
+                memoryBytes -= tree.getSizeBytes();
+                tree = null;
+            }
+            if (tree != null) {
+                memoryHits.incrementAndGet();
+                return Mono.just(tree);
+            }
+        }
+
+        return repoTreeRepository.findById(key)
+                .transform(read -> stageMetrics.time("mongo.tree_read", read))
+                .doOnNext(stored -> {
+                    mongoHits.incrementAndGet();
+                    putInMemory(stored);
+                })
+                // Mongo is only a second tier; an outage must not fail the request
+                .onErrorResume(e -> {
+                    log.warn("Tree cache lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::incrementAndGet));
+    }
+
+    public void put(RepoTree tree) {
+        tree.setId(RepoTree.key(tree.getOwner(), tree.getRepoName(), tree.getSha()));
+        tree.setSizeBytes(estimateBytes(tree.getEntries()));
+        putInMemory(tree);
+
+        // Partial walks are never persisted, so a restart or eviction gets a fresh attempt
+        if (!tree.isTruncated() && tree.getSizeBytes() <= maxDocumentBytes) {
+            repoTreeRepository.save(tree)
+                    .transform(write -> stageMetrics.time("mongo.tree_write", write))
+                    .subscribe(saved -> { }, e -> log.warn("Tree cache write failed: {}", e.getMessage()));
+        }
+    }
+
+    /**
+     * Returns the hierarchical view of {@code tree}, building it on first use and charging
+     * its size to the memory budget when the tree is resident. Encodings memoized on the
+     * view later are charged as they are produced.
+     */
+    public CompactTree compact(RepoTree tree) {
+        synchronized (tree) {
+            CompactTree compact = tree.getCompactTree();
+            if (compact == null) {
+                compact = CompactTree.build(tree.getRepoName(), tree.getEntries());
+                tree.setCompactTree(compact);
+                charge(tree, compact.estimateBytes());
+                compact.onMemoized(bytes -> charge(tree, bytes));
+            }
+            return compact;
+        }
+    }
+
+    /**
+     * Returns the path search index of {@code tree}, building it (and the compact view it
+     * is based on) on first use. Like the compact view it is charged to the memory budget.
+     */
+    public PathIndex pathIndex(RepoTree tree) {
+        PathIndex index = tree.getPathIndex();
+        if (index != null) {
+            return index;
+        }
+        CompactTree compact = compact(tree);
+        synchronized (tree) {
+            index = tree.getPathIndex();
+            if (index == null) {
+                index = PathIndex.build(compact);
+                tree.setPathIndex(index);
+                charge(tree, index.estimateBytes());
+            }
+            return index;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memory) {
+            stats.put("memory_entries", memory.size());
+            stats.put("memory_bytes", memoryBytes);
+        }
+        stats.put("memory_max_bytes", maxMemoryBytes);
+        stats.put("memory_hits", memoryHits.get());
+        stats.put("mongo_hits", mongoHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        synchronized (refs) {
+            stats.put("refs", refs.size());
+        }
+        stats.put("ref_evictions", refEvictions.get());
+        return stats;
+    }
+
+    private void charge(RepoTree tree, long extra) {
+        synchronized (memory) {
+            if (memory.get(tree.getId()) == tree) {
+                tree.setSizeBytes(tree.getSizeBytes() + extra);
+                memoryBytes += extra;
+                evictOverBudget();
+            }
+        }
+    }
+
+    private void putInMemory(RepoTree tree) {
+        long size = tree.getSizeBytes() > 0 ? tree.getSizeBytes() : estimateBytes(tree.getEntries());
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            RepoTree previous = memory.put(tree.getId(), tree);
+            if (previous != null) {
+                memoryBytes -= previous.getSizeBytes();
+            }
+            memoryBytes += size;
+            evictOverBudget();
+        }
+    }
+
+    private boolean isExpired(RepoTree tree) {
+        return tree.isTruncated()
+                && (tree.getFetchedTime() == null || tree.getFetchedTime().plus(truncatedTtl).isBefore(LocalDateTime.now()));
+    }
+
+    // Caller holds the memory lock
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, RepoTree>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<String, RepoTree> eldest = it.next();
+            memoryBytes -= eldest.getValue().getSizeBytes();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    static long estimateBytes(List<TreeEntry> entries) {
+        if (entries == null) {
+            return 0;
+        }
+        long total = 0;
+        for (TreeEntry entry : entries) {
+            // UTF-16 path chars, 40-char SHA string and object headers
+            total += ENTRY_OVERHEAD_BYTES + 2L * entry.getPath().length() + 80;
+        }
+        return total;
+    }
+
+    private static String refKey(String owner, String repo) {
+        return owner.toLowerCase() + "/" + repo.toLowerCase();
+    }
+}
@@ -0,0 +1,63 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoRef;
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Where repository refs, trees and file contents come from. {@link GitHubService} owns the
+ * caches and picks a source per repository; sources only talk to their backend.
+ */
+public interface RepositorySource {
+
+    /**
+     * Default branch and its head commit.
+     */
+    Mono<RepoRef> resolveRef(String owner, String repo);
+
+    /**
+     * Commit SHA that {@code revision} (a branch, tag or commit SHA) points to.
+     */
+    Mono<String> resolveCommit(String owner, String repo, String revision);
+
+    /**
+     * The entries directly inside one tree, named relative to it. {@code treeish} is a tree
+     * SHA, or a commit SHA for the commit's root tree.
+     */
+    Mono<TreeWalker.Subtree> listTree(String owner, String repo, String treeish);
+
+    /**
+     * The full recursive tree of commit {@code sha}, directories included.
+     */
+    Mono<RepoTree> fetchTree(String owner, String repo, String sha);
+
+    /**
+     * Entries of the tree at {@code sha}, emitted as early as the backend allows.
+     * {@code complete} is cleared before the stream completes if some entries were left out.
+     */
+    default Flux<TreeEntry> streamTree(String owner, String repo, String sha, AtomicBoolean complete) {
+        return fetchTree(owner, repo, sha).flatMapMany(tree -> {
+            if (tree.isTruncated()) {
+                complete.set(false);
+            }
+            return Flux.fromIterable(tree.getEntries());
+        });
+    }
+
+    /**
+     * Contents of the file at {@code path} in {@code ref} (a branch name or commit SHA).
+     */
+    Mono<byte[]> fetchFile(String owner, String repo, String ref, String path);
+
+    /**
+     * Opens a file download without reading it, honouring a single {@code Range} when the
+     * backend can.
+     */
+    Mono<ResponseEntity<Flux<DataBuffer>>> openFile(String owner, String repo, String ref, String path, String range);
+}
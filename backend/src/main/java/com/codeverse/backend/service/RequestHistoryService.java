@@ -0,0 +1,277 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoPopularity;
+import com.codeverse.backend.model.RepoRequest;
+import com.codeverse.backend.repository.RepoRequestRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind recorder for repository requests.
+ * <p>
+ * Requests are buffered in memory and written in batches, either every
+ * {@code flush-interval-ms} or as soon as {@code batch-size} requests are waiting. Each batch
+ * is one bulk insert into {@code repo_requests} (raw events, expired by a TTL index after
+ * {@code retention}) plus one bulk upsert of per-hour and per-day counters in
+ * {@code repo_popularity}. History is best effort: when MongoDB is unavailable, failed
+ * batches and requests beyond {@code max-buffered} are dropped and counted.
+ */
+@Service
+public class RequestHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestHistoryService.class);
+
+    /**
+     * One entry of {@link #popular}; {@code repoUrl} is null when the repository cannot be
+     * requested again by URL.
+     */
+    public record PopularRepo(String owner, String repoName, String repoUrl, long count) {
+    }
+
+    /**
+     * The result of {@link #popular}: the counters it was read from and the repositories,
+     * most requested first.
+     */
+    public record Popular(String granularity, LocalDateTime since, List<PopularRepo> repos) {
+    }
+
+    private static final Duration HOURLY_RETENTION = Duration.ofDays(14);
+    private static final Duration DAILY_RETENTION = Duration.ofDays(400);
+
+    private final RepoRequestRepository repoRequestRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final int maxBuffered;
+    private final Duration retention;
+    private final StageMetrics stageMetrics;
+
+    private final ConcurrentLinkedQueue<RepoRequest> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @Autowired
+    public RequestHistoryService(RepoRequestRepository repoRequestRepository, ReactiveMongoTemplate mongoTemplate,
+                                 @Value("${codeverse.history.batch-size:500}") int batchSize,
+                                 @Value("${codeverse.history.max-buffered:10000}") int maxBuffered,
+                                 @Value("${codeverse.history.retention:30d}") Duration retention,
+                                 StageMetrics stageMetrics) {
+        this.repoRequestRepository = repoRequestRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.maxBuffered = maxBuffered;
+        this.retention = retention;
+        this.stageMetrics = stageMetrics;
+    }
+
+    @PostConstruct
+    void ensureIndexes() {
+        mongoTemplate.indexOps(RepoRequest.class)
+                .ensureIndex(new Index().on("requestTime", Sort.Direction.ASC).named("requestTime_ttl").expire(retention))
+                .then(mongoTemplate.indexOps(RepoPopularity.class)
+                        .ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).named("expireAt_ttl").expire(Duration.ZERO)))
+                .then(mongoTemplate.indexOps(RepoPopularity.class)
+                        .ensureIndex(new Index().on("granularity", Sort.Direction.ASC).on("bucket", Sort.Direction.ASC)))
+                .subscribe(name -> { }, e -> log.warn("Failed to create history indexes: {}", e.getMessage()));
+    }
+
+    public void record(String repoUrl, String owner, String repoName) {
+        if (buffered.incrementAndGet() > maxBuffered) {
+            buffered.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        RepoRequest request = new RepoRequest();
+        request.setRepoUrl(repoUrl);
+        request.setOwner(owner);
+        request.setRepoName(repoName);
+        request.setRequestTime(LocalDateTime.now());
+        buffer.add(request);
+
+        if (buffered.get() >= batchSize) {
+            flush().subscribe();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${codeverse.history.flush-interval-ms:5000}")
+    public void flushOnSchedule() {
+        flush().subscribe();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() throws InterruptedException {
+        // Let a running flush finish so the final one sees everything that is left
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (flushing.get() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        flush().block(Duration.ofSeconds(10));
+    }
+
+    /**
+     * Most requested repositories over the last {@code window}, read from the hourly counters
+     * for windows up to two days and from the daily counters beyond that. Requests still in
+     * the write-behind buffer are not included. {@code repo_url} is the URL the repository
+     * was last requested by; it is null for local repositories counted before URLs were kept.
+     */
+    public Mono<Popular> popular(Duration window, int limit) {
+        boolean hourly = window.compareTo(Duration.ofHours(48)) <= 0;
+        String granularity = hourly ? RepoPopularity.HOUR : RepoPopularity.DAY;
+        LocalDateTime since = LocalDateTime.now().minus(window).truncatedTo(hourly ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(granularity).and("bucket").gte(since)),
+                Aggregation.group("owner", "repoName").sum("count").as("count").last("repoUrl").as("repoUrl"),
+                Aggregation.sort(Sort.Direction.DESC, "count"),
+                Aggregation.limit(limit));
+
+        return mongoTemplate.aggregate(aggregation, RepoPopularity.class, Document.class)
+                .map(doc -> {
+                    Document id = doc.get("_id", Document.class);
+                    String owner = id.getString("owner");
+                    String repoName = id.getString("repoName");
+                    return new PopularRepo(owner, repoName, repoUrl(doc.getString("repoUrl"), owner, repoName),
+                            ((Number) doc.get("count")).longValue());
+                })
+                .collectList()
+                .map(repos -> new Popular(granularity, since, repos));
+    }
+
+    private static String repoUrl(String stored, String owner, String repoName) {
+        if (stored != null) {
+            return stored;
+        }
+        return owner.startsWith(LocalMirrorSource.FILE_OWNER_PREFIX) ? null : "https://github.com/" + owner + "/" + repoName;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buffered", buffered.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    /**
+     * Writes everything buffered so far in batches of {@code batch-size}. Only one flush runs
+     * at a time; a flush requested meanwhile is picked up when the running one finishes.
+     */
+    private Mono<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        return Flux.<List<RepoRequest>>generate(sink -> {
+                    List<RepoRequest> batch = drain();
+                    if (batch.isEmpty()) {
+                        sink.complete();
+                    } else {
+                        sink.next(batch);
+                    }
+                })
+                .concatMap(this::write)
+                .then()
+                .doFinally(signal -> {
+                    flushing.set(false);
+                    if (buffered.get() >= batchSize) {
+                        flush().subscribe();
+                    }
+                });
+    }
+
+    private List<RepoRequest> drain() {
+        List<RepoRequest> batch = new ArrayList<>(Math.min(batchSize, buffered.get()));
+        RepoRequest request;
+        while (batch.size() < batchSize && (request = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(request);
+        }
+        return batch;
+    }
+
+    private Mono<Void> write(List<RepoRequest> batch) {
+        stageMetrics.recordSize("mongo.history_write", "requests", batch.size());
+        return Mono.when(repoRequestRepository.insert(batch).then(), incrementCounters(batch))
+                .transform(write -> stageMetrics.time("mongo.history_write", write))
+                .doOnSuccess(v -> {
+                    written.addAndGet(batch.size());
+                    batches.incrementAndGet();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to write request history batch: {}", e.getMessage());
+                    dropped.addAndGet(batch.size());
+                    return Mono.empty();
+                });
+    }
+
+    // Pre-aggregate the batch so each counter document gets a single $inc
+    private Mono<Void> incrementCounters(List<RepoRequest> batch) {
+        Map<String, RepoPopularity> counters = new HashMap<>();
+        for (RepoRequest request : batch) {
+            addTo(counters, RepoPopularity.HOUR, request.getRequestTime().truncatedTo(ChronoUnit.HOURS), HOURLY_RETENTION, request);
+            addTo(counters, RepoPopularity.DAY, request.getRequestTime().truncatedTo(ChronoUnit.DAYS), DAILY_RETENTION, request);
+        }
+
+        ReactiveBulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RepoPopularity.class);
+        for (RepoPopularity counter : counters.values()) {
+            ops.upsert(Query.query(Criteria.where("_id").is(counter.getId())), new Update()
+                    .inc("count", counter.getCount())
+                    .setOnInsert("owner", counter.getOwner())
+                    .setOnInsert("repoName", counter.getRepoName())
+                    .set("repoUrl", counter.getRepoUrl())
+                    .setOnInsert("granularity", counter.getGranularity())
+                    .setOnInsert("bucket", counter.getBucket())
+                    .setOnInsert("expireAt", counter.getExpireAt()));
+        }
+        return ops.execute().then();
+    }
+
+    private static void addTo(Map<String, RepoPopularity> counters, String granularity, LocalDateTime bucket, Duration retention,
+                              RepoRequest request) {
+        String id = RepoPopularity.key(granularity, bucket, request.getOwner(), request.getRepoName());
+        RepoPopularity counter = counters.computeIfAbsent(id, k -> {
+            RepoPopularity created = new RepoPopularity();
+            created.setId(k);
+            // GitHub names are case-insensitive; one counter per repository whatever the spelling
+            created.setOwner(request.getOwner().toLowerCase());
+            created.setRepoName(request.getRepoName().toLowerCase());
+            created.setGranularity(granularity);
+            created.setBucket(bucket);
+            created.setExpireAt(bucket.plus(retention));
+            return created;
+        });
+        counter.setCount(counter.getCount() + 1);
+        // Batches are drained in arrival order, so the last URL wins
+        counter.setRepoUrl(request.getRepoUrl());
+    }
+}
@@ -0,0 +1,37 @@
+package com.codeverse.backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Stage durations of one request, rendered as a {@code Server-Timing} header. Created per
+ * request by the web filter and carried in the Reactor context; a stage that runs several
+ * times in one request is reported once with its total duration and call count.
+ */
+public class ServerTiming {
+
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+
+    public synchronized void add(String stage, long nanos) {
+        long[] totals = stages.computeIfAbsent(stage, k -> new long[2]);
+        totals[0] += nanos;
+        totals[1]++;
+    }
+
+    public synchronized String header() {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, long[]> stage : stages.entrySet()) {
+            if (header.length() > 0) {
+                header.append(", ");
+            }
+            long[] totals = stage.getValue();
+            header.append(stage.getKey());
+            if (totals[1] > 1) {
+                header.append(";desc=\"").append(totals[1]).append(" calls\"");
+            }
+            header.append(";dur=").append(String.format(Locale.ROOT, "%.1f", totals[0] / 1_000_000.0));
+        }
+        return header.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package com.codeverse.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits source files into pieces small enough for one model prompt.
+ * <p>
+ * Each chunk is limited by an estimated token count and a line count. Within those limits
+ * the cut is placed where the code is least nested: bracket depth is tracked line by line
+ * (string literals and comments are skipped), and among the lines in the second half of the
+ * window the one with the lowest depth, then the lowest indentation, then a preceding blank
+ * line wins. In practice that means chunks end between top-level declarations, and only
+ * fall back to cutting inside a block when a single block exceeds the budget.
+ */
+public class SourceChunker {
+
+    public record Chunk(int startLine, int endLine, String text) {
+
+        public int lineCount() {
+            return endLine - startLine + 1;
+        }
+    }
+
+    private final int maxTokens;
+    private final int maxLines;
+
+    public SourceChunker(int maxTokens, int maxLines) {
+        this.maxTokens = maxTokens;
+        this.maxLines = maxLines;
+    }
+
+    public boolean fits(String content) {
+        return estimateTokens(content) <= maxTokens && lineCount(content) <= maxLines;
+    }
+
+    /**
+     * Splits {@code content} into consecutive chunks; line numbers are 1-based and inclusive.
+     */
+    public List<Chunk> split(String content) {
+        String[] lines = content.split("\r?\n", -1);
+        int[] depth = bracketDepths(lines);
+        int[] tokens = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            tokens[i] = estimateTokens(lines[i]) + 1;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < lines.length) {
+            int end = start;
+            int budget = 0;
+            while (end < lines.length && end - start < maxLines && budget + tokens[end] <= maxTokens) {
+                budget += tokens[end++];
+            }
+            if (end == start) {
+                end = start + 1;
+            } else if (end < lines.length) {
+                end = bestCut(lines, depth, start, end);
+            }
+            chunks.add(new Chunk(start + 1, end, String.join("\n", Arrays.asList(lines).subList(start, end))));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Local token estimate that tracks BPE tokenizers better than a flat characters-per-token
+     * ratio on code: identifier and number runs cost about one token per four characters,
+     * every other visible character (operators, brackets, quotes) costs one, and a run of
+     * whitespace costs one.
+     */
+    public static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int word = 0;
+        boolean inSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                word++;
+                inSpace = false;
+                continue;
+            }
+            if (word > 0) {
+                tokens += (word + 3) / 4;
+                word = 0;
+            }
+            if (Character.isWhitespace(c)) {
+                if (!inSpace) {
+                    tokens++;
+                    inSpace = true;
+                }
+            } else {
+                tokens++;
+                inSpace = false;
+            }
+        }
+        return tokens + (word + 3) / 4;
+    }
+
+    // Cut before the least nested line in the second half of [start, end)
+    private static int bestCut(String[] lines, int[] depth, int start, int end) {
+        int best = end;
+        long bestKey = Long.MAX_VALUE;
+        int floor = start + Math.max(1, (end - start) / 2);
+        for (int i = end; i >= floor; i--) {
+            boolean blankBefore = lines[i - 1].isBlank();
+            long key = ((long) depth[i] << 32) | ((long) indentation(lines[i]) << 1) | (blankBefore ? 0 : 1);
+            if (key < bestKey) {
+                bestKey = key;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Bracket depth at the start of each line, plus one trailing entry for end of input
+    private static int[] bracketDepths(String[] lines) {
+        int[] depth = new int[lines.length + 1];
+        int current = 0;
+        boolean blockComment = false;
+        for (int i = 0; i < lines.length; i++) {
+            depth[i] = current;
+            String line = lines[i];
+            char quote = 0;
+            for (int j = 0; j < line.length(); j++) {
+                char c = line.charAt(j);
+                char next = j + 1 < line.length() ? line.charAt(j + 1) : 0;
+                if (blockComment) {
+                    if (c == '*' && next == '/') {
+                        blockComment = false;
+                        j++;
+                    }
+                } else if (quote != 0) {
+                    if (c == '\\') {
+                        j++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '/' && next == '*') {
+                    blockComment = true;
+                    j++;
+                } else if ((c == '/' && next == '/') || c == '#') {
+                    break;
+                } else if (c == '"' || c == '\'' || c == '`') {
+                    quote = c;
+                } else if (c == '{' || c == '(' || c == '[') {
+                    current++;
+                } else if (c == '}' || c == ')' || c == ']') {
+                    current = Math.max(0, current - 1);
+                }
+            }
+        }
+        depth[lines.length] = current;
+        return depth;
+    }
+
+    private static int indentation(String line) {
+        int indent = 0;
+        while (indent < line.length() && Character.isWhitespace(line.charAt(indent))) {
+            indent++;
+        }
+        // Blank lines carry no structure; treat them as deeply indented
+        return indent == line.length() ? Integer.MAX_VALUE >> 2 : indent;
+    }
+
+    private static int lineCount(String content) {
+        int count = 1;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package com.codeverse.backend.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Timers and payload-size distributions for the upstream stages of a request: GitHub calls,
+ * MongoDB reads and writes, and model calls.
+ * <p>
+ * Every stage is recorded as {@code codeverse.stage} tagged with the stage name and outcome,
+ * with a percentile histogram for Prometheus. When the stage runs inside a web request its
+ * duration is also added to that request's {@code Server-Timing} header.
+ */
+@Service
+public class StageMetrics {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public StageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Times {@code mono} from subscription until it completes, fails or is cancelled. The
+     * time is recorded before the value moves on, so the last stage of a request still makes
+     * it into that request's {@code Server-Timing} header.
+     */
+    public <T> Mono<T> time(String stage, Mono<T> mono) {
+        return Mono.deferContextual(context -> {
+            ServerTiming timing = context.getOrDefault(ServerTiming.class, null);
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Consumer<SignalType> record = signal -> {
+                if (!recorded.getAndSet(true)) {
+                    record(stage, signal, System.nanoTime() - start, timing);
+                }
+            };
+            return mono.doOnSuccess(value -> record.accept(SignalType.ON_COMPLETE))
+                    .doOnError(e -> record.accept(SignalType.ON_ERROR))
+                    .doOnCancel(() -> record.accept(SignalType.CANCEL));
+        });
+    }
+
+    /**
+     * Times {@code flux} from subscription until its last element, error or cancellation.
+     */
+    public <T> Flux<T> time(String stage, Flux<T> flux) {
+        return Flux.deferContextual(context -> {
+            ServerTiming timing = context.getOrDefault(ServerTiming.class, null);
+            long start = System.nanoTime();
+            return flux.doFinally(signal -> record(stage, signal, System.nanoTime() - start, timing));
+        });
+    }
+
+    /**
+     * Records the size of one payload, e.g. the bytes of a file or the entries of a tree.
+     */
+    public void recordSize(String payload, String unit, long amount) {
+        DistributionSummary.builder("codeverse.payload")
+                .description("Size of upstream payloads")
+                .baseUnit(unit)
+                .tag("payload", payload)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(amount);
+    }
+
+    private void record(String stage, SignalType signal, long nanos, ServerTiming timing) {
+        String outcome = switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+        Timer.builder("codeverse.stage")
+                .description("Latency of upstream stages")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (timing != null) {
+            timing.add(stage, nanos);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.CompactTree;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Assembles the repository context for a summary prompt within a fixed token budget.
+ * <p>
+ * Every file in the tree is scored: the root README first, then build manifests, then entry
+ * points, with penalties for depth, tests and very small or very large files; vendored and
+ * generated paths are skipped. Only as many candidates as the files and the outline can use
+ * are kept; the best are fetched concurrently and packed in rank order. The budget is split between the README, a directory outline built from the
+ * tree's aggregates, and the remaining key files, which are cut at a line boundary when they
+ * do not fit whole.
+ */
+public class SummaryContextBuilder {
+
+    public interface FileFetcher {
+        Mono<String> fetch(String path);
+    }
+
+    private static final Pattern README = Pattern.compile("(?i)readme(\\.(md|markdown|rst|txt|adoc))?");
+
+    private static final Set<String> MANIFESTS = Set.of(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "package.json", "cargo.toml", "go.mod",
+            "pyproject.toml", "setup.py", "setup.cfg", "requirements.txt", "pipfile", "gemfile", "composer.json",
+            "cmakelists.txt", "makefile", "build.sbt", "mix.exs", "pubspec.yaml", "dockerfile", "docker-compose.yml",
+            "docker-compose.yaml", "deno.json", "tsconfig.json");
+
+    private static final Set<String> ENTRY_POINTS = Set.of(
+            "main", "index", "app", "server", "__main__", "cli", "lib", "program", "manage", "wsgi", "asgi");
+
+    private static final Pattern SKIPPED = Pattern.compile(
+            "(?i)(^|/)(node_modules|vendor|third_party|dist|build|target|out|\\.git|\\.idea|\\.vscode|__pycache__)(/|$)"
+                    + "|\\.(min\\.js|map|lock|png|jpe?g|gif|svg|ico|webp|pdf|zip|gz|jar|class|so|dll|exe|woff2?|ttf|mp4|mp3)$"
+                    + "|(^|/)(package-lock\\.json|yarn\\.lock|pnpm-lock\\.yaml)$");
+
+    private static final Pattern TEST = Pattern.compile("(?i)(^|/)(tests?|__tests__|spec|specs)(/|$)|(test|spec)\\.[a-z]+$");
+
+    private static final long MAX_CANDIDATE_BYTES = 200_000;
+
+    // Best first: higher score, then path
+    private static final Comparator<Candidate> RANKING = Comparator.comparingInt((Candidate c) -> -c.score())
+            .thenComparing(Candidate::path);
+
+    private record Candidate(int node, int score, String path) {
+    }
+
+    private final int tokenBudget;
+    private final int maxFiles;
+    private final int concurrency;
+
+    public SummaryContextBuilder(int tokenBudget, int maxFiles, int concurrency) {
+        this.tokenBudget = tokenBudget;
+        this.maxFiles = maxFiles;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Ranking scans the whole tree, so it runs off the calling thread.
+     */
+    public Mono<String> build(CompactTree tree, FileFetcher fetcher) {
+        int readme = findReadme(tree);
+        return Mono.fromCallable(() -> rank(tree, readme, rankLimit(tree)))
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(ranked -> build(tree, fetcher, readme, ranked));
+    }
+
+    private Mono<String> build(CompactTree tree, FileFetcher fetcher, int readme, List<Integer> ranked) {
+        Mono<String> readmeText = readme > 0
+                ? fetcher.fetch(tree.path(readme)).onErrorReturn("")
+                : Mono.just("");
+        Mono<List<Map.Entry<String, String>>> files = Flux.fromIterable(ranked.subList(0, Math.min(ranked.size(), maxFiles)))
+                .flatMapSequential(node -> fetcher.fetch(tree.path(node))
+                        .map(content -> Map.entry(tree.path(node), content))
+                        .onErrorResume(e -> Mono.empty()), concurrency)
+                .collectList();
+
+        return Mono.zip(readmeText, files)
+                .map(tuple -> pack(tree, readme, tuple.getT1(), tuple.getT2(), ranked));
+    }
+
+    private String pack(CompactTree tree, int readme, String readmeText, List<Map.Entry<String, String>> files, List<Integer> ranked) {
+        StringBuilder context = new StringBuilder();
+        // Keep some room for the section headers
+        int remaining = tokenBudget - 50;
+
+        // Roughly: a quarter for the outline, up to 40% for the README, the rest for key files
+        String outline = outline(tree, ranked, tokenBudget / 4);
+        context.append("STRUCTURE:\n").append(outline).append('\n');
+        remaining -= SourceChunker.estimateTokens(outline);
+
+        if (readmeText.isBlank()) {
+            context.append("\nREADME: No README found.\n");
+        } else {
+            String text = fit(readmeText, Math.min(remaining, tokenBudget * 2 / 5));
+            context.append("\nREADME (").append(tree.path(readme)).append("):\n").append(text).append('\n');
+            remaining -= SourceChunker.estimateTokens(text);
+        }
+
+        for (Map.Entry<String, String> file : files) {
+            if (remaining < 100) {
+                break;
+            }
+            if (file.getValue().indexOf('\0') >= 0) {
+                continue;
+            }
+            String text = fit(file.getValue(), Math.min(remaining, tokenBudget / 4));
+            if (text.isBlank()) {
+                continue;
+            }
+            context.append("\nFILE ").append(file.getKey()).append(":\n```\n").append(text).append("\n```\n");
+            remaining -= SourceChunker.estimateTokens(text) + 10;
+        }
+        return context.toString();
+    }
+
+    // Top-level directories with their aggregates, then the highest ranked paths
+    private static String outline(CompactTree tree, List<Integer> ranked, int budget) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < tree.childCount(0); i++) {
+            int child = tree.child(0, i);
+            if (tree.isDirectory(child)) {
+                out.append(tree.name(child)).append("/ (").append(tree.fileCount(child)).append(" files)\n");
+            } else {
+                out.append(tree.name(child)).append('\n');
+            }
+            if (SourceChunker.estimateTokens(out) > budget / 2) {
+                out.append("...\n");
+                break;
+            }
+        }
+        for (int node : ranked) {
+            if (tree.depth(node) == 1) {
+                continue;
+            }
+            String line = tree.path(node) + '\n';
+            if (SourceChunker.estimateTokens(out) + SourceChunker.estimateTokens(line) > budget) {
+                break;
+            }
+            out.append(line);
+        }
+        return out.toString();
+    }
+
+    private static int findReadme(CompactTree tree) {
+        int best = -1;
+        for (int i = 0; i < tree.childCount(0); i++) {
+            int child = tree.child(0, i);
+            if (!tree.isDirectory(child) && README.matcher(tree.name(child)).matches()
+                    && (best < 0 || tree.name(child).toLowerCase().endsWith(".md"))) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // The fetched files plus every outline line the budget could hold (a line costs at least a
+    // token); top-level files take a rank but are left out of the outline
+    private int rankLimit(CompactTree tree) {
+        return maxFiles + tokenBudget / 4 + tree.childCount(0);
+    }
+
+    /**
+     * The {@code limit} best candidates in rank order. A bounded heap keeps the worst of the
+     * current best on top, so the scan costs O(n log limit) and nothing is boxed per node.
+     */
+    private static List<Integer> rank(CompactTree tree, int readme, int limit) {
+        // Nodes come after their parents, so each path is built once from the parent's
+        String[] paths = new String[tree.nodeCount()];
+        paths[0] = "";
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (int node = 1; node < tree.nodeCount(); node++) {
+            int parent = tree.parent(node);
+            String path = parent == 0 ? tree.name(node) : paths[parent] + "/" + tree.name(node);
+            if (tree.isDirectory(node)) {
+                paths[node] = path;
+                continue;
+            }
+            if (node == readme || tree.size(node) > MAX_CANDIDATE_BYTES || SKIPPED.matcher(path).find()) {
+                continue;
+            }
+            Candidate candidate = new Candidate(node, score(tree, node, path), path);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (RANKING.compare(candidate, best.peek()) < 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+        Candidate[] sorted = best.toArray(new Candidate[0]);
+        Arrays.sort(sorted, RANKING);
+        List<Integer> nodes = new ArrayList<>(sorted.length);
+        for (Candidate candidate : sorted) {
+            nodes.add(candidate.node());
+        }
+        return nodes;
+    }
+
+    private static int score(CompactTree tree, int node, String path) {
+        String name = tree.name(node).toLowerCase();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+
+        int score = 0;
+        if (MANIFESTS.contains(name) || name.endsWith(".csproj")) {
+            score += 100;
+        } else if (ENTRY_POINTS.contains(stem) || stem.endsWith("application")) {
+            score += 70;
+        }
+        score -= 8 * (tree.depth(node) - 1);
+        if (TEST.matcher(path).find()) {
+            score -= 40;
+        }
+
+        long size = tree.size(node);
+        if (size < 200) {
+            score -= 15;
+        } else if (size <= 20_000) {
+            score += 10;
+        } else if (size > 60_000) {
+            score -= 20;
+        }
+        return score;
+    }
+
+    // Longest prefix of whole lines that fits the token allowance
+    private static String fit(String text, int tokens) {
+        if (tokens <= 0) {
+            return "";
+        }
+        if (SourceChunker.estimateTokens(text) <= tokens) {
+            return text.strip();
+        }
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        for (String line : text.split("\r?\n")) {
+            int cost = SourceChunker.estimateTokens(line) + 1;
+            if (used + cost > tokens) {
+                break;
+            }
+            out.append(line).append('\n');
+            used += cost;
+        }
+        return out.append("...").toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.codeverse.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Packed summary contexts keyed by {@code owner/repo/sha}. A context depends only on the
+ * commit, so every summary mode, length and language level for that commit reuses it.
+ * Entries hold the cached {@link Mono} itself, which also makes concurrent builds for the
+ * same commit share one set of file fetches; a failed build is dropped so it can be retried.
+ */
+@Service
+public class SummaryContextCache {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Mono<String>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public SummaryContextCache(@Value("${codeverse.cache.summary-context.max-entries:256}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Mono<String> get(String key, Supplier<Mono<String>> builder) {
+        synchronized (entries) {
+            Mono<String> cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            misses.incrementAndGet();
+            Mono<String> created = Mono.defer(builder)
+                    .doOnError(e -> remove(key))
+                    .cache();
+            entries.put(key, created);
+            if (entries.size() > maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+            return created;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.TreeEntry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares two trees level by level and descends only into directories whose tree SHA
+ * differs, so the work follows the size of the change rather than the size of the repository.
+ * <p>
+ * The head tree is always resident. The base tree is either resident too, or listed one
+ * directory at a time through a {@link Lister}, in which case only the directories on the
+ * path to a change are ever requested. Directories that exist on one side only are expanded
+ * into their files where the tree is resident and reported as a single directory otherwise.
+ * Renames are exact-content renames: a removed and an added path with the same object SHA,
+ * matched for whole directories first and then for files.
+ */
+public class TreeDiffer {
+
+    public interface Lister {
+        Mono<TreeWalker.Subtree> list(String treeSha);
+    }
+
+    public static final String ADDED = "added";
+    public static final String REMOVED = "removed";
+    public static final String MODIFIED = "modified";
+    public static final String RENAMED = "renamed";
+
+    public record Change(String path, String previousPath, String type, String status) {
+    }
+
+    public record Result(List<Change> changes, boolean truncated, int listings) {
+    }
+
+    /**
+     * Raised when the base side would need more than {@code maxListings} directory listings.
+     */
+    public static class ListingBudgetExceededException extends RuntimeException {
+        public ListingBudgetExceededException() {
+            super("Tree diff listing budget exceeded");
+        }
+    }
+
+    // A file or directory on one side: a resident node (node >= 0) or an object SHA to list
+    private record Item(String name, boolean directory, String sha, int node) {
+    }
+
+    private final int concurrency;
+    private final int maxListings;
+    private final int maxChanges;
+
+    public TreeDiffer(int concurrency, int maxListings, int maxChanges) {
+        this.concurrency = concurrency;
+        this.maxListings = maxListings;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Diffs two resident trees.
+     */
+    public Mono<Result> diff(CompactTree base, CompactTree head) {
+        return new Run(base, null, head).run(new Item("", true, null, 0));
+    }
+
+    /**
+     * Diffs head against the base commit {@code baseSha}, listing base directories on demand.
+     */
+    public Mono<Result> diff(String baseSha, Lister base, CompactTree head) {
+        return new Run(null, base, head).run(new Item("", true, baseSha, -1));
+    }
+
+    private final class Run {
+
+        private final CompactTree base;
+        private final Lister lister;
+        private final CompactTree head;
+        private final AtomicInteger listings = new AtomicInteger();
+
+        // Guarded by this
+        private final List<Change> changes = new ArrayList<>();
+        private final List<Item> addedDirs = new ArrayList<>();
+        private final List<String> addedDirPaths = new ArrayList<>();
+        private final List<Item> removedDirs = new ArrayList<>();
+        private final List<String> removedDirPaths = new ArrayList<>();
+        private final Map<String, String> addedFiles = new HashMap<>();
+        private final Map<String, String> removedFiles = new HashMap<>();
+
+        private Run(CompactTree base, Lister lister, CompactTree head) {
+            this.base = base;
+            this.lister = lister;
+            this.head = head;
+        }
+
+        private Mono<Result> run(Item baseRoot) {
+            return compare("", baseRoot, new Item("", true, null, 0))
+                    .then(Mono.fromCallable(this::finish));
+        }
+
+        private Mono<Void> compare(String prefix, Item baseDir, Item headDir) {
+            if (baseDir.sha() != null && baseDir.sha().equals(headDir.sha())) {
+                return Mono.empty();
+            }
+            return Mono.zip(list(base, baseDir), Mono.just(resident(head, headDir)))
+                    .flatMapMany(pair -> {
+                        Map<String, Item> before = pair.getT1();
+                        Map<String, Item> after = pair.getT2();
+                        List<Item[]> descend = new ArrayList<>();
+                        synchronized (this) {
+                            for (Item old : before.values()) {
+                                Item current = after.get(old.name());
+                                String path = prefix + old.name();
+                                if (current == null) {
+                                    removed(path, old);
+                                } else if (old.directory() != current.directory()) {
+                                    removed(path, old);
+                                    added(path, current);
+                                } else if (old.directory()) {
+                                    descend.add(new Item[]{old, current});
+                                } else if (!Objects.equals(old.sha(), current.sha()) || old.sha() == null) {
+                                    changes.add(new Change(path, null, "file", MODIFIED));
+                                }
+                            }
+                            for (Item current : after.values()) {
+                                if (!before.containsKey(current.name())) {
+                                    added(prefix + current.name(), current);
+                                }
+                            }
+                        }
+                        return Flux.fromIterable(descend);
+                    })
+                    .flatMap(pair -> compare(prefix + pair[0].name() + "/", pair[0], pair[1]), concurrency)
+                    .then();
+        }
+
+        private Mono<Map<String, Item>> list(CompactTree tree, Item dir) {
+            if (tree != null) {
+                return Mono.just(resident(tree, dir));
+            }
+            if (listings.incrementAndGet() > maxListings) {
+                return Mono.error(new ListingBudgetExceededException());
+            }
+            return lister.list(dir.sha()).map(subtree -> {
+                Map<String, Item> children = new HashMap<>();
+                for (TreeEntry entry : subtree.entries()) {
+                    children.put(entry.getPath(), new Item(entry.getPath(), entry.isDirectory(), entry.getSha(), -1));
+                }
+                return children;
+            });
+        }
+
+        private Map<String, Item> resident(CompactTree tree, Item dir) {
+            Map<String, Item> children = new HashMap<>();
+            for (int i = 0; i < tree.childCount(dir.node()); i++) {
+                int child = tree.child(dir.node(), i);
+                children.put(tree.name(child), new Item(tree.name(child), tree.isDirectory(child), tree.sha(child), child));
+            }
+            return children;
+        }
+
+        // Caller holds the lock
+        private void added(String path, Item dir) {
+            if (dir.directory()) {
+                addedDirs.add(dir);
+                addedDirPaths.add(path);
+            } else {
+                addedFiles.put(path, dir.sha());
+            }
+        }
+
+        // Caller holds the lock
+        private void removed(String path, Item dir) {
+            if (dir.directory()) {
+                removedDirs.add(dir);
+                removedDirPaths.add(path);
+            } else {
+                removedFiles.put(path, dir.sha());
+            }
+        }
+
+        private synchronized Result finish() {
+            // Whole directories moved unchanged
+            Map<String, Integer> removedDirBySha = new HashMap<>();
+            for (int i = 0; i < removedDirs.size(); i++) {
+                if (removedDirs.get(i).sha() != null) {
+                    removedDirBySha.putIfAbsent(removedDirs.get(i).sha(), i);
+                }
+            }
+            boolean[] removedDirMatched = new boolean[removedDirs.size()];
+            for (int i = 0; i < addedDirs.size(); i++) {
+                Integer match = addedDirs.get(i).sha() != null ? removedDirBySha.remove(addedDirs.get(i).sha()) : null;
+                if (match != null) {
+                    removedDirMatched[match] = true;
+                    changes.add(new Change(addedDirPaths.get(i), removedDirPaths.get(match), "dir", RENAMED));
+                } else {
+                    expand(head, addedDirs.get(i), addedDirPaths.get(i), addedFiles, ADDED);
+                }
+            }
+            for (int i = 0; i < removedDirs.size(); i++) {
+                if (!removedDirMatched[i]) {
+                    expand(base, removedDirs.get(i), removedDirPaths.get(i), removedFiles, REMOVED);
+                }
+            }
+
+            // Files moved unchanged; the rest are plain additions and removals
+            Map<String, Deque<String>> removedBySha = new HashMap<>();
+            removedFiles.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> {
+                        if (e.getValue() != null) {
+                            removedBySha.computeIfAbsent(e.getValue(), k -> new ArrayDeque<>()).add(e.getKey());
+                        }
+                    });
+            Set<String> renamedFrom = new HashSet<>();
+            addedFiles.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> {
+                        Deque<String> candidates = e.getValue() != null ? removedBySha.get(e.getValue()) : null;
+                        if (candidates != null && !candidates.isEmpty()) {
+                            String from = candidates.poll();
+                            renamedFrom.add(from);
+                            changes.add(new Change(e.getKey(), from, "file", RENAMED));
+                        } else {
+                            changes.add(new Change(e.getKey(), null, "file", ADDED));
+                        }
+                    });
+            for (String path : removedFiles.keySet()) {
+                if (!renamedFrom.contains(path)) {
+                    changes.add(new Change(path, null, "file", REMOVED));
+                }
+            }
+
+            changes.sort(Comparator.comparing(Change::path).thenComparing(Change::status));
+            boolean truncated = changes.size() > maxChanges;
+            List<Change> result = truncated ? new ArrayList<>(changes.subList(0, maxChanges)) : changes;
+            return new Result(result, truncated, listings.get());
+        }
+
+        // Files under a one-sided directory when its tree is resident, else the directory itself
+        private void expand(CompactTree tree, Item dir, String path, Map<String, String> files, String status) {
+            if (tree == null || dir.node() < 0) {
+                changes.add(new Change(path, null, "dir", status));
+                return;
+            }
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(dir.node());
+            while (!stack.isEmpty()) {
+                int node = stack.pop();
+                for (int i = 0; i < tree.childCount(node); i++) {
+                    int child = tree.child(node, i);
+                    if (tree.isDirectory(child)) {
+                        stack.push(child);
+                    } else {
+                        files.put(tree.path(child), tree.sha(child));
+                    }
+                }
+            }
+        }
+    }
+}
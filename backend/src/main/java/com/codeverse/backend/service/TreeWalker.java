@@ -0,0 +1,198 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.TreeEntry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds a full tree when GitHub truncates the recursive listing of the root.
+ * <p>
+ * The root is listed non-recursively, then every subdirectory is requested recursively in
+ * parallel. A subtree that is itself truncated is listed non-recursively and its children
+ * are fanned out again, so the number of calls tracks how big the repository really is
+ * rather than how many directories it has. All calls share one concurrency limit and one
+ * request budget, and the walk stops at the deadline; in both cases whatever has been
+ * collected is returned with {@code complete = false}.
+ * <p>
+ * The walk can be seeded with the entries of the truncated listing. They come in git's
+ * pre-order, so every directory the listing got past is already whole: only the root and
+ * the directories on the way to its last entry are listed again, and only subdirectories
+ * it never reached are fanned out.
+ */
+public class TreeWalker {
+
+    public interface SubtreeFetcher {
+        Mono<Subtree> fetch(String sha, boolean recursive);
+    }
+
+    public record Subtree(List<TreeEntry> entries, boolean truncated) {
+    }
+
+    public record Result(List<TreeEntry> entries, boolean complete, int requests) {
+    }
+
+    private record Task(String prefix, String sha, boolean recursive) {
+    }
+
+    // Entries of a truncated listing; directories in open were cut off, the rest are whole
+    private record Seed(List<TreeEntry> entries, Set<String> paths, Set<String> open) {
+
+        private static final Seed NONE = new Seed(List.of(), Set.of(), Set.of());
+    }
+
+    private final SubtreeFetcher fetcher;
+    private final int concurrency;
+    private final int maxRequests;
+    private final Duration deadline;
+
+    public TreeWalker(SubtreeFetcher fetcher, int concurrency, int maxRequests, Duration deadline) {
+        this.fetcher = fetcher;
+        this.concurrency = concurrency;
+        this.maxRequests = maxRequests;
+        this.deadline = deadline;
+    }
+
+    public Mono<Result> walk(String rootSha) {
+        return walk(rootSha, List.of());
+    }
+
+    /**
+     * Walks the tree of {@code rootSha}, reusing {@code received}: the entries of a truncated
+     * recursive listing of it, in the order they were sent. Entries that are not in git's
+     * pre-order are ignored and the tree is walked from scratch.
+     */
+    public Mono<Result> walk(String rootSha, List<TreeEntry> received) {
+        Seed seed = seed(received);
+        ConcurrentLinkedQueue<TreeEntry> collected = new ConcurrentLinkedQueue<>(seed.entries());
+        Sinks.Many<Task> tasks = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger requests = new AtomicInteger();
+        AtomicBoolean complete = new AtomicBoolean(true);
+
+        Walk walk = new Walk(seed, collected, tasks, pending, requests, complete);
+        walk.submit(new Task("", rootSha, false));
+
+        return tasks.asFlux()
+                .flatMap(walk::process, concurrency)
+                .takeUntilOther(Mono.delay(deadline).doOnNext(t -> complete.set(false)))
+                .then(Mono.fromCallable(() -> {
+                    List<TreeEntry> entries = new ArrayList<>(collected);
+                    entries.sort(Comparator.comparing(TreeEntry::getPath));
+                    return new Result(entries, complete.get(), requests.get());
+                }));
+    }
+
+    private static Seed seed(List<TreeEntry> received) {
+        if (received.isEmpty()) {
+            return Seed.NONE;
+        }
+        Set<String> paths = new HashSet<>();
+        String previous = null;
+        for (TreeEntry entry : received) {
+            // Pre-order of git-sorted trees is the byte order of paths with a '/' after directories
+            String key = entry.isDirectory() ? entry.getPath() + "/" : entry.getPath();
+            String parent = parent(entry.getPath());
+            if ((previous != null && previous.compareTo(key) >= 0) || (!parent.isEmpty() && !paths.contains(parent))) {
+                return Seed.NONE;
+            }
+            paths.add(entry.getPath());
+            previous = key;
+        }
+        Set<String> open = new HashSet<>();
+        TreeEntry last = received.get(received.size() - 1);
+        for (String dir = last.isDirectory() ? last.getPath() : parent(last.getPath()); !dir.isEmpty(); dir = parent(dir)) {
+            open.add(dir);
+        }
+        return new Seed(received, paths, open);
+    }
+
+    private static String parent(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private final class Walk {
+
+        private final Seed seed;
+        private final ConcurrentLinkedQueue<TreeEntry> collected;
+        private final Sinks.Many<Task> tasks;
+        private final AtomicInteger pending;
+        private final AtomicInteger requests;
+        private final AtomicBoolean complete;
+
+        private Walk(Seed seed, ConcurrentLinkedQueue<TreeEntry> collected, Sinks.Many<Task> tasks, AtomicInteger pending,
+                     AtomicInteger requests, AtomicBoolean complete) {
+            this.seed = seed;
+            this.collected = collected;
+            this.tasks = tasks;
+            this.pending = pending;
+            this.requests = requests;
+            this.complete = complete;
+        }
+
+        private void submit(Task task) {
+            pending.incrementAndGet();
+            tasks.emitNext(task, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+
+        private Mono<Void> process(Task task) {
+            if (requests.incrementAndGet() > maxRequests) {
+                complete.set(false);
+                finish();
+                return Mono.empty();
+            }
+
+            return fetcher.fetch(task.sha(), task.recursive())
+                    .doOnNext(subtree -> {
+                        if (task.recursive() && subtree.truncated()) {
+                            // Too big even for one subtree: list it level by level instead
+                            submit(new Task(task.prefix(), task.sha(), false));
+                            return;
+                        }
+                        for (TreeEntry entry : subtree.entries()) {
+                            String path = task.prefix() + entry.getPath();
+                            boolean seeded = seed.paths().contains(path);
+                            if (!seeded) {
+                                collected.add(new TreeEntry(path, entry.getType(), entry.getSha(), entry.getSize()));
+                            }
+                            if (task.recursive() || !entry.isDirectory()) {
+                                continue;
+                            }
+                            if (seed.open().contains(path)) {
+                                // Cut off inside this directory: list it and fan out what was not reached
+                                submit(new Task(path + "/", entry.getSha(), false));
+                            } else if (!seeded) {
+                                submit(new Task(path + "/", entry.getSha(), true));
+                            }
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        complete.set(false);
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> {
+                        if (signal != SignalType.CANCEL) {
+                            finish();
+                        }
+                    })
+                    .then();
+        }
+
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                tasks.tryEmitComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.codeverse.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTreeTest {
+
+    // Out of order, with src/test only implied by its file and a duplicate entry
+    private final CompactTree tree = CompactTree.build("app", List.of(
+            new TreeEntry("src/main/java/App.java", "file", "s1", 100L),
+            new TreeEntry("src", "dir", "d1", null),
+            new TreeEntry("README.md", "file", "s2", 10L),
+            new TreeEntry("src/main", "dir", "d2", null),
+            new TreeEntry("src/main/java", "dir", "d3", null),
+            new TreeEntry("src/main/java/Util.java", "file", "s3", 50L),
+            new TreeEntry("src/main/resources", "dir", "d4", null),
+            new TreeEntry("src/test/AppTest.java", "file", "s4", 7L),
+            new TreeEntry("README.md", "file", "s2", 10L)));
+
+    @Test
+    void findsNodesByPath() {
+        assertEquals(0, tree.find(""));
+        assertEquals("app", tree.name(0));
+
+        int java = tree.find("src/main/java");
+        assertTrue(java > 0);
+        assertTrue(tree.isDirectory(java));
+        assertEquals("java", tree.name(java));
+        assertEquals("d3", tree.sha(java));
+        assertEquals(3, tree.depth(java));
+        assertEquals(tree.find("src/main"), tree.parent(java));
+
+        int util = tree.find("src/main/java/Util.java");
+        assertFalse(tree.isDirectory(util));
+        assertEquals(50L, tree.size(util));
+        assertEquals("s3", tree.sha(util));
+
+        // Trailing and doubled slashes name the same node
+        assertEquals(java, tree.find("src/main/java/"));
+        assertEquals(java, tree.find("src//main/java"));
+
+        assertEquals(-1, tree.find("src/mai"));
+        assertEquals(-1, tree.find("src/main/java/App"));
+        assertEquals(-1, tree.find("README.md/x"));
+        assertEquals(-1, tree.find("missing"));
+    }
+
+    @Test
+    void pathIsTheInverseOfFind() {
+        List<String> paths = new ArrayList<>();
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            paths.add(tree.path(node));
+            assertEquals(node, tree.find(tree.path(node)));
+        }
+        assertEquals(List.of("", "src", "src/main", "src/main/java", "src/main/java/App.java", "README.md",
+                "src/main/java/Util.java", "src/main/resources", "src/test", "src/test/AppTest.java"), paths);
+        assertEquals(10, tree.nodeCount());
+    }
+
+    @Test
+    void aggregatesCountsAndSizesOverEachSubtree() {
+        assertAggregates("", 4, 5, 167);
+        assertAggregates("src", 3, 4, 157);
+        assertAggregates("src/main", 2, 2, 150);
+        assertAggregates("src/main/java", 2, 0, 150);
+        assertAggregates("src/main/resources", 0, 0, 0);
+        assertAggregates("src/test", 1, 0, 7);
+
+        int app = tree.find("src/main/java/App.java");
+        assertEquals(1, tree.fileCount(app));
+        assertEquals(100L, tree.totalSize(app));
+
+        // A directory only implied by a deeper path has no object id
+        int test = tree.find("src/test");
+        assertTrue(tree.isDirectory(test));
+        assertNull(tree.sha(test));
+        assertNull(tree.sha(0));
+    }
+
+    @Test
+    void listsChildrenInOrderOfFirstAppearance() {
+        int src = tree.find("src");
+        assertEquals(2, tree.childCount(0));
+        assertEquals(src, tree.child(0, 0));
+        assertEquals(tree.find("README.md"), tree.child(0, 1));
+        assertEquals(List.of("main", "test"), List.of(tree.name(tree.child(src, 0)), tree.name(tree.child(src, 1))));
+    }
+
+    @Test
+    void encodesNestedJson() {
+        CompactTree small = CompactTree.build("r", List.of(
+                new TreeEntry("a/b.txt", "file", "s1", 3L),
+                new TreeEntry("c", "file", "s2", 4L)));
+
+        assertEquals("{\"n\":\"r\",\"f\":2,\"d\":1,\"s\":7,\"c\":["
+                        + "{\"n\":\"a\",\"f\":1,\"d\":0,\"s\":3,\"c\":[{\"n\":\"b.txt\",\"s\":3}]},"
+                        + "{\"n\":\"c\",\"s\":4}]}",
+                new String(small.toJson(), StandardCharsets.UTF_8));
+    }
+
+    private void assertAggregates(String path, int files, int dirs, long bytes) {
+        int node = tree.find(path);
+        assertEquals(files, tree.fileCount(node), path);
+        assertEquals(dirs, tree.dirCount(node), path);
+        assertEquals(bytes, tree.totalSize(node), path);
+    }
+}
@@ -0,0 +1,94 @@
+package com.codeverse.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathIndexTest {
+
+    private final PathIndex index = PathIndex.build(CompactTree.build("app", entries(
+            "README.md",
+            "config.yml",
+            "src/configuration.java",
+            "src/app_config_loader.js",
+            "src/appconfigs.txt",
+            "src/deep/nested/config.yml",
+            "lib/my-config/readme.md",
+            "lib/myconfigs/a.md")));
+
+    @Test
+    void ranksExactThenPrefixThenWordThenSubstring() {
+        assertEquals(List.of(
+                        // exact basename, shallower first
+                        "config.yml",
+                        "src/deep/nested/config.yml",
+                        // basename prefix
+                        "src/configuration.java",
+                        // basename word boundary, shorter first at the same depth
+                        "lib/my-config",
+                        "src/app_config_loader.js",
+                        // other basename substring
+                        "lib/myconfigs",
+                        "src/appconfigs.txt",
+                        // directory segment, then any other substring
+                        "lib/my-config/readme.md",
+                        "lib/myconfigs/a.md"),
+                paths(index.search("config", 20)));
+    }
+
+    @Test
+    void scoresDropTierByTier() {
+        List<PathIndex.Match> matches = index.search("Config", 20);
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+        }
+        // Six tiers, one point apart, and the query is case-insensitive
+        assertEquals(5, matches.get(0).score() - matches.get(matches.size() - 1).score());
+    }
+
+    @Test
+    void limitKeepsTheBestMatches() {
+        assertEquals(List.of("config.yml", "src/deep/nested/config.yml", "src/configuration.java"),
+                paths(index.search("config", 3)));
+        assertEquals(List.of(), index.search("config", 0));
+        assertEquals(List.of(), index.search("   ", 5));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of("src/configuration.java"), paths(index.search("src java", 20)));
+        assertEquals(List.of("src/deep/nested/config.yml"), paths(index.search("config nested", 20)));
+        assertEquals(List.of("lib/my-config/readme.md"), paths(index.search("readme config", 20)));
+        assertEquals(List.of(), index.search("config missing", 20));
+    }
+
+    @Test
+    void fuzzyFallbackFindsAOneTypoQuery() {
+        // replaced, dropped and inserted character
+        assertEquals(List.of("src/configuration.java"), paths(index.search("confiquration", 20)));
+        assertEquals(List.of("src/configuration.java"), paths(index.search("confguration", 20)));
+        assertEquals(List.of("src/configuration.java"), paths(index.search("configurattion", 20)));
+        // fuzzy matches rank below every substring match
+        List<PathIndex.Match> matches = index.search("configurat1on", 20);
+        assertEquals(List.of("src/configuration.java"), paths(matches));
+        assertTrue(matches.get(0).score() < index.search("config", 20).get(8).score());
+
+        assertEquals(List.of(), index.search("conflagration", 20));
+    }
+
+    private static List<TreeEntry> entries(String... files) {
+        List<TreeEntry> entries = new ArrayList<>();
+        for (String file : files) {
+            entries.add(new TreeEntry(file, "file", null, 1L));
+        }
+        return entries;
+    }
+
+    private static List<String> paths(List<PathIndex.Match> matches) {
+        return matches.stream().map(PathIndex.Match::path).toList();
+    }
+}
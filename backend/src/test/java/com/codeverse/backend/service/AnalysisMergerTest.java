@@ -0,0 +1,132 @@
+package com.codeverse.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisMergerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AnalysisMerger merger = new AnalysisMerger(objectMapper);
+
+    private final List<SourceChunker.Chunk> chunks = List.of(
+            new SourceChunker.Chunk(1, 4, "import x;\n\nclass A {\n}"),
+            new SourceChunker.Chunk(5, 8, "class B {\n    String s = null;\n    int n = s.length();\n}"));
+
+    @Test
+    void mergesAnalysesIntoTheWholeFileSchema() throws Exception {
+        String first = """
+                {"explanation": {"overview": "Declares A.", "key_logic": "None.", "code_flow": ""},
+                 "comments": [{"line": "3", "code_snippet": "class A {", "comment": "A starts"}],
+                 "insights": {"best_practices": ["Small classes"], "possible_improvements": ["Add docs"], "complexity": "Low"}}
+                """;
+        // Prose and a markdown fence around the JSON, and a line number that is off by one
+        String second = """
+                Here is the analysis:
+                ```json
+                {"explanation": {"overview": "Declares B.", "key_logic": "Reads s.", "code_flow": "Fails."},
+                 "comments": [{"line": 2, "code_snippet": "int n = s.length();", "comment": "NPE"},
+                              {"line": "Line 1", "comment": "B starts"}],
+                 "insights": {"best_practices": ["Small classes"], "possible_improvements": ["Check nulls"], "complexity": "medium "}}
+                ```
+                """;
+
+        JsonNode merged = objectMapper.readTree(merger.mergeAnalyses(chunks, List.of(first, second)));
+
+        assertEquals(List.of("explanation", "comments", "insights"), fieldNames(merged));
+        JsonNode explanation = merged.path("explanation");
+        assertEquals(List.of("overview", "key_logic", "code_flow"), fieldNames(explanation));
+        assertEquals("Lines 1-4: Declares A.\n\nLines 5-8: Declares B.", explanation.path("overview").asText());
+        assertEquals("Lines 1-4: None.\n\nLines 5-8: Reads s.", explanation.path("key_logic").asText());
+        assertEquals("Lines 5-8: Fails.", explanation.path("code_flow").asText());
+
+        JsonNode comments = merged.path("comments");
+        assertEquals(3, comments.size());
+        assertEquals(List.of(3, 5, 7), List.of(comments.get(0).path("line").intValue(),
+                comments.get(1).path("line").intValue(), comments.get(2).path("line").intValue()));
+        assertTrue(comments.get(0).path("line").isInt());
+        assertEquals(List.of("line", "code_snippet", "comment"), fieldNames(comments.get(0)));
+        assertEquals("NPE", comments.get(2).path("comment").asText());
+
+        JsonNode insights = merged.path("insights");
+        assertEquals(List.of("best_practices", "possible_improvements", "complexity"), fieldNames(insights));
+        assertEquals("[\"Small classes\"]", insights.path("best_practices").toString());
+        assertEquals("[\"Add docs\",\"Check nulls\"]", insights.path("possible_improvements").toString());
+        assertEquals("Medium", insights.path("complexity").asText());
+    }
+
+    @Test
+    void skipsFailedChunksAndOnlyReportsAnErrorWhenAllFail() throws Exception {
+        String error = "{\"error\": \"rate limited\"}";
+        String ok = "{\"explanation\": {\"overview\": \"Declares B.\"}, \"insights\": {}}";
+
+        JsonNode merged = objectMapper.readTree(merger.mergeAnalyses(chunks, List.of(error, ok)));
+        assertEquals("Lines 5-8: Declares B.", merged.path("explanation").path("overview").asText());
+        assertEquals("", merged.path("explanation").path("key_logic").asText());
+        assertEquals(0, merged.path("comments").size());
+        assertEquals("Unknown", merged.path("insights").path("complexity").asText());
+
+        assertEquals(error, merger.mergeAnalyses(chunks, List.of(error, "not json")));
+    }
+
+    @Test
+    void mergesBugsDedupedByLineAndType() throws Exception {
+        String first = """
+                [{"line": 9, "code_snippet": "import x;", "type": "Unused Import", "severity": "Low",
+                  "explanation": "x is unused", "suggestion": "Remove it"}]
+                """;
+        // The same bug twice with the category spelled differently, and one reported by line only
+        String second = """
+                ```json
+                [{"line": "3", "code_snippet": "int n = s.length();", "type": "Null Pointer Risk", "severity": "High",
+                  "explanation": "s is null", "suggestion": "Check s"},
+                 {"line": 1, "code_snippet": "    int n = s.length();", "type": "null pointer risk ", "severity": "High",
+                  "explanation": "s is null", "suggestion": "Check s"},
+                 {"line": "2", "type": "Null Pointer Risk", "severity": "Medium",
+                  "explanation": "s is assigned null", "suggestion": "Initialize s"}]
+                ```
+                """;
+
+        JsonNode merged = objectMapper.readTree(merger.mergeBugs(chunks, List.of(first, second)));
+
+        assertTrue(merged.isArray());
+        assertEquals(3, merged.size());
+        // Line 9 is out of the first chunk; the snippet puts it back on line 1
+        assertEquals(List.of(1, 6, 7), List.of(merged.get(0).path("line").intValue(),
+                merged.get(1).path("line").intValue(), merged.get(2).path("line").intValue()));
+        assertEquals(List.of("line", "code_snippet", "type", "severity", "explanation", "suggestion"), fieldNames(merged.get(0)));
+        assertEquals("Initialize s", merged.get(1).path("suggestion").asText());
+        assertEquals("Check s", merged.get(2).path("suggestion").asText());
+    }
+
+    @Test
+    void bugsFromFailedChunksAreSkipped() {
+        String error = "{\"error\": \"rate limited\"}";
+
+        assertEquals("[]", merger.mergeBugs(chunks, List.of(error, "[]")));
+        assertEquals(error, merger.mergeBugs(chunks, List.of(error, "no answer")));
+    }
+
+    @Test
+    void remapsLinesIntoTheChunk() throws Exception {
+        SourceChunker.Chunk chunk = chunks.get(1);
+
+        assertEquals(5, AnalysisMerger.remapLine(chunk, objectMapper.readTree("{\"line\": 0}")));
+        assertEquals(8, AnalysisMerger.remapLine(chunk, objectMapper.readTree("{\"line\": 40}")));
+        assertEquals(5, AnalysisMerger.remapLine(chunk, objectMapper.readTree("{}")));
+        // The snippet line closest to the reported one wins
+        assertEquals(8, AnalysisMerger.remapLine(chunk, objectMapper.readTree("{\"line\": 4, \"code_snippet\": \"}\"}")));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,135 @@
+package com.codeverse.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitHubRateLimitTest {
+
+    private final GitHubRateLimit rateLimit = new GitHubRateLimit("", List.of(), 0.2, 0.4, Duration.ofSeconds(30), 10, Duration.ofSeconds(30));
+
+    @Test
+    void cancelAfterTakingATokenGivesItBack() {
+        long reset = Instant.now().getEpochSecond() + 3600;
+        Sinks.One<ClientResponse> firstResponse = Sinks.one();
+        AtomicReference<Disposable> fourth = new AtomicReference<>();
+        AtomicBoolean thirdSent = new AtomicBoolean();
+        AtomicBoolean fourthSent = new AtomicBoolean();
+        ExchangeFunction github = request -> switch (request.url().getPath()) {
+            case "/warm-up" -> Mono.just(response(2, reset));
+            case "/first" -> firstResponse.asMono();
+            case "/third" -> {
+                // Cancels the fourth request after it took a token but before it was handed over
+                thirdSent.set(true);
+                fourth.get().dispose();
+                yield Mono.never();
+            }
+            case "/fourth" -> {
+                fourthSent.set(true);
+                yield Mono.never();
+            }
+            default -> Mono.never();
+        };
+
+        send("/warm-up", github).block();
+        send("/first", github).subscribe();
+        Disposable second = send("/second", github).subscribe();
+        // Both tokens are in flight, so these two wait in the queue
+        Disposable third = send("/third", github).subscribe();
+        fourth.set(send("/fourth", github).subscribe());
+        assertEquals(2, rateLimit.stats().get("queued"));
+
+        // A new window frees room for both at once; they are dispatched in one pass
+        firstResponse.tryEmitValue(response(10, reset + 3600));
+
+        assertTrue(thirdSent.get());
+        assertFalse(fourthSent.get());
+        assertEquals(0, rateLimit.stats().get("queued"));
+        assertEquals(2L, ((Number) rateLimit.stats().get("in_flight")).longValue());
+
+        second.dispose();
+        third.dispose();
+        assertEquals(0L, ((Number) rateLimit.stats().get("in_flight")).longValue());
+    }
+
+    @Test
+    void cancelWhileQueuedLeavesTheQueue() {
+        long reset = Instant.now().getEpochSecond() + 3600;
+        ExchangeFunction github = request -> request.url().getPath().equals("/warm-up")
+                ? Mono.just(response(1, reset))
+                : Mono.never();
+
+        send("/warm-up", github).block();
+        Disposable running = send("/running", github).subscribe();
+        Disposable queued = send("/queued", github).subscribe();
+        assertEquals(1, rateLimit.stats().get("queued"));
+
+        queued.dispose();
+        assertEquals(0, rateLimit.stats().get("queued"));
+        running.dispose();
+        assertEquals(0L, ((Number) rateLimit.stats().get("in_flight")).longValue());
+    }
+
+    @Test
+    void allowanceCapsItsShareOfTheWindow() {
+        long reset = Instant.now().getEpochSecond() + 3600;
+        ExchangeFunction github = request -> Mono.just(request.url().getPath().equals("/unchanged")
+                ? ClientResponse.create(HttpStatus.NOT_MODIFIED).build()
+                : response(5000, 5000, reset));
+        send("/warm-up", github).block();
+
+        // 0.1% of 5000 is five calls; answers with 304 are not charged
+        GitHubRateLimit.Allowance allowance = new GitHubRateLimit.Allowance(0.001);
+        Context background = GitHubRateLimit.priority(GitHubRateLimit.Priority.BACKGROUND, allowance);
+        for (int i = 0; i < 3; i++) {
+            send("/unchanged", github).contextWrite(background).block();
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimit.allows(allowance));
+            send("/changed", github).contextWrite(background).block();
+        }
+
+        assertFalse(rateLimit.allows(allowance));
+        assertEquals(5, allowance.calls());
+        assertThrows(GitHubBudgetException.class, () -> send("/changed", github).contextWrite(background).block());
+        // Other work is not affected
+        send("/changed", github).block();
+        send("/changed", github).contextWrite(GitHubRateLimit.priority(GitHubRateLimit.Priority.BACKGROUND)).block();
+    }
+
+    private Mono<ClientResponse> send(String path, ExchangeFunction github) {
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://api.github.com" + path)).build();
+        return rateLimit.filter().filter(request, github);
+    }
+
+    private static ClientResponse response(long remaining, long reset) {
+        return response(5000, remaining, reset);
+    }
+
+    private static ClientResponse response(long limit, long remaining, long reset) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header("X-RateLimit-Limit", String.valueOf(limit))
+                .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                .header("X-RateLimit-Reset", String.valueOf(reset))
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.TreeEntry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitHubTreeParserTest {
+
+    private static final String BODY = """
+            {
+              "sha": "9fb037999f264ba9a7fc6274d15fa3ae2ab98312",
+              "url": "https://api.github.com/repos/o/r/git/trees/9fb037999f264ba9a7fc6274d15fa3ae2ab98312",
+              "tree": [
+                {"path": "README.md", "mode": "100644", "type": "blob", "size": 30,
+                 "sha": "44b4fc6d56897b048c772eb4087f854f46256132", "url": "https://api.github.com/x"},
+                {"path": "src", "mode": "040000", "type": "tree",
+                 "sha": "f484d249c660418515fb01c2b9662073663c242e", "url": "https://api.github.com/y"},
+                {"mode": "100644", "type": "blob", "sha": "7c258a9869f33c1e1e1f74fbb32f07c86cb5a75b",
+                 "path": "src/qu\\"ote\\\\d \\u00e9t\\u00e9 日本 😀.txt", "size": 1234567890123},
+                {"path": "lib", "mode": "160000", "type": "commit", "sha": "a1b2c3d4e5f60718293a4b5c6d7e8f9012345678"}
+              ],
+              "truncated": %s
+            }
+            """;
+
+    @Test
+    void parsesEntriesAndTruncatedFlagAtEveryChunkBoundary() {
+        for (boolean truncated : new boolean[]{false, true}) {
+            byte[] body = BODY.formatted(truncated).getBytes(StandardCharsets.UTF_8);
+            for (int split = 0; split <= body.length; split++) {
+                GitHubTreeParser parser = new GitHubTreeParser();
+                List<TreeEntry> entries = parser.parse(Flux.just(
+                        buffer(Arrays.copyOfRange(body, 0, split)), buffer(Arrays.copyOfRange(body, split, body.length))))
+                        .collectList().block();
+                assertEntries(entries, "split at " + split);
+                assertEquals(truncated, parser.isTruncated(), "split at " + split);
+                assertEquals("9fb037999f264ba9a7fc6274d15fa3ae2ab98312", parser.getSha(), "split at " + split);
+            }
+        }
+    }
+
+    @Test
+    void parsesABodyFedOneByteAtATime() {
+        byte[] body = BODY.formatted(true).getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> bytes = new ArrayList<>();
+        for (byte b : body) {
+            bytes.add(buffer(new byte[]{b}));
+        }
+        GitHubTreeParser parser = new GitHubTreeParser();
+
+        List<TreeEntry> entries = parser.parse(Flux.fromIterable(bytes)).collectList().block();
+
+        assertEntries(entries, "byte by byte");
+        assertTrue(parser.isTruncated());
+    }
+
+    @Test
+    void emitsEntriesBeforeTheBodyEnds() {
+        byte[] body = BODY.formatted(false).getBytes(StandardCharsets.UTF_8);
+        int afterFirstEntry = BODY.indexOf("{\"path\": \"src\"");
+        GitHubTreeParser parser = new GitHubTreeParser();
+
+        List<TreeEntry> first = parser.parse(Flux.concat(
+                        Flux.just(buffer(Arrays.copyOfRange(body, 0, afterFirstEntry))),
+                        Flux.never()))
+                .take(1)
+                .collectList()
+                .block();
+
+        assertEquals("README.md", first.get(0).getPath());
+        assertFalse(parser.isTruncated());
+    }
+
+    private static void assertEntries(List<TreeEntry> entries, String message) {
+        assertEquals(4, entries.size(), message);
+        assertEquals("README.md", entries.get(0).getPath(), message);
+        assertEquals("file", entries.get(0).getType(), message);
+        assertEquals(30L, entries.get(0).getSize(), message);
+        assertEquals("44b4fc6d56897b048c772eb4087f854f46256132", entries.get(0).getSha(), message);
+
+        assertEquals("src", entries.get(1).getPath(), message);
+        assertEquals("dir", entries.get(1).getType(), message);
+        assertNull(entries.get(1).getSize(), message);
+
+        // Escapes, and multi-byte characters that a chunk boundary can cut in half
+        assertEquals("src/qu\"ote\\d été 日本 😀.txt", entries.get(2).getPath(), message);
+        assertEquals(1234567890123L, entries.get(2).getSize(), message);
+        assertEquals("7c258a9869f33c1e1e1f74fbb32f07c86cb5a75b", entries.get(2).getSha(), message);
+
+        // Submodules have no size and are listed as files
+        assertEquals("lib", entries.get(3).getPath(), message);
+        assertEquals("file", entries.get(3).getType(), message);
+        assertNull(entries.get(3).getSize(), message);
+    }
+
+    private static DataBuffer buffer(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
@@ -0,0 +1,65 @@
+package com.codeverse.backend.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRequestSchedulerTest {
+
+    @Test
+    void cancelAfterAdmissionGivesBackTheSlot() throws InterruptedException {
+        // 10 tokens per millisecond
+        LlmRequestScheduler scheduler = new LlmRequestScheduler(2, 10, 600_000, 0, 5, Duration.ofSeconds(30));
+        scheduler.submit(LlmRequestScheduler.Priority.INTERACTIVE, 600_000, () -> Mono.just("drain")).block();
+
+        // Both wait for the bucket and are admitted by the same refill; the first one to start
+        // cancels the second after it got its slot but before it was told so
+        AtomicReference<Disposable> second = new AtomicReference<>();
+        AtomicBoolean secondCalled = new AtomicBoolean();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        Disposable first = scheduler.submitMany(LlmRequestScheduler.Priority.INTERACTIVE, 1000, () -> {
+            second.get().dispose();
+            firstStarted.countDown();
+            return Flux.never();
+        }).subscribe();
+        second.set(scheduler.submitMany(LlmRequestScheduler.Priority.BACKGROUND, 0, () -> {
+            secondCalled.set(true);
+            return Flux.never();
+        }).subscribe());
+
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(secondCalled.get());
+        assertEquals(1, scheduler.stats().get("running"));
+        assertEquals(0, scheduler.stats().get("queued"));
+
+        first.dispose();
+        assertEquals(0, scheduler.stats().get("running"));
+    }
+
+    @Test
+    void cancelWhileQueuedLeavesTheQueue() {
+        LlmRequestScheduler scheduler = new LlmRequestScheduler(1, 10, 600_000, 0, 5, Duration.ofSeconds(30));
+        Disposable running = scheduler.submitMany(LlmRequestScheduler.Priority.INTERACTIVE, 1, Flux::never).subscribe();
+        Disposable queued = scheduler.submitMany(LlmRequestScheduler.Priority.INTERACTIVE, 1, Flux::never).subscribe();
+        assertEquals(1, scheduler.stats().get("queued"));
+
+        queued.dispose();
+        assertEquals(0, scheduler.stats().get("queued"));
+        assertEquals(1, scheduler.stats().get("running"));
+
+        running.dispose();
+        assertEquals(0, scheduler.stats().get("running"));
+        assertEquals("done", scheduler.submit(LlmRequestScheduler.Priority.INTERACTIVE, 1, () -> Mono.just("done")).block());
+    }
+}
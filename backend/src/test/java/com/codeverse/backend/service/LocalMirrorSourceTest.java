@@ -0,0 +1,101 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoTree;
+import com.codeverse.backend.model.TreeEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalMirrorSourceTest {
+
+    @TempDir
+    Path temp;
+
+    private Path mirrors;
+    private LocalMirrorSource source;
+    private String commit;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path work = temp.resolve("roots/team/app");
+        Files.createDirectories(work.resolve("src/main"));
+        Files.writeString(work.resolve("README.md"), "# app\n");
+        Files.writeString(work.resolve("src/main/App.java"), "class App {}\n");
+        try (Git git = Git.init().setDirectory(work.toFile()).setInitialBranch("main").call()) {
+            git.add().addFilepattern(".").call();
+            PersonIdent author = new PersonIdent("Test", "test@example.com");
+            RevCommit head = git.commit().setMessage("initial").setAuthor(author).setCommitter(author).setSign(false).call();
+            commit = head.name();
+        }
+
+        mirrors = temp.resolve("mirrors");
+        source = new LocalMirrorSource(mirrors, Duration.ofMinutes(1), "rest", List.of(temp.resolve("roots").toString()),
+                64L << 20, 8192, 10, 1L << 30, new StageMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.close();
+    }
+
+    @Test
+    void servesARegisteredFileRepository() {
+        String[] ownerRepo = source.register(temp.resolve("roots/team/app").toUri());
+        String owner = ownerRepo[0];
+        String repo = ownerRepo[1];
+        assertTrue(owner.startsWith(LocalMirrorSource.FILE_OWNER_PREFIX));
+        assertEquals("app", repo);
+        assertTrue(source.handles(owner, repo));
+
+        assertEquals("main", source.resolveRef(owner, repo).block().getDefaultBranch());
+
+        RepoTree tree = source.fetchTree(owner, repo, commit).block();
+        assertFalse(tree.isTruncated());
+        Map<String, String> types = tree.getEntries().stream().collect(Collectors.toMap(TreeEntry::getPath, TreeEntry::getType));
+        assertEquals(Map.of("README.md", "file", "src", "dir", "src/main", "dir", "src/main/App.java", "file"), types);
+        TreeEntry app = tree.getEntries().stream().filter(entry -> entry.getPath().equals("src/main/App.java")).findFirst().orElseThrow();
+        assertEquals(13L, app.getSize());
+
+        TreeWalker.Subtree root = source.listTree(owner, repo, commit).block();
+        assertEquals(List.of("README.md", "src"), root.entries().stream().map(TreeEntry::getPath).toList());
+        TreeEntry src = root.entries().get(1);
+        assertEquals(List.of("main"), source.listTree(owner, repo, src.getSha()).block().entries().stream().map(TreeEntry::getPath).toList());
+
+        assertArrayEquals("class App {}\n".getBytes(StandardCharsets.UTF_8), source.fetchFile(owner, repo, commit, "src/main/App.java").block());
+        assertArrayEquals("# app\n".getBytes(StandardCharsets.UTF_8), source.fetchFile(owner, repo, "main", "README.md").block());
+        assertThrows(Exception.class, () -> source.fetchFile(owner, repo, commit, "missing.txt").block());
+    }
+
+    @Test
+    void refusesFileRepositoriesOutsideTheAllowedRoots() {
+        assertThrows(IllegalArgumentException.class, () -> source.register(temp.resolve("elsewhere").toUri()));
+    }
+
+    @Test
+    void refusesNamesThatLeaveTheMirrorDirectory() throws Exception {
+        for (String[] name : new String[][]{{"..", "x"}, {"owner", ".."}, {".", "x"}, {"a/..", "b"}, {"owner", "x/../../y"}}) {
+            assertFalse(source.handles(name[0], name[1]));
+            assertThrows(IllegalArgumentException.class, () -> source.fetchTree(name[0], name[1], commit).block());
+        }
+        assertFalse(Files.exists(mirrors) && Files.list(mirrors).findAny().isPresent());
+    }
+}
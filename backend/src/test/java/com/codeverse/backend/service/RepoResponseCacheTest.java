@@ -0,0 +1,127 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.service.RepoResponseCache.Encoding;
+import com.codeverse.backend.service.RepoResponseCache.Payload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepoResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void ifNoneMatchNamesTheVersionInAnyEncoding() {
+        assertTrue(RepoResponseCache.matches("\"abc-1\"", "abc-1"));
+        assertTrue(RepoResponseCache.matches("\"abc-1-gz\"", "abc-1"));
+        assertTrue(RepoResponseCache.matches("\"abc-1-br\"", "abc-1"));
+        // Weak comparison, as If-None-Match requires
+        assertTrue(RepoResponseCache.matches("W/\"abc-1-gz\"", "abc-1"));
+        assertTrue(RepoResponseCache.matches("*", "abc-1"));
+        assertTrue(RepoResponseCache.matches(" \"other\" ,W/\"abc-1-br\"", "abc-1"));
+        assertTrue(RepoResponseCache.matches("\"other\", *", "abc-1"));
+
+        assertFalse(RepoResponseCache.matches(null, "abc-1"));
+        assertFalse(RepoResponseCache.matches(" ", "abc-1"));
+        assertFalse(RepoResponseCache.matches("\"abc-2\"", "abc-1"));
+        assertFalse(RepoResponseCache.matches("\"abc-1-gzip\"", "abc-1"));
+        assertFalse(RepoResponseCache.matches("\"abc\"", "abc-1"));
+        assertFalse(RepoResponseCache.matches("\"other\", W/\"abc-2\"", "abc-1"));
+    }
+
+    @Test
+    void acceptEncodingHonoursWeightsAndWildcards() {
+        assertTrue(RepoResponseCache.accepts("gzip", "gzip"));
+        assertTrue(RepoResponseCache.accepts("deflate, GZIP", "gzip"));
+        assertTrue(RepoResponseCache.accepts("gzip;q=0.5", "gzip"));
+        assertTrue(RepoResponseCache.accepts("gzip; q=1.0", "gzip"));
+        assertTrue(RepoResponseCache.accepts("*", "gzip"));
+        assertTrue(RepoResponseCache.accepts("br;q=0, *;q=0.1", "gzip"));
+
+        assertFalse(RepoResponseCache.accepts(null, "gzip"));
+        assertFalse(RepoResponseCache.accepts("", "gzip"));
+        assertFalse(RepoResponseCache.accepts("br, deflate", "gzip"));
+        assertFalse(RepoResponseCache.accepts("gzip;q=0", "gzip"));
+        assertFalse(RepoResponseCache.accepts("gzip;q=0.000", "gzip"));
+        assertFalse(RepoResponseCache.accepts("gzip;Q=0", "gzip"));
+        assertFalse(RepoResponseCache.accepts("gzip;q=oops", "gzip"));
+        assertFalse(RepoResponseCache.accepts("*;q=0", "gzip"));
+
+        // An explicit coding wins over the wildcard in either order
+        assertTrue(RepoResponseCache.accepts("*;q=0, gzip", "gzip"));
+        assertFalse(RepoResponseCache.accepts("gzip;q=0, *", "gzip"));
+        assertFalse(RepoResponseCache.accepts("*, gzip;q=0", "gzip"));
+    }
+
+    @Test
+    void negotiatesTheBestAllowedEncoding() {
+        Payload withBrotli = new Payload("v", true, new byte[0], new byte[0], null, 0, true);
+        Payload gzipOnly = new Payload("v", false, new byte[0], null, null, 0, true);
+
+        assertEquals(Encoding.BROTLI, withBrotli.negotiate("gzip, deflate, br"));
+        assertEquals(Encoding.BROTLI, withBrotli.negotiate("*"));
+        assertEquals(Encoding.GZIP, withBrotli.negotiate("br;q=0, gzip"));
+        assertEquals(Encoding.GZIP, withBrotli.negotiate("br;q=0, *"));
+        assertEquals(Encoding.IDENTITY, withBrotli.negotiate("*;q=0"));
+        assertEquals(Encoding.IDENTITY, withBrotli.negotiate("identity"));
+        assertEquals(Encoding.IDENTITY, withBrotli.negotiate(null));
+
+        assertEquals(Encoding.GZIP, gzipOnly.negotiate("br, gzip"));
+        assertEquals(Encoding.IDENTITY, gzipOnly.negotiate("br"));
+
+        assertEquals("\"v-br\"", withBrotli.etag(Encoding.BROTLI));
+        assertEquals("\"v-gz\"", withBrotli.etag(Encoding.GZIP));
+        assertEquals("\"v\"", withBrotli.etag(Encoding.IDENTITY));
+    }
+
+    @Test
+    void keepsSmallIdentityBodiesAndInflatesLargeOnes() throws Exception {
+        Map<String, Object> small = Map.of("name", "app", "complete", true);
+        Map<String, Object> large = Map.of("name", "x".repeat(4096), "complete", true);
+        RepoResponseCache cache = cache(1024);
+
+        Payload smallPayload = cache.get("small", () -> Mono.just(small)).block();
+        Payload largePayload = cache.get("large", () -> Mono.just(large)).block();
+
+        assertNotNull(smallPayload.identity());
+        assertArrayEquals(objectMapper.writeValueAsBytes(small), smallPayload.body(Encoding.IDENTITY).block());
+        assertNull(largePayload.identity());
+        assertArrayEquals(objectMapper.writeValueAsBytes(large), largePayload.body(Encoding.IDENTITY).block());
+        assertTrue(largePayload.body(Encoding.GZIP).block().length < 4096);
+    }
+
+    @Test
+    void sharesCompleteResponsesAndDropsPartialOnes() {
+        RepoResponseCache cache = cache(1024);
+        int[] builds = new int[1];
+
+        cache.get("full", () -> {
+            builds[0]++;
+            return Mono.just(Map.of("complete", true));
+        }).block();
+        Payload cached = cache.get("full", () -> {
+            builds[0]++;
+            return Mono.just(Map.of("complete", true));
+        }).block();
+        assertEquals(1, builds[0]);
+        assertTrue(cached.complete());
+
+        Payload partial = cache.get("partial", () -> Mono.just(Map.of("complete", false))).block();
+        assertFalse(partial.complete());
+        assertEquals(1, cache.stats().get("entries"));
+    }
+
+    private RepoResponseCache cache(int identityMaxBytes) {
+        return new RepoResponseCache(objectMapper, new StageMetrics(new SimpleMeterRegistry()), 1 << 20, 6, -1, identityMaxBytes);
+    }
+}
@@ -0,0 +1,36 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.RepoRef;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RepoTreeCacheTest {
+
+    @Test
+    void refsAreEvictedLeastRecentlyUsedFirst() {
+        RepoTreeCache cache = new RepoTreeCache(null, 1 << 20, 1 << 20, Duration.ofSeconds(30), 2,
+                new StageMetrics(new SimpleMeterRegistry()));
+
+        cache.putRef("owner", "a", ref("1"));
+        cache.putRef("owner", "b", ref("2"));
+        // Owner and repository names are case-insensitive, and a read counts as a use
+        assertEquals("1", cache.getRef("Owner", "A").getHeadSha());
+        cache.putRef("owner", "c", ref("3"));
+
+        assertNotNull(cache.getRef("owner", "a"));
+        assertNull(cache.getRef("owner", "b"));
+        assertNotNull(cache.getRef("owner", "c"));
+        assertEquals(2, cache.stats().get("refs"));
+        assertEquals(1L, cache.stats().get("ref_evictions"));
+    }
+
+    private static RepoRef ref(String headSha) {
+        return new RepoRef("main", "\"repo\"", headSha, "\"head\"");
+    }
+}
@@ -0,0 +1,127 @@
+package com.codeverse.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceChunkerTest {
+
+    private static final String TWO_CLASSES = String.join("\n",
+            "class A {",                       // 1
+            "    String open = \"{ ( [\";",    // 2
+            "    // } closes nothing {",       // 3
+            "    void a() { /* { */",          // 4
+            "        call();",                 // 5
+            "    }",                           // 6
+            "}",                               // 7
+            "",                                // 8
+            "class B {",                       // 9
+            "    void b() {",                  // 10
+            "        call();",                 // 11
+            "    }",                           // 12
+            "}");                              // 13
+
+    @Test
+    void estimatesTokensLikeABpeTokenizer() {
+        assertEquals(0, SourceChunker.estimateTokens(""));
+        // identifier runs cost one token per four characters
+        assertEquals(3, SourceChunker.estimateTokens("hello_world"));
+        assertEquals(1, SourceChunker.estimateTokens("i"));
+        // every other character costs one, a run of whitespace costs one
+        assertEquals(5, SourceChunker.estimateTokens("a + b"));
+        assertEquals(5, SourceChunker.estimateTokens("a    +\t\tb"));
+        assertEquals(4, SourceChunker.estimateTokens("f();"));
+    }
+
+    @Test
+    void smallFilesFitWhole() {
+        assertTrue(new SourceChunker(1000, 13).fits(TWO_CLASSES));
+        assertFalse(new SourceChunker(1000, 12).fits(TWO_CLASSES));
+        assertFalse(new SourceChunker(10, 100).fits(TWO_CLASSES));
+    }
+
+    @Test
+    void splitsAtTheLineLimitBetweenTopLevelDeclarations() {
+        List<SourceChunker.Chunk> chunks = new SourceChunker(1000, 10).split(TWO_CLASSES);
+
+        // Brackets inside the string and the comments do not count, so line 9 is at depth 0
+        assertEquals(2, chunks.size());
+        assertEquals(1, chunks.get(0).startLine());
+        assertEquals(8, chunks.get(0).endLine());
+        assertEquals(9, chunks.get(1).startLine());
+        assertEquals(13, chunks.get(1).endLine());
+        assertTrue(chunks.get(1).text().startsWith("class B {"));
+        assertCovers(TWO_CLASSES, chunks);
+    }
+
+    @Test
+    void staysWithinTheLineLimit() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 95; i++) {
+            content.append("int a").append(i).append(" = ").append(i).append(";\n");
+        }
+        List<SourceChunker.Chunk> chunks = new SourceChunker(100_000, 10).split(content.toString());
+
+        for (SourceChunker.Chunk chunk : chunks) {
+            assertTrue(chunk.lineCount() <= 10, chunk.toString());
+            // Flat code: the cut stays in the second half of the window
+            assertTrue(chunk.lineCount() >= 5 || chunk == chunks.get(chunks.size() - 1), chunk.toString());
+        }
+        assertCovers(content.toString(), chunks);
+    }
+
+    @Test
+    void staysWithinTheTokenLimit() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            content.append("    result = compute(result, values[").append(i).append("]);\n");
+        }
+        int maxTokens = 60;
+        List<SourceChunker.Chunk> chunks = new SourceChunker(maxTokens, 1000).split(content.toString());
+
+        assertTrue(chunks.size() > 1);
+        for (SourceChunker.Chunk chunk : chunks) {
+            int tokens = 0;
+            for (String line : chunk.text().split("\n", -1)) {
+                tokens += SourceChunker.estimateTokens(line) + 1;
+            }
+            assertTrue(tokens <= maxTokens, chunk.toString());
+        }
+        assertCovers(content.toString(), chunks);
+    }
+
+    @Test
+    void aLineOverTheTokenLimitIsAChunkOfItsOwn() {
+        String longLine = "x".repeat(400);
+        List<SourceChunker.Chunk> chunks = new SourceChunker(20, 100).split("a();\n" + longLine + "\nb();");
+
+        assertEquals(List.of("a();", longLine, "b();"), chunks.stream().map(SourceChunker.Chunk::text).toList());
+        assertEquals(List.of(1, 2, 3), chunks.stream().map(SourceChunker.Chunk::startLine).toList());
+    }
+
+    @Test
+    void windowsLineEndingsCountAsOneBreak() {
+        List<SourceChunker.Chunk> chunks = new SourceChunker(1000, 2).split("a\r\nb\r\nc");
+
+        assertEquals(List.of("a\nb", "c"), chunks.stream().map(SourceChunker.Chunk::text).toList());
+    }
+
+    // Consecutive, 1-based, and together exactly the input
+    private static void assertCovers(String content, List<SourceChunker.Chunk> chunks) {
+        int next = 1;
+        List<String> texts = new ArrayList<>();
+        for (SourceChunker.Chunk chunk : chunks) {
+            assertEquals(next, chunk.startLine());
+            assertEquals(chunk.lineCount(), chunk.text().split("\n", -1).length);
+            next = chunk.endLine() + 1;
+            texts.add(chunk.text());
+        }
+        assertEquals(content.split("\n", -1).length, next - 1);
+        assertEquals(content, String.join("\n", texts));
+    }
+}
@@ -0,0 +1,172 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.TreeEntry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.codeverse.backend.service.TreeDiffer.ADDED;
+import static com.codeverse.backend.service.TreeDiffer.MODIFIED;
+import static com.codeverse.backend.service.TreeDiffer.REMOVED;
+import static com.codeverse.backend.service.TreeDiffer.RENAMED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeDifferTest {
+
+    private final Tree base = new Tree(Map.of(
+            "README.md", "v1",
+            "assets/logo.png", "logo",
+            "docs/guide.md", "guide",
+            "docs/img/diagram.png", "diagram",
+            "src/A.java", "a",
+            "src/B.java", "b",
+            "tools", "script"));
+
+    private final Tree head = new Tree(Map.of(
+            "README.md", "v2",
+            "assets/logo.png", "logo",
+            "manual/guide.md", "guide",
+            "manual/img/diagram.png", "diagram",
+            "src/A.java", "a",
+            "src/C.java", "c",
+            "src/util/B.java", "b",
+            "tools/run.sh", "#!/bin/sh"));
+
+    @Test
+    void residentAndListedBaseGiveTheSameChanges() {
+        List<TreeDiffer.Change> expected = List.of(
+                new TreeDiffer.Change("README.md", null, "file", MODIFIED),
+                new TreeDiffer.Change("manual", "docs", "dir", RENAMED),
+                new TreeDiffer.Change("src/C.java", null, "file", ADDED),
+                new TreeDiffer.Change("src/util/B.java", "src/B.java", "file", RENAMED),
+                // file replaced by a directory
+                new TreeDiffer.Change("tools", null, "file", REMOVED),
+                new TreeDiffer.Change("tools/run.sh", null, "file", ADDED));
+
+        TreeDiffer.Result resident = differ(100).diff(base.compact(), head.compact()).block();
+        TreeDiffer.Result listed = differ(100).diff(base.rootSha, base::list, head.compact()).block();
+
+        assertEquals(expected, resident.changes());
+        assertEquals(expected, listed.changes());
+        assertFalse(resident.truncated());
+        assertFalse(listed.truncated());
+        assertEquals(0, resident.listings());
+        // Only the root and src/ differ; assets/ is unchanged and docs/ is gone from head
+        assertEquals(2, listed.listings());
+    }
+
+    @Test
+    void directoryReplacedByAFileIsExpandedOnlyWhereTheBaseIsResident() {
+        Tree before = new Tree(Map.of("lib/a.txt", "a", "lib/b.txt", "b", "keep.txt", "k"));
+        Tree after = new Tree(Map.of("lib", "jar", "keep.txt", "k"));
+
+        TreeDiffer.Result resident = differ(100).diff(before.compact(), after.compact()).block();
+        TreeDiffer.Result listed = differ(100).diff(before.rootSha, before::list, after.compact()).block();
+
+        assertEquals(List.of(
+                new TreeDiffer.Change("lib", null, "file", ADDED),
+                new TreeDiffer.Change("lib/a.txt", null, "file", REMOVED),
+                new TreeDiffer.Change("lib/b.txt", null, "file", REMOVED)), resident.changes());
+        assertEquals(List.of(
+                new TreeDiffer.Change("lib", null, "file", ADDED),
+                new TreeDiffer.Change("lib", null, "dir", REMOVED)), listed.changes());
+    }
+
+    @Test
+    void identicalTreesOnlyListTheRoot() {
+        TreeDiffer.Result listed = differ(100).diff(head.rootSha, head::list, head.compact()).block();
+
+        // The head root has no object id to compare, every directory below it does
+        assertEquals(List.of(), listed.changes());
+        assertEquals(1, listed.listings());
+    }
+
+    @Test
+    void truncatesToMaxChangesInPathOrder() {
+        TreeDiffer.Result resident = differ(3).diff(base.compact(), head.compact()).block();
+        TreeDiffer.Result listed = differ(3).diff(base.rootSha, base::list, head.compact()).block();
+
+        List<String> firstThree = List.of("README.md", "manual", "src/C.java");
+        assertTrue(resident.truncated());
+        assertTrue(listed.truncated());
+        assertEquals(firstThree, resident.changes().stream().map(TreeDiffer.Change::path).toList());
+        assertEquals(firstThree, listed.changes().stream().map(TreeDiffer.Change::path).toList());
+    }
+
+    @Test
+    void failsWhenTheBaseNeedsMoreListingsThanAllowed() {
+        TreeDiffer differ = new TreeDiffer(4, 1, 100);
+
+        assertThrows(TreeDiffer.ListingBudgetExceededException.class,
+                () -> differ.diff(base.rootSha, base::list, head.compact()).block());
+    }
+
+    private static TreeDiffer differ(int maxChanges) {
+        return new TreeDiffer(4, 100, maxChanges);
+    }
+
+    /**
+     * A commit tree with content-addressed object ids, so equal files and directories share
+     * an id on both sides, listable one directory at a time like the GitHub trees API.
+     */
+    private static final class Tree {
+
+        private final List<TreeEntry> entries = new ArrayList<>();
+        private final Map<String, List<TreeEntry>> listings = new HashMap<>();
+        private final String rootSha;
+
+        Tree(Map<String, String> files) {
+            this.rootSha = directory("", new TreeMap<>(files));
+        }
+
+        CompactTree compact() {
+            return CompactTree.build("repo", entries);
+        }
+
+        Mono<TreeWalker.Subtree> list(String sha) {
+            return Mono.just(new TreeWalker.Subtree(listings.get(sha), false));
+        }
+
+        private String directory(String prefix, TreeMap<String, String> files) {
+            List<TreeEntry> children = new ArrayList<>();
+            TreeMap<String, TreeMap<String, String>> subdirectories = new TreeMap<>();
+            files.forEach((path, content) -> {
+                int slash = path.indexOf('/');
+                if (slash < 0) {
+                    String sha = objectId("blob " + content);
+                    children.add(new TreeEntry(path, "file", sha, (long) content.length()));
+                    entries.add(new TreeEntry(prefix + path, "file", sha, (long) content.length()));
+                } else {
+                    subdirectories.computeIfAbsent(path.substring(0, slash), name -> new TreeMap<>())
+                            .put(path.substring(slash + 1), content);
+                }
+            });
+            subdirectories.forEach((name, contents) -> {
+                // Listed after its files, as a directory only implied by them at first
+                String sha = directory(prefix + name + "/", contents);
+                children.add(new TreeEntry(name, "dir", sha, null));
+                entries.add(new TreeEntry(prefix + name, "dir", sha, null));
+            });
+            StringBuilder tree = new StringBuilder("tree");
+            children.forEach(child -> tree.append(' ').append(child.getPath()).append('=').append(child.getSha()));
+            String sha = objectId(tree.toString());
+            listings.put(sha, children);
+            return sha;
+        }
+
+        private static String objectId(String content) {
+            return UUID.nameUUIDFromBytes(content.getBytes(StandardCharsets.UTF_8)).toString();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.model.TreeEntry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeWalkerTest {
+
+    // sha -> direct children, each child named relative to its tree
+    private final Map<String, List<TreeEntry>> trees = new HashMap<>();
+    private final Set<String> calls = ConcurrentHashMap.newKeySet();
+    private static final int LISTING_LIMIT = 12;
+
+    private final TreeWalker.SubtreeFetcher fetcher = (sha, recursive) -> {
+        calls.add(sha + (recursive ? " recursive" : ""));
+        List<TreeEntry> entries = recursive ? recursiveListing(sha, "") : trees.get(sha);
+        boolean truncated = entries.size() > LISTING_LIMIT;
+        return Mono.just(new TreeWalker.Subtree(truncated ? entries.subList(0, LISTING_LIMIT) : entries, truncated));
+    };
+
+    TreeWalkerTest() {
+        tree("root", "a/", "a-b", "b/", "c/", "z.txt");
+        tree("a", "x.txt", "y/");
+        tree("a/y", "1", "2", "3");
+        tree("b", "1", "2", "3", "4", "d/");
+        tree("b/d", "1", "2");
+        tree("c", "1", "e/");
+        tree("c/e", "1", "2", "3");
+    }
+
+    @Test
+    void seededWalkOnlyListsWhatTheTruncatedListingMissed() {
+        List<TreeEntry> full = recursiveListing("root", "");
+        TreeWalker.Subtree truncated = fetcher.fetch("root", true).block();
+        assertTrue(truncated.truncated());
+
+        calls.clear();
+        TreeWalker.Result fromScratch = walker().walk("root").block();
+        assertTrue(fromScratch.complete());
+        assertEquals(paths(full), paths(fromScratch.entries()));
+
+        calls.clear();
+        TreeWalker.Result seeded = walker().walk("root", truncated.entries()).block();
+        assertTrue(seeded.complete());
+        assertEquals(paths(full), paths(seeded.entries()));
+        assertEquals(full.size(), seeded.entries().size());
+        // The listing stops at b/4: a/ is whole, b/ is listed again, b/d and c/ were never reached
+        assertEquals(Set.of("root", "b", "b/d recursive", "c recursive"), calls);
+        assertEquals(4, seeded.requests());
+    }
+
+    @Test
+    void seedOutOfOrderIsIgnored() {
+        List<TreeEntry> truncated = new ArrayList<>(fetcher.fetch("root", true).block().entries());
+        truncated.add(0, truncated.remove(truncated.size() - 1));
+
+        TreeWalker.Result result = walker().walk("root", truncated).block();
+
+        assertTrue(result.complete());
+        assertEquals(paths(recursiveListing("root", "")), paths(result.entries()));
+    }
+
+    private TreeWalker walker() {
+        return new TreeWalker(fetcher, 4, 100, Duration.ofSeconds(10));
+    }
+
+    private void tree(String sha, String... children) {
+        List<TreeEntry> entries = new ArrayList<>();
+        for (String child : children) {
+            boolean dir = child.endsWith("/");
+            String name = dir ? child.substring(0, child.length() - 1) : child;
+            String childSha = sha.equals("root") ? name : sha + "/" + name;
+            entries.add(new TreeEntry(name, dir ? "dir" : "file", childSha, dir ? null : 1L));
+        }
+        // git order: directories sort as if their name ended in '/'
+        entries.sort(Comparator.comparing(entry -> entry.isDirectory() ? entry.getPath() + "/" : entry.getPath()));
+        trees.put(sha, entries);
+    }
+
+    // Pre-order, like GitHub's recursive listing
+    private List<TreeEntry> recursiveListing(String sha, String prefix) {
+        List<TreeEntry> listing = new ArrayList<>();
+        for (TreeEntry entry : trees.get(sha)) {
+            String path = prefix + entry.getPath();
+            listing.add(new TreeEntry(path, entry.getType(), entry.getSha(), entry.getSize()));
+            if (entry.isDirectory()) {
+                listing.addAll(recursiveListing(entry.getSha(), path + "/"));
+            }
+        }
+        return listing;
+    }
+
+    private static List<String> paths(List<TreeEntry> entries) {
+        return entries.stream().map(TreeEntry::getPath).sorted().toList();
+    }
+}
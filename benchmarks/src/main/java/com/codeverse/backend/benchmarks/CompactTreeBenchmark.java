@@ -0,0 +1,49 @@
+package com.codeverse.backend.benchmarks;
+
+import com.codeverse.backend.model.CompactTree;
+import com.codeverse.backend.model.TreeEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the hierarchical {@link CompactTree} from the flat entry list, and its two
+ * encodings. Both encodings are memoized on the tree, so they are measured together with
+ * a fresh build, as on the first request for a commit; subtract {@code build} for the
+ * encoding alone. A per-invocation setup would keep the build out of the time but not
+ * out of the GC profiler's allocation figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CompactTreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entries;
+
+    private List<TreeEntry> treeEntries;
+
+    @Setup
+    public void setUp() {
+        treeEntries = SyntheticTrees.generate(entries, 42);
+    }
+
+    @Benchmark
+    public CompactTree build() {
+        return CompactTree.build("repo", treeEntries);
+    }
+
+    @Benchmark
+    public byte[] buildAndEncodeJson() {
+        return CompactTree.build("repo", treeEntries).toJson();
+    }
+
+    @Benchmark
+    public byte[] buildAndEncodeBinary() {
+        return CompactTree.build("repo", treeEntries).toBinary();
+    }
+}
@@ -0,0 +1,44 @@
+package com.codeverse.backend.benchmarks;
+
+import com.codeverse.backend.service.GitHubService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code extractOwnerRepo}, which runs on every repository request, over the URL shapes
+ * users paste. GitHub URLs never touch the service's collaborators, so it is built without
+ * them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepoUrlBenchmark {
+
+    private static final String[] URLS = {
+            "https://github.com/facebook/react",
+            "https://github.com/spring-projects/spring-boot.git",
+            "https://github.com/torvalds/linux/",
+            "https://github.com/microsoft/vscode/tree/main/src/vs/editor",
+            "http://www.github.com/rust-lang/rust?tab=readme-ov-file",
+            "not a url"};
+
+    private GitHubService gitHubService;
+
+    @Setup
+    public void setUp() {
+        gitHubService = new GitHubService(null, null, null, null, null, null, null, null, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void extractOwnerRepo(Blackhole blackhole) {
+        for (String url : URLS) {
+            blackhole.consume(gitHubService.extractOwnerRepo(url));
+        }
+    }
+}
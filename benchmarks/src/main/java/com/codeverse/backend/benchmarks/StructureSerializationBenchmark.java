@@ -0,0 +1,50 @@
+package com.codeverse.backend.benchmarks;
+
+import com.codeverse.backend.model.TreeEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the {@code /api/repo} response, whose {@code structure} is the
+ * flat entry list. The mapper is configured the way Spring Boot configures the one behind
+ * the WebFlux JSON encoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StructureSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entries;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Map<String, Object> response;
+
+    @Setup
+    public void setUp() {
+        List<TreeEntry> structure = SyntheticTrees.generate(entries, 42);
+        response = new HashMap<>();
+        response.put("repo_name", "repo");
+        response.put("owner", "owner");
+        response.put("repo_url", "https://github.com/owner/repo");
+        response.put("default_branch", "main");
+        response.put("commit_sha", "0123456789abcdef0123456789abcdef01234567");
+        response.put("complete", true);
+        response.put("structure", structure);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
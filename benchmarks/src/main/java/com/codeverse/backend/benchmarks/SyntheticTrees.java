@@ -0,0 +1,237 @@
+package com.codeverse.backend.benchmarks;
+
+import com.codeverse.backend.model.TreeEntry;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Deterministic repository trees of a given entry count, shaped like real ones.
+ * <p>
+ * Directories are grown breadth first. The root gets about ten children, and the expected
+ * number of subdirectories falls off with depth, so a single subtree stays a few levels
+ * deep. When every open directory is used up before the target count, a new subdirectory is
+ * planted under a random shallow directory, the way monorepos grow packages. Most files sit
+ * between depth 3 and 8 and nothing goes much past 12.
+ * <p>
+ * Names come from common directory and file vocabularies. The extension mix is weighted
+ * towards source files, and names are cased the way each language usually is. Blob sizes
+ * are log-normal with a median around 3 KB.
+ */
+public final class SyntheticTrees {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String[] DIRECTORIES = {
+            "src", "main", "java", "test", "tests", "lib", "core", "util", "utils", "common", "internal", "pkg", "cmd",
+            "api", "components", "services", "models", "controllers", "config", "docs", "scripts", "tools", "assets",
+            "images", "styles", "fixtures", "resources", "handlers", "middleware", "views", "hooks", "store", "types",
+            "plugins", "modules", "examples", "packages", "app", "web", "server", "client", "shared", "data", "schema",
+            "migrations", "locales", "routes", "pages", "layouts", "widgets", "helpers", "providers", "adapters",
+            "generated", "proto", "integration", "e2e", "bench", "vendor", "third_party", "include", "platform"};
+
+    private static final String[] WORDS = {
+            "index", "main", "app", "util", "helper", "config", "types", "constants", "service", "controller", "model",
+            "router", "client", "server", "handler", "parser", "reader", "writer", "cache", "manager", "factory",
+            "builder", "request", "response", "user", "account", "session", "auth", "event", "message", "node", "tree",
+            "list", "map", "format", "logger", "error", "query", "schema", "store", "state", "view", "button", "table",
+            "form", "input", "dialog", "layout", "theme", "token", "stream", "buffer", "codec", "worker", "task",
+            "queue", "pool", "registry", "plugin", "module", "loader", "context", "provider", "adapter", "filter"};
+
+    // Extension and relative weight
+    private static final String[] EXTENSIONS = {
+            "js", "ts", "tsx", "java", "py", "go", "md", "json", "yml", "css", "html", "c", "h", "rs", "png", "svg",
+            "txt", "xml", "sh", "kt", "rb", "scss", "snap", "proto"};
+    private static final int[] EXTENSION_WEIGHTS = {
+            14, 14, 6, 10, 10, 6, 6, 8, 3, 3, 2, 3, 2, 3, 4, 2, 2, 2, 1, 2, 2, 1, 1, 1};
+
+    private static final String[] BARE_FILES = {"Makefile", "LICENSE", "Dockerfile", "README", "OWNERS", "BUILD"};
+
+    private SyntheticTrees() {
+    }
+
+    /**
+     * {@code count} entries (files and directories) sorted by path, the order GitHub returns
+     * a recursive tree in. The same count and seed always give the same tree.
+     */
+    public static List<TreeEntry> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<TreeEntry> entries = new ArrayList<>(count);
+        List<Dir> shallow = new ArrayList<>();
+        Deque<Dir> pending = new ArrayDeque<>();
+        Dir root = new Dir("", 0);
+        pending.add(root);
+        shallow.add(root);
+
+        while (entries.size() < count) {
+            Dir dir = pending.poll();
+            if (dir == null) {
+                // Out of open directories: grow a new package somewhere near the top
+                Dir parent = shallow.get(random.nextInt(shallow.size()));
+                pending.add(subdirectory(parent, random, entries));
+                continue;
+            }
+
+            int files = Math.min(1 + geometric(random, 1.0 / 7), 200);
+            for (int i = 0; i < files && entries.size() < count; i++) {
+                String extension = extension(random);
+                String name = random.nextInt(40) == 0 ? BARE_FILES[random.nextInt(BARE_FILES.length)] : fileName(random, extension);
+                String path = dir.child(dir.unique(name));
+                entries.add(new TreeEntry(path, "file", sha(random), blobSize(random)));
+            }
+
+            double expected = dir.depth == 0 ? 10 : 3.0 * Math.exp(-0.35 * dir.depth);
+            int subdirectories = poisson(random, expected);
+            for (int i = 0; i < subdirectories && entries.size() < count; i++) {
+                Dir child = subdirectory(dir, random, entries);
+                pending.add(child);
+                if (child.depth <= 3) {
+                    shallow.add(child);
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing(TreeEntry::getPath));
+        return entries;
+    }
+
+    /**
+     * {@code entries} rendered as a GitHub {@code git/trees?recursive=1} response body.
+     */
+    public static byte[] gitHubTreeJson(String treeSha, List<TreeEntry> entries) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(entries.size() * 180);
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("sha", treeSha);
+            gen.writeStringField("url", "https://api.github.com/repos/owner/repo/git/trees/" + treeSha);
+            gen.writeArrayFieldStart("tree");
+            for (TreeEntry entry : entries) {
+                gen.writeStartObject();
+                gen.writeStringField("path", entry.getPath());
+                gen.writeStringField("mode", entry.isDirectory() ? "040000" : "100644");
+                gen.writeStringField("type", entry.isDirectory() ? "tree" : "blob");
+                gen.writeStringField("sha", entry.getSha());
+                if (entry.getSize() != null) {
+                    gen.writeNumberField("size", entry.getSize());
+                }
+                gen.writeStringField("url", "https://api.github.com/repos/owner/repo/git/"
+                        + (entry.isDirectory() ? "trees/" : "blobs/") + entry.getSha());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeBooleanField("truncated", false);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static Dir subdirectory(Dir parent, Random random, List<TreeEntry> entries) {
+        String name = parent.unique(DIRECTORIES[random.nextInt(DIRECTORIES.length)]);
+        Dir dir = new Dir(parent.child(name), parent.depth + 1);
+        entries.add(new TreeEntry(dir.path, "dir", sha(random), null));
+        return dir;
+    }
+
+    private static String fileName(Random random, String extension) {
+        String first = WORDS[random.nextInt(WORDS.length)];
+        String second = random.nextBoolean() ? WORDS[random.nextInt(WORDS.length)] : null;
+        String base = switch (extension) {
+            case "java", "kt" -> capitalize(first) + (second != null ? capitalize(second) : "");
+            case "py", "rb", "rs", "go", "c", "h", "proto" -> second != null ? first + "_" + second : first;
+            case "tsx" -> capitalize(first) + (second != null ? capitalize(second) : "");
+            case "js", "ts" -> second != null ? first + capitalize(second) : first;
+            default -> second != null ? first + "-" + second : first;
+        };
+        if (random.nextInt(8) == 0 && !extension.equals("md") && !extension.equals("png")) {
+            base += switch (extension) {
+                case "java", "kt" -> "Test";
+                case "py", "rb", "go", "rs" -> "_test";
+                default -> ".test";
+            };
+        }
+        return base + "." + extension;
+    }
+
+    private static String extension(Random random) {
+        int total = 0;
+        for (int weight : EXTENSION_WEIGHTS) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < EXTENSIONS.length; i++) {
+            pick -= EXTENSION_WEIGHTS[i];
+            if (pick < 0) {
+                return EXTENSIONS[i];
+            }
+        }
+        return EXTENSIONS[0];
+    }
+
+    private static long blobSize(Random random) {
+        return Math.max(0, Math.round(Math.exp(8 + 1.5 * random.nextGaussian())));
+    }
+
+    private static String sha(Random random) {
+        byte[] bytes = new byte[20];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static int geometric(Random random, double p) {
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static int poisson(Random random, double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int k = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static final class Dir {
+
+        private final String path;
+        private final int depth;
+        private final Set<String> names = new HashSet<>();
+
+        private Dir(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+
+        private String child(String name) {
+            return path.isEmpty() ? name : path + "/" + name;
+        }
+
+        // "name", then "name2", "name3"... before the extension
+        private String unique(String name) {
+            if (names.add(name)) {
+                return name;
+            }
+            int dot = name.indexOf('.');
+            String base = dot < 0 ? name : name.substring(0, dot);
+            String suffix = dot < 0 ? "" : name.substring(dot);
+            for (int i = 2; ; i++) {
+                String candidate = base + i + suffix;
+                if (names.add(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.codeverse.backend.benchmarks;
+
+import com.codeverse.backend.model.TreeEntry;
+import com.codeverse.backend.service.GitHubTreeParser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The raw GitHub tree response turned into {@link TreeEntry} objects, i.e. what
+ * {@code fetchRepoStructure} does with the body of {@code git/trees?recursive=1}. The body
+ * arrives in network-sized chunks as it does from WebClient.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreeParseBenchmark {
+
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entries;
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = SyntheticTrees.gitHubTreeJson("0123456789abcdef0123456789abcdef01234567", SyntheticTrees.generate(entries, 42));
+    }
+
+    @Benchmark
+    public List<TreeEntry> parse() {
+        Flux<DataBuffer> chunks = Flux.range(0, (body.length + CHUNK_BYTES - 1) / CHUNK_BYTES)
+                .map(i -> bufferFactory.wrap(ByteBuffer.wrap(body, i * CHUNK_BYTES, Math.min(CHUNK_BYTES, body.length - i * CHUNK_BYTES))));
+        return new GitHubTreeParser().parse(chunks).collectList().block();
+    }
+}
@@ -0,0 +1,54 @@
+package com.codeverse.backend.loadtest;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and error injection for one stand-in: every response waits {@code latency} plus a
+ * uniform random share of {@code jitter}, and fails with {@code errorStatus} with probability
+ * {@code errorRate}.
+ */
+public class Faults {
+
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+    private final int errorStatus;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public Faults(Duration latency, Duration jitter, double errorRate, int errorStatus) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Emits after the injected delay: the status to fail with, or 0 to answer normally.
+     */
+    public Mono<Integer> apply() {
+        served.incrementAndGet();
+        long delay = latency.toNanos();
+        if (!jitter.isZero()) {
+            delay += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        boolean fail = errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+        if (fail) {
+            injectedErrors.incrementAndGet();
+        }
+        Mono<Integer> outcome = Mono.just(fail ? errorStatus : 0);
+        return delay > 0 ? Mono.delay(Duration.ofNanos(delay)).then(outcome) : outcome;
+    }
+
+    public long served() {
+        return served.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+}
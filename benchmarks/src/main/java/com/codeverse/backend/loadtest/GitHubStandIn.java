@@ -0,0 +1,118 @@
+package com.codeverse.backend.loadtest;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Local replacement for the GitHub API and raw.githubusercontent.com, serving
+ * {@link Recordings}. The API lives at the root ({@code github.api.url}) and raw content
+ * under {@code /raw} ({@code github.raw.url}). It answers what the backend asks for when
+ * browsing and summarizing: repository metadata and branch heads, both revalidated with
+ * ETags like GitHub does, recursive trees and file contents. Every response reports a
+ * full rate limit.
+ */
+public class GitHubStandIn {
+
+    private final Recordings recordings;
+    private final Faults faults;
+    private DisposableServer server;
+
+    public GitHubStandIn(Recordings recordings, Faults faults) {
+        this.recordings = recordings;
+        this.faults = faults;
+    }
+
+    public GitHubStandIn start(int port) {
+        server = HttpServer.create().host("127.0.0.1").port(port).handle(this::handle).bindNow();
+        return this;
+    }
+
+    public String apiUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    public String rawUrl() {
+        return apiUrl() + "/raw";
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    public void stop() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        response.header("X-RateLimit-Limit", "5000")
+                .header("X-RateLimit-Remaining", "5000")
+                .header("X-RateLimit-Reset", String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond()));
+        return faults.apply().flatMap(status -> status > 0
+                ? send(response, status, "{\"message\":\"Injected error\"}".getBytes(StandardCharsets.UTF_8))
+                : route(request, response));
+    }
+
+    private Mono<Void> route(HttpServerRequest request, HttpServerResponse response) {
+        String[] parts = URI.create(request.uri()).getPath().substring(1).split("/", 5);
+        if (parts.length >= 5 && parts[0].equals("raw")) {
+            // /raw/{owner}/{repo}/{branch}/{path}
+            Recordings.Repo repo = recordings.repo(parts[1], parts[2]);
+            ByteBuffer content = repo != null ? recordings.file(repo, parts[4]) : null;
+            if (content == null) {
+                return send(response, 404, "404: Not Found".getBytes(StandardCharsets.UTF_8));
+            }
+            return response.status(200)
+                    .header("Content-Type", "text/plain; charset=utf-8")
+                    .send(Mono.just(Unpooled.wrappedBuffer(content)))
+                    .then();
+        }
+        if (parts.length < 3 || !parts[0].equals("repos")) {
+            return notFound(response);
+        }
+        Recordings.Repo repo = recordings.repo(parts[1], parts[2]);
+        if (repo == null) {
+            return notFound(response);
+        }
+        if (parts.length == 3) {
+            return conditional(request, response, "\"repo-" + repo.headSha() + "\"", repo.repoJson(), "application/json");
+        }
+        if (parts.length == 5 && parts[3].equals("commits")) {
+            return conditional(request, response, "\"head-" + repo.headSha() + "\"", repo.headSha().getBytes(StandardCharsets.UTF_8),
+                    "application/vnd.github.sha");
+        }
+        if (parts.length == 5 && parts[3].equals("git") && parts[4].startsWith("trees/") && request.uri().contains("recursive=1")) {
+            return response.status(200)
+                    .header("Content-Type", "application/json")
+                    .send(Mono.just(Unpooled.wrappedBuffer(repo.treeJson())))
+                    .then();
+        }
+        return notFound(response);
+    }
+
+    private static Mono<Void> conditional(HttpServerRequest request, HttpServerResponse response, String etag, byte[] body, String contentType) {
+        response.header("ETag", etag);
+        if (etag.equals(request.requestHeaders().get("If-None-Match"))) {
+            return response.status(HttpResponseStatus.NOT_MODIFIED).send().then();
+        }
+        return response.status(200).header("Content-Type", contentType).sendByteArray(Mono.just(body)).then();
+    }
+
+    private static Mono<Void> notFound(HttpServerResponse response) {
+        return send(response, 404, "{\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Mono<Void> send(HttpServerResponse response, int status, byte[] body) {
+        return response.status(status).header("Content-Type", "application/json").sendByteArray(Mono.just(body)).then();
+    }
+}
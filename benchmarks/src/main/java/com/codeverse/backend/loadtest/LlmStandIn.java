@@ -0,0 +1,114 @@
+package com.codeverse.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local replacement for the OpenAI-compatible chat completions endpoint. Every request is
+ * answered with the recorded completion, as a single JSON body or, when the request asks to
+ * stream, as server-sent deltas {@code tokenInterval} apart. Injected latency is the time to
+ * the first byte.
+ */
+public class LlmStandIn {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int WORDS_PER_DELTA = 4;
+
+    private final Recordings recordings;
+    private final Faults faults;
+    private final Duration tokenInterval;
+    private DisposableServer server;
+
+    public LlmStandIn(Recordings recordings, Faults faults, Duration tokenInterval) {
+        this.recordings = recordings;
+        this.faults = faults;
+        this.tokenInterval = tokenInterval;
+    }
+
+    public LlmStandIn start(int port) {
+        server = HttpServer.create().host("127.0.0.1").port(port).handle(this::handle).bindNow();
+        return this;
+    }
+
+    public String completionsUrl() {
+        return "http://127.0.0.1:" + server.port() + "/v1/chat/completions";
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    public void stop() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asString().defaultIfEmpty("{}")
+                .flatMap(body -> faults.apply().flatMap(status -> status > 0
+                        ? response.status(status)
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"error\":{\"message\":\"Injected error\"}}"))
+                                .then()
+                        : respond(body, response)));
+    }
+
+    private Mono<Void> respond(String body, HttpServerResponse response) {
+        boolean stream;
+        try {
+            stream = MAPPER.readTree(body).path("stream").asBoolean(false);
+        } catch (Exception e) {
+            return response.status(400).sendString(Mono.just("{\"error\":{\"message\":\"Invalid JSON\"}}")).then();
+        }
+        String content = recordings.completionContent();
+        if (!stream) {
+            ObjectNode completion = MAPPER.createObjectNode();
+            completion.put("id", "chatcmpl-loadtest");
+            completion.put("object", "chat.completion");
+            ObjectNode choice = completion.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("message").put("role", "assistant").put("content", content);
+            choice.put("finish_reason", "stop");
+            return response.status(200)
+                    .header("Content-Type", "application/json")
+                    .sendString(Mono.just(completion.toString()))
+                    .then();
+        }
+        Flux<String> events = Flux.fromIterable(deltas(content))
+                .map(delta -> "data: " + deltaEvent(delta) + "\n\n")
+                .concatWith(Mono.just("data: [DONE]\n\n"));
+        if (!tokenInterval.isZero()) {
+            events = events.delayElements(tokenInterval);
+        }
+        return response.status(200)
+                .header("Content-Type", "text/event-stream")
+                .sendString(events)
+                .then();
+    }
+
+    private static List<String> deltas(String content) {
+        List<String> deltas = new ArrayList<>();
+        String[] words = content.split("(?<= )");
+        for (int i = 0; i < words.length; i += WORDS_PER_DELTA) {
+            deltas.add(String.join("", Arrays.asList(words).subList(i, Math.min(words.length, i + WORDS_PER_DELTA))));
+        }
+        return deltas;
+    }
+
+    private static String deltaEvent(String delta) {
+        ObjectNode event = MAPPER.createObjectNode();
+        event.putArray("choices").addObject().putObject("delta").put("content", delta);
+        return event.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package com.codeverse.backend.loadtest;
+
+import com.codeverse.backend.model.TreeEntry;
+import io.netty.channel.ChannelOption;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: requests are scheduled at a fixed rate regardless of how fast
+ * the backend answers, and the scenario of each one is drawn from a weighted mix. When
+ * {@code maxInFlight} requests are outstanding, new ones are counted as dropped instead of
+ * queued, which is the signal that the target rate is above capacity.
+ */
+public class LoadDriver {
+
+    /**
+     * The request kinds the driver can send, by mix name.
+     */
+    public enum Scenario {
+        REPO("repo"),
+        CONTENT("content"),
+        SUMMARIZE("summarize"),
+        EXPLAIN("ai.explain"),
+        ANALYZE("ai.analyze"),
+        FIND_BUGS("ai.find-bugs");
+
+        private final String key;
+
+        Scenario(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public static Scenario of(String key) {
+            for (Scenario scenario : values()) {
+                if (scenario.key.equals(key)) {
+                    return scenario;
+                }
+            }
+            throw new IllegalArgumentException("Unknown scenario '" + key + "', expected one of "
+                    + Arrays.stream(values()).map(Scenario::key).toList());
+        }
+    }
+
+    // Code sent to the AI endpoints is cut to this size
+    private static final int MAX_AI_CONTENT_BYTES = 8 * 1024;
+    private static final String[] MODES = {"bullet", "paragraph"};
+    private static final String[] LENGTHS = {"short", "medium", "long"};
+    private static final String[] LEVELS = {"beginner", "standard", "technical"};
+
+    private final WebClient client;
+    private final Recordings recordings;
+    private final Map<Scenario, Integer> mix;
+    private final int totalWeight;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final double repoSkew;
+    private final double aiUniqueShare;
+    private final Random random;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong uniqueCounter = new AtomicLong();
+
+    public LoadDriver(String baseUrl, Recordings recordings, Map<Scenario, Integer> mix, int maxInFlight, Duration timeout,
+                      double repoSkew, double aiUniqueShare, long seed) {
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient httpClient = HttpClient.create(connections).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        this.recordings = recordings;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.repoSkew = repoSkew;
+        this.aiUniqueShare = aiUniqueShare;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sends {@code rate} requests per second for {@code duration}, recording into
+     * {@code stats}. Returns once the last request is due; requests still in flight keep
+     * recording into the same stats.
+     */
+    public void run(double rate, Duration duration, Map<Scenario, ScenarioStats> stats, String phase) {
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long nextProgress = start + 10_000_000_000L;
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (System.nanoTime() >= nextProgress) {
+                System.out.printf("  %s %3ds  in flight %d%n", phase, (System.nanoTime() - start) / 1_000_000_000L, inFlight.get());
+                nextProgress += 10_000_000_000L;
+            }
+
+            Scenario scenario = pick();
+            ScenarioStats scenarioStats = stats.get(scenario);
+            if (inFlight.get() >= maxInFlight) {
+                scenarioStats.dropped();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            scenarioStats.sent();
+            request(scenario)
+                    .timeout(timeout)
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .subscribe(status -> scenarioStats.completed(due, status), error -> scenarioStats.failed(due));
+        }
+    }
+
+    /**
+     * Waits up to {@code limit} for outstanding requests; returns how many are left.
+     */
+    public int drain(Duration limit) {
+        long deadline = System.nanoTime() + limit.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+        return inFlight.get();
+    }
+
+    public Mono<Integer> health() {
+        return exchange(client.get().uri("/api/health"));
+    }
+
+    private Scenario pick() {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Scenario, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private Mono<Integer> request(Scenario scenario) {
+        Recordings.Repo repo = repo();
+        return switch (scenario) {
+            case REPO -> exchange(client.get().uri(builder -> builder.path("/api/repo").queryParam("url", "{url}").build(repo.url())));
+            case CONTENT -> {
+                String path = file(repo).getPath();
+                yield exchange(client.get().uri(builder -> builder.path("/api/repo/content")
+                        .queryParam("owner", "{owner}").queryParam("repo", "{repo}")
+                        .queryParam("branch", "main").queryParam("path", "{path}")
+                        .build(repo.owner(), repo.name(), path)));
+            }
+            case SUMMARIZE -> exchange(client.post().uri("/api/repo/summarize").bodyValue(Map.of(
+                    "repoUrl", repo.url(),
+                    "mode", MODES[random.nextInt(MODES.length)],
+                    "length", LENGTHS[random.nextInt(LENGTHS.length)],
+                    "languageLevel", LEVELS[random.nextInt(LEVELS.length)])));
+            case EXPLAIN -> exchange(client.post().uri("/api/ai/explain").bodyValue(Map.of("code", code(repo))));
+            case ANALYZE -> exchange(client.post().uri("/api/ai/analyze-file")
+                    .bodyValue(Map.of("fileContent", code(repo), "languageLevel", LEVELS[random.nextInt(LEVELS.length)])));
+            case FIND_BUGS -> exchange(client.post().uri("/api/ai/find-bugs")
+                    .bodyValue(Map.of("fileContent", code(repo), "languageLevel", LEVELS[random.nextInt(LEVELS.length)])));
+        };
+    }
+
+    // Reads the whole body so the connection is reused, and keeps only the status
+    private static Mono<Integer> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.bodyToFlux(DataBuffer.class)
+                .doOnNext(DataBufferUtils::release)
+                .then(Mono.just(response.statusCode().value())));
+    }
+
+    // Skewed towards the first repositories: a skew of 1 is uniform, higher favours fewer repos
+    private Recordings.Repo repo() {
+        List<Recordings.Repo> repos = recordings.repos();
+        return repos.get((int) (repos.size() * Math.pow(random.nextDouble(), repoSkew)));
+    }
+
+    private TreeEntry file(Recordings.Repo repo) {
+        return repo.files().get(random.nextInt(repo.files().size()));
+    }
+
+    /**
+     * Contents of a random file of {@code repo}. A share of requests gets a unique trailer,
+     * so they miss the completion cache and reach the model.
+     */
+    private String code(Recordings.Repo repo) {
+        ByteBuffer content = recordings.file(repo, file(repo).getPath());
+        int length = Math.min(content.remaining(), MAX_AI_CONTENT_BYTES);
+        byte[] bytes = new byte[length];
+        content.get(bytes);
+        String code = new String(bytes, StandardCharsets.UTF_8);
+        if (code.isBlank()) {
+            code = "int answer() { return 42; }";
+        }
+        if (random.nextDouble() < aiUniqueShare) {
+            code += "\n// load test request " + uniqueCounter.incrementAndGet();
+        }
+        return code;
+    }
+}
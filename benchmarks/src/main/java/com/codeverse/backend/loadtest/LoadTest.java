@@ -0,0 +1,194 @@
+package com.codeverse.backend.loadtest;
+
+import com.codeverse.backend.BackendApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Offline end-to-end load test. Starts the GitHub and model stand-ins, starts the backend in
+ * this JVM pointed at them (or drives an already running one with {@code --target}), sends
+ * a fixed-rate request mix through a warm-up and a measured phase and prints throughput and
+ * latency percentiles per scenario.
+ * <p>
+ * Options are {@code --name=value}; see {@link #DEFAULTS}. Any other option is passed on to
+ * the in-process backend as a Spring property, e.g. {@code --spring.data.mongodb.uri=...}
+ * or {@code --codeverse.llm.scheduler.max-concurrent=8}.
+ */
+public class LoadTest {
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Upstream data: a recordings directory, or synthetic repositories
+        DEFAULTS.put("recordings", "");
+        DEFAULTS.put("repos", "20");
+        DEFAULTS.put("tree-entries", "10000");
+        // Load
+        DEFAULTS.put("target", "");
+        DEFAULTS.put("rate", "50");
+        DEFAULTS.put("warmup", "15s");
+        DEFAULTS.put("duration", "60s");
+        DEFAULTS.put("max-in-flight", "512");
+        DEFAULTS.put("timeout", "30s");
+        DEFAULTS.put("mix", "repo=40,content=40,summarize=5,ai.explain=5,ai.analyze=5,ai.find-bugs=5");
+        DEFAULTS.put("repo-skew", "2");
+        DEFAULTS.put("ai-unique-share", "0.5");
+        DEFAULTS.put("seed", "1");
+        // Stand-ins
+        DEFAULTS.put("github-port", "0");
+        DEFAULTS.put("github-latency", "40ms");
+        DEFAULTS.put("github-jitter", "40ms");
+        DEFAULTS.put("github-error-rate", "0");
+        DEFAULTS.put("llm-port", "0");
+        DEFAULTS.put("llm-latency", "800ms");
+        DEFAULTS.put("llm-jitter", "400ms");
+        DEFAULTS.put("llm-error-rate", "0");
+        DEFAULTS.put("llm-token-interval", "0ms");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> backendProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                usage();
+                return;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            (DEFAULTS.containsKey(name) ? options : backendProperties).put(name, value);
+        }
+
+        Recordings recordings = options.get("recordings").isEmpty()
+                ? Recordings.synthetic(Integer.parseInt(options.get("repos")), Integer.parseInt(options.get("tree-entries")))
+                : Recordings.load(Path.of(options.get("recordings")));
+        GitHubStandIn github = new GitHubStandIn(recordings, new Faults(duration(options, "github-latency"), duration(options, "github-jitter"),
+                Double.parseDouble(options.get("github-error-rate")), 502)).start(Integer.parseInt(options.get("github-port")));
+        LlmStandIn llm = new LlmStandIn(recordings, new Faults(duration(options, "llm-latency"), duration(options, "llm-jitter"),
+                Double.parseDouble(options.get("llm-error-rate")), 503), duration(options, "llm-token-interval"))
+                .start(Integer.parseInt(options.get("llm-port")));
+        System.out.printf("GitHub stand-in: github.api.url=%s github.raw.url=%s%n", github.apiUrl(), github.rawUrl());
+        System.out.printf("Model stand-in:  huggingface.api.url=%s%n", llm.completionsUrl());
+
+        ConfigurableApplicationContext backend = null;
+        String target = options.get("target");
+        if (target.isEmpty()) {
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("server.port", "0");
+            properties.put("github.api.url", github.apiUrl());
+            properties.put("github.raw.url", github.rawUrl());
+            properties.put("github.api.token", "");
+            properties.put("huggingface.api.url", llm.completionsUrl());
+            properties.put("huggingface.api.token", "loadtest");
+            properties.put("huggingface.api.model", "stand-in");
+            properties.put("spring.data.mongodb.uri", "mongodb://localhost:27017/codeverse-loadtest");
+            properties.put("codeverse.prefetch.enabled", "false");
+            properties.put("logging.level.root", "WARN");
+            properties.put("spring.main.banner-mode", "off");
+            properties.putAll(backendProperties);
+            backend = SpringApplication.run(BackendApplication.class, properties.entrySet().stream()
+                    .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                    .toArray(String[]::new));
+            target = "http://127.0.0.1:" + ((WebServerApplicationContext) backend).getWebServer().getPort();
+            System.out.printf("Backend started in-process at %s%n", target);
+        } else if (!backendProperties.isEmpty()) {
+            System.out.printf("Ignoring backend properties with --target: %s%n", backendProperties.keySet());
+        }
+
+        try {
+            run(options, recordings, target, github, llm);
+        } finally {
+            // The backend shares Reactor Netty's global event loops with the stand-ins and disposes them on close
+            github.stop();
+            llm.stop();
+            if (backend != null) {
+                backend.close();
+            }
+        }
+    }
+
+    private static void run(Map<String, String> options, Recordings recordings, String target, GitHubStandIn github, LlmStandIn llm) {
+        Map<LoadDriver.Scenario, Integer> mix = mix(options.get("mix"));
+        double rate = Double.parseDouble(options.get("rate"));
+        Duration warmup = duration(options, "warmup");
+        Duration measured = duration(options, "duration");
+        Duration timeout = duration(options, "timeout");
+        LoadDriver driver = new LoadDriver(target, recordings, mix, Integer.parseInt(options.get("max-in-flight")), timeout,
+                Double.parseDouble(options.get("repo-skew")), Double.parseDouble(options.get("ai-unique-share")),
+                Long.parseLong(options.get("seed")));
+
+        Integer health = driver.health().onErrorReturn(-1).block(timeout);
+        if (health == null || health != 200) {
+            System.out.printf("Warning: %s/api/health answered %s%n", target, health == null || health < 0 ? "nothing" : health);
+        }
+
+        System.out.printf("%nDriving %s at %.1f req/s: %s warm-up, %s measured, mix %s, %d repositories%n",
+                target, rate, options.get("warmup"), options.get("duration"), options.get("mix"), recordings.repos().size());
+        if (!warmup.isZero()) {
+            driver.run(rate, warmup, stats(mix), "warm-up");
+        }
+        Map<LoadDriver.Scenario, ScenarioStats> stats = stats(mix);
+        long githubServed = github.faults().served();
+        long llmServed = llm.faults().served();
+        long start = System.nanoTime();
+        driver.run(rate, measured, stats, "measure");
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int left = driver.drain(timeout);
+
+        System.out.printf("%nResults over %.1f s at a target of %.1f req/s%s%n", seconds, rate,
+                left > 0 ? " (" + left + " requests still in flight after the timeout)" : "");
+        System.out.println(ScenarioStats.header());
+        ScenarioStats total = new ScenarioStats("all");
+        for (ScenarioStats scenario : stats.values()) {
+            System.out.println(scenario.row(seconds));
+            scenario.addTo(total);
+        }
+        System.out.println(total.row(seconds));
+        System.out.printf("%nUpstream calls while measuring: GitHub %d (%.1f per request), model %d; injected errors so far: GitHub %d, model %d%n",
+                github.faults().served() - githubServed, (github.faults().served() - githubServed) / (double) Math.max(1, total.completedCount()),
+                llm.faults().served() - llmServed, github.faults().injectedErrors(), llm.faults().injectedErrors());
+    }
+
+    private static Map<LoadDriver.Scenario, Integer> mix(String spec) {
+        Map<LoadDriver.Scenario, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] weight = part.trim().split("=");
+            int value = Integer.parseInt(weight[1].trim());
+            if (value > 0) {
+                mix.put(LoadDriver.Scenario.of(weight[0].trim()), value);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one scenario with a positive weight");
+        }
+        return mix;
+    }
+
+    private static Map<LoadDriver.Scenario, ScenarioStats> stats(Map<LoadDriver.Scenario, Integer> mix) {
+        Map<LoadDriver.Scenario, ScenarioStats> stats = new LinkedHashMap<>();
+        for (LoadDriver.Scenario scenario : mix.keySet()) {
+            stats.put(scenario, new ScenarioStats(scenario.key()));
+        }
+        return stats;
+    }
+
+    private static Duration duration(Map<String, String> options, String name) {
+        return DurationStyle.detectAndParse(options.get(name));
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java -cp benchmarks.jar " + LoadTest.class.getName() + " [--name=value ...]");
+        System.out.println("Options and defaults:");
+        DEFAULTS.forEach((name, value) -> System.out.printf("  --%s=%s%n", name, value));
+        System.out.println("Any other --name=value is passed to the in-process backend as a Spring property.");
+    }
+}
@@ -0,0 +1,241 @@
+package com.codeverse.backend.loadtest;
+
+import com.codeverse.backend.benchmarks.SyntheticTrees;
+import com.codeverse.backend.model.TreeEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The upstream responses the stand-ins replay: per repository the {@code /repos} body, the
+ * head commit, the recursive tree body and file contents, plus one chat completion.
+ * <p>
+ * Recordings are read from a directory laid out as
+ * <pre>
+ * github/&lt;owner&gt;/&lt;repo&gt;/tree.json   body of git/trees/&lt;sha&gt;?recursive=1 (required)
+ * github/&lt;owner&gt;/&lt;repo&gt;/repo.json   body of /repos/&lt;owner&gt;/&lt;repo&gt; (optional)
+ * github/&lt;owner&gt;/&lt;repo&gt;/head       head commit SHA (optional)
+ * raw/&lt;owner&gt;/&lt;repo&gt;/&lt;path&gt;        file contents (optional, per file)
+ * llm/completion.json                 chat completion body (optional)
+ * </pre>
+ * Anything optional that is missing, and everything when no directory is given, is
+ * synthesized: trees from {@link SyntheticTrees}, file contents as source text of the size
+ * the tree lists, capped at {@link #MAX_SYNTHETIC_FILE_BYTES}.
+ */
+public class Recordings {
+
+    public static final int MAX_SYNTHETIC_FILE_BYTES = 256 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DEFAULT_COMPLETION = """
+            {"overview": "A service that visualizes repository structure.",
+             "key_features": ["Tree view", "File previews", "Summaries"],
+             "technologies": ["Java", "Spring WebFlux", "MongoDB"],
+             "main_modules": ["controller", "service", "model"],
+             "how_it_works": ["Fetch the tree", "Cache it", "Render it"],
+             "future_improvements": ["More languages"],
+             "explanation": {"overview": "Handles requests.", "key_logic": "Maps and filters.", "code_flow": "Top to bottom."},
+             "comments": [{"line": 1, "code_snippet": "package", "comment": "Declares the package."}],
+             "insights": {"best_practices": ["Small methods"], "possible_improvements": ["More tests"], "complexity": "Low"},
+             "bugs": []}""";
+
+    /**
+     * One repository: response bodies and the files the driver can request.
+     */
+    public record Repo(String owner, String name, byte[] repoJson, String headSha, byte[] treeJson, List<TreeEntry> files,
+                       Map<String, Long> sizes, Path rawDir) {
+
+        public Repo(String owner, String name, byte[] repoJson, String headSha, byte[] treeJson, List<TreeEntry> files, Path rawDir) {
+            this(owner, name, repoJson, headSha, treeJson, files, sizes(files), rawDir);
+        }
+
+        private static Map<String, Long> sizes(List<TreeEntry> files) {
+            Map<String, Long> sizes = new HashMap<>(files.size() * 2);
+            for (TreeEntry file : files) {
+                sizes.put(file.getPath(), file.getSize() != null ? file.getSize() : 0L);
+            }
+            return sizes;
+        }
+
+        public String url() {
+            return "https://github.com/" + owner + "/" + name;
+        }
+    }
+
+    private final Map<String, Repo> repos;
+    private final List<Repo> repoList;
+    private final String completionContent;
+    private final byte[] syntheticText;
+
+    private Recordings(List<Repo> repoList, String completionContent) {
+        this.repoList = List.copyOf(repoList);
+        this.repos = new HashMap<>();
+        for (Repo repo : repoList) {
+            repos.put(repo.owner() + "/" + repo.name(), repo);
+        }
+        this.completionContent = completionContent;
+        this.syntheticText = syntheticText();
+    }
+
+    /**
+     * {@code count} synthetic repositories {@code loadtest/repo-<i>} of {@code entries} entries each.
+     */
+    public static Recordings synthetic(int count, int entries) {
+        List<Repo> repos = new ArrayList<>();
+        byte[] text = syntheticText();
+        Map<Integer, String> blobShas = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = "repo-" + i;
+            List<TreeEntry> tree = withBlobShas(SyntheticTrees.generate(entries, i), text, blobShas);
+            String head = sha1("loadtest/" + name);
+            repos.add(new Repo("loadtest", name, repoJson(name), head, SyntheticTrees.gitHubTreeJson(head, tree), files(tree), null));
+        }
+        return new Recordings(repos, DEFAULT_COMPLETION);
+    }
+
+    public static Recordings load(Path directory) {
+        List<Repo> repos = new ArrayList<>();
+        try (Stream<Path> owners = Files.list(directory.resolve("github"))) {
+            for (Path ownerDir : owners.sorted().toList()) {
+                try (Stream<Path> names = Files.list(ownerDir)) {
+                    for (Path repoDir : names.sorted().toList()) {
+                        Path treeFile = repoDir.resolve("tree.json");
+                        if (!Files.isRegularFile(treeFile)) {
+                            continue;
+                        }
+                        String owner = ownerDir.getFileName().toString();
+                        String name = repoDir.getFileName().toString();
+                        byte[] treeJson = Files.readAllBytes(treeFile);
+                        Path repoFile = repoDir.resolve("repo.json");
+                        Path headFile = repoDir.resolve("head");
+                        repos.add(new Repo(owner, name,
+                                Files.isRegularFile(repoFile) ? Files.readAllBytes(repoFile) : repoJson(name),
+                                Files.isRegularFile(headFile) ? Files.readString(headFile).trim() : sha1(owner + "/" + name),
+                                treeJson, files(parseTree(treeJson)), directory.resolve("raw").resolve(owner).resolve(name)));
+                    }
+                }
+            }
+            if (repos.isEmpty()) {
+                throw new IllegalArgumentException("No recorded trees under " + directory.resolve("github"));
+            }
+            Path completionFile = directory.resolve("llm").resolve("completion.json");
+            String completion = DEFAULT_COMPLETION;
+            if (Files.isRegularFile(completionFile)) {
+                completion = MAPPER.readTree(completionFile.toFile()).path("choices").path(0).path("message").path("content").asText(DEFAULT_COMPLETION);
+            }
+            return new Recordings(repos, completion);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<Repo> repos() {
+        return repoList;
+    }
+
+    public Repo repo(String owner, String name) {
+        return repos.get(owner + "/" + name);
+    }
+
+    public String completionContent() {
+        return completionContent;
+    }
+
+    /**
+     * Contents of {@code path}: the recorded file when there is one, otherwise synthetic text
+     * of the listed size. Null for a path the tree does not list.
+     */
+    public ByteBuffer file(Repo repo, String path) {
+        if (repo.rawDir() != null) {
+            Path recorded = repo.rawDir().resolve(path).normalize();
+            if (recorded.startsWith(repo.rawDir()) && Files.isRegularFile(recorded)) {
+                try {
+                    return ByteBuffer.wrap(Files.readAllBytes(recorded));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        Long size = repo.sizes().get(path);
+        return size != null ? ByteBuffer.wrap(syntheticText, 0, (int) Math.min(size, MAX_SYNTHETIC_FILE_BYTES)).asReadOnlyBuffer() : null;
+    }
+
+    private static List<TreeEntry> parseTree(byte[] treeJson) throws IOException {
+        List<TreeEntry> entries = new ArrayList<>();
+        for (JsonNode node : MAPPER.readTree(treeJson).path("tree")) {
+            boolean directory = "tree".equals(node.path("type").asText());
+            entries.add(new TreeEntry(node.path("path").asText(), directory ? "dir" : "file", node.path("sha").asText(),
+                    node.has("size") ? node.path("size").asLong() : null));
+        }
+        return entries;
+    }
+
+    // The backend only caches file contents that hash to the blob SHA the tree lists
+    private static List<TreeEntry> withBlobShas(List<TreeEntry> tree, byte[] text, Map<Integer, String> blobShas) {
+        List<TreeEntry> named = new ArrayList<>(tree.size());
+        for (TreeEntry entry : tree) {
+            if (entry.isDirectory()) {
+                named.add(entry);
+                continue;
+            }
+            int length = (int) Math.min(entry.getSize() != null ? entry.getSize() : 0, MAX_SYNTHETIC_FILE_BYTES);
+            String blobSha = blobShas.computeIfAbsent(length, n -> blobSha(text, n));
+            named.add(new TreeEntry(entry.getPath(), entry.getType(), blobSha, entry.getSize()));
+        }
+        return named;
+    }
+
+    private static String blobSha(byte[] text, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + length + "\0").getBytes(StandardCharsets.US_ASCII));
+            digest.update(text, 0, length);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<TreeEntry> files(List<TreeEntry> tree) {
+        List<TreeEntry> files = new ArrayList<>();
+        for (TreeEntry entry : tree) {
+            if (!entry.isDirectory()) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    private static byte[] repoJson(String name) {
+        return ("{\"name\":\"" + name + "\",\"default_branch\":\"main\",\"private\":false}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] syntheticText() {
+        StringBuilder text = new StringBuilder(MAX_SYNTHETIC_FILE_BYTES + 256);
+        for (int i = 0; text.length() < MAX_SYNTHETIC_FILE_BYTES; i++) {
+            text.append("    public int compute").append(i).append("(int value) {\n")
+                    .append("        return value * ").append(i).append(" + offset;\n")
+                    .append("    }\n\n");
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sha1(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
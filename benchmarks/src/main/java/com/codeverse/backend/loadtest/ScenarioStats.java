@@ -0,0 +1,99 @@
+package com.codeverse.backend.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcomes and latencies of one scenario in one phase. Latency runs from the moment a
+ * request was due, not from when it was actually sent, so a backend that falls behind the
+ * target rate shows up in the percentiles instead of hiding in a lower send rate.
+ */
+public class ScenarioStats {
+
+    private final String name;
+    // Microseconds, up to ten minutes at three significant digits
+    private final Histogram latency = new SynchronizedHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong clientErrors = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ScenarioStats(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void sent() {
+        sent.incrementAndGet();
+    }
+
+    /**
+     * Not sent because {@code max-in-flight} requests were already outstanding.
+     */
+    public void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    public void completed(long dueNanos, int status) {
+        record(dueNanos);
+        if (status < 400) {
+            ok.incrementAndGet();
+        } else if (status < 500 && status != 429) {
+            clientErrors.incrementAndGet();
+        } else {
+            serverErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * No response: connection error or client timeout.
+     */
+    public void failed(long dueNanos) {
+        record(dueNanos);
+        failures.incrementAndGet();
+    }
+
+    public void addTo(ScenarioStats total) {
+        total.latency.add(latency);
+        total.sent.addAndGet(sent.get());
+        total.ok.addAndGet(ok.get());
+        total.clientErrors.addAndGet(clientErrors.get());
+        total.serverErrors.addAndGet(serverErrors.get());
+        total.failures.addAndGet(failures.get());
+        total.dropped.addAndGet(dropped.get());
+    }
+
+    public long completedCount() {
+        return latency.getTotalCount();
+    }
+
+    public String row(double seconds) {
+        long completed = latency.getTotalCount();
+        return String.format("%-14s %8d %8d %6d %6d %7d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+                name, sent.get(), ok.get(), clientErrors.get(), serverErrors.get(), failures.get(), dropped.get(),
+                completed / seconds, ok.get() / seconds,
+                millis(50), millis(90), millis(99), completed == 0 ? 0 : latency.getMaxValue() / 1000.0);
+    }
+
+    public static String header() {
+        return String.format("%-14s %8s %8s %6s %6s %7s %8s %9s %9s %9s %9s %9s %9s",
+                "scenario", "sent", "2xx", "4xx", "5xx", "failed", "dropped", "req/s", "ok/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+    }
+
+    private double millis(double percentile) {
+        return latency.getTotalCount() == 0 ? 0 : latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void record(long dueNanos) {
+        long micros = Math.max(0, (System.nanoTime() - dueNanos) / 1000);
+        latency.recordValue(Math.min(micros, latency.getHighestTrackableValue()));
+    }
+}
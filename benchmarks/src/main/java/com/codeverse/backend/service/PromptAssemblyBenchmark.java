@@ -0,0 +1,92 @@
+package com.codeverse.backend.service;
+
+import com.codeverse.backend.benchmarks.SyntheticTrees;
+import com.codeverse.backend.model.CompactTree;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt assembly for the model: packing the summary context from a tree, rendering the
+ * summary and file-analysis requests, and the cache key hashed over each request. Lives in
+ * the service package to reach the package-private request builders of
+ * {@link OpenAIService}; nothing here touches the network. File contents come from memory,
+ * so only the CPU side of the context builder is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PromptAssemblyBenchmark {
+
+    // Defaults of codeverse.llm.summary.* and codeverse.llm.chunking.*
+    private static final int CONTEXT_TOKENS = 3000;
+    private static final int MAX_FILES = 8;
+    private static final int MAX_CHUNK_TOKENS = 3000;
+    private static final int MAX_CHUNK_LINES = 400;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entries;
+
+    private CompactTree tree;
+    private OpenAIService openAIService;
+    private SummaryContextBuilder.FileFetcher fetcher;
+    private String context;
+    private String largeFile;
+
+    @Setup
+    public void setUp() {
+        tree = CompactTree.build("repo", SyntheticTrees.generate(entries, 42));
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        openAIService = new OpenAIService(WebClient.builder(), objectMapper, null, null, null);
+
+        String readme = "# Project\n\n" + "This paragraph explains what the project does and how to run it. ".repeat(150);
+        String source = sourceFile(300);
+        fetcher = path -> Mono.just(path.toLowerCase().contains("readme") ? readme : source);
+        context = new SummaryContextBuilder(CONTEXT_TOKENS, MAX_FILES, 4).build(tree, fetcher).block();
+        largeFile = sourceFile(2500);
+    }
+
+    @Benchmark
+    public String summaryContext() {
+        return new SummaryContextBuilder(CONTEXT_TOKENS, MAX_FILES, 4).build(tree, fetcher).block();
+    }
+
+    @Benchmark
+    public String summaryRequest() {
+        Map<String, Object> request = openAIService.summarizeRepositoryRequest(context, "bullet", "medium", "intermediate");
+        return openAIService.cacheKey("summarize_repository", request);
+    }
+
+    // Independent of the tree size; a 2500-line file split into chunks, one request each
+    @Benchmark
+    public void analyzeLargeFile(Blackhole blackhole) {
+        SourceChunker chunker = new SourceChunker(MAX_CHUNK_TOKENS, MAX_CHUNK_LINES);
+        for (SourceChunker.Chunk chunk : chunker.split(largeFile)) {
+            Map<String, Object> request = openAIService.analyzeFileRequest(chunk.text(), "intermediate", null);
+            blackhole.consume(openAIService.cacheKey("analyze_file", request));
+        }
+    }
+
+    private static String sourceFile(int methods) {
+        StringBuilder source = new StringBuilder("package com.example;\n\nimport java.util.*;\n\npublic class Example {\n");
+        for (int i = 0; i < methods; i++) {
+            source.append("\n    public int compute").append(i).append("(List<Integer> values) {\n")
+                    .append("        int total = 0;\n")
+                    .append("        for (int value : values) {\n")
+                    .append("            total += value * ").append(i).append(";\n")
+                    .append("        }\n")
+                    .append("        return total;\n")
+                    .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+}